@@ -0,0 +1,84 @@
+#!/usr/bin/env bash
+# Сравнение пропускной способности перенаправлений с профилем virtual и без него (см. README, «Режим виртуальных потоков»).
+# Нужны JDK 21+ в PATH, wrk и curl; jar собирается заранее: ./mvnw -Pjava21 clean package
+# Для каждого режима приложение запускается заново на H2 в памяти, создаются LINKS ссылок с лимитом 1000 переходов,
+# после прогрева wrk по кругу нагружает GET /<код> при 200, 1000 и 4000 соединениях. Каждый успешный переход
+# увеличивает счётчик в БД (app.counters.mode=atomic). Запросы в секунду, p99 и число ответов не 3xx дописываются
+# в таблицу benchmarks/virtual-threads.md; ответы не 3xx означают, что ссылки исчерпали лимит и прогон нужно повторить
+# с большим LINKS. Параметры окружения: JAR, PORT, WARMUP (секунды), DURATION (секунды), CONNECTIONS, THREADS, LINKS
+set -euo pipefail
+
+JAR=${JAR:-target/url-shortener.jar}
+PORT=${PORT:-8080}
+WARMUP=${WARMUP:-60}
+DURATION=${DURATION:-60}
+CONNECTIONS=${CONNECTIONS:-"200 1000 4000"}
+THREADS=${THREADS:-8}
+LINKS=${LINKS:-20000} # 20 млн успешных переходов на прогрев и все замеры одного режима
+BATCH=1000 # app.batch.max-size
+RESULT=$(dirname "$0")/virtual-threads.md
+BASE_URL=http://localhost:$PORT
+
+java -version 2>&1 | head -1 | grep -Eq '"(2[1-9]|[3-9][0-9])' || { echo "Нужна JDK 21+" >&2; exit 1; }
+ulimit -n 65536 2>/dev/null || true
+
+if [ ! -f "$RESULT" ]; then
+    {
+        echo "| Дата | JDK | Ядер | Профиль | Соединений | Запросов/с | p99 | Не 3xx |"
+        echo "|---|---|---|---|---|---|---|---|"
+    } > "$RESULT"
+fi
+JDK=$(java -version 2>&1 | head -1 | sed -E 's/.*"([^"]+)".*/\1/')
+
+CODES=$(mktemp)
+SCRIPT=$(mktemp --suffix=.lua)
+cat > "$SCRIPT" <<'LUA'
+local codes = {}
+for code in io.lines(os.getenv("CODES")) do
+    codes[#codes + 1] = code
+end
+local i = 0
+request = function()
+    i = i % #codes + 1
+    return wrk.format("GET", "/" .. codes[i])
+end
+LUA
+export CODES
+
+for PROFILE in default virtual; do
+    ARGS=(--server.port="$PORT" --spring.datasource.url=jdbc:h2:mem:wrk --app.counters.mode=atomic
+          --app.expiry.tick=PT1H --logging.level.root=WARN)
+    if [ "$PROFILE" = virtual ]; then
+        ARGS+=(--spring.profiles.active=virtual)
+    fi
+    java -jar "$JAR" "${ARGS[@]}" &
+    APP=$!
+    trap 'kill $APP 2>/dev/null || true; rm -f "$CODES" "$SCRIPT"' EXIT
+    until curl -sf "$BASE_URL/actuator/health" > /dev/null; do
+        sleep 1
+    done
+
+    # Ссылка с лимитом 1000 исчерпалась бы на прогреве, и дальше замерялись бы ответы 400 из кэша без обращения к БД
+    : > "$CODES"
+    for ((FROM = 0; FROM < LINKS; FROM += BATCH)); do
+        TO=$((FROM + BATCH < LINKS ? FROM + BATCH : LINKS))
+        BODY=$(seq "$FROM" $((TO - 1)) | awk '{printf "%s{\"longUrl\":\"https://example.com/wrk/%d\",\"useLimit\":1000}", (NR > 1 ? "," : ""), $1}')
+        curl -sf -X POST "$BASE_URL/shorten/batch" -H 'Content-Type: application/json' -d "[$BODY]" \
+                | grep -o '"shortUrl":"[^"]*"' | sed -E 's/.*\/([^"]+)"$/\1/' >> "$CODES"
+    done
+    wrk -t"$THREADS" -c200 -d"${WARMUP}s" -s "$SCRIPT" "$BASE_URL" > /dev/null
+
+    for C in $CONNECTIONS; do
+        OUTPUT=$(wrk -t"$THREADS" -c"$C" -d"${DURATION}s" --latency -s "$SCRIPT" "$BASE_URL")
+        RPS=$(echo "$OUTPUT" | awk '/Requests\/sec/ {print $2}')
+        P99=$(echo "$OUTPUT" | awk '$1 == "99%" {print $2}')
+        FAILED=$(echo "$OUTPUT" | awk '/Non-2xx or 3xx responses/ {print $NF}')
+        echo "| $(date +%F) | $JDK | $(nproc) | $PROFILE | $C | $RPS | $P99 | ${FAILED:-0} |" | tee -a "$RESULT"
+        if [ -n "$FAILED" ]; then
+            echo "Часть ответов - не перенаправления: ссылки исчерпали лимит, увеличьте LINKS" >&2
+        fi
+    done
+
+    kill "$APP"
+    wait "$APP" 2>/dev/null || true
+done
@@ -0,0 +1,86 @@
+package ru.mephi.url.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Фильтр Блума для строк: размер массива и число хэш-функций подбираются под ожидаемое количество элементов
+// и целевую вероятность ложноположительного ответа. Позиции битов - двойное хэширование h1 + i * h2 (Кирш - Митценмахер).
+// Отрицательный ответ точный, положительный - с вероятностью getExpectedFpp ложный. Добавление и проверка потокобезопасны
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(
+                    "Недопустимые параметры фильтра Блума: " + capacity + " элементов, FPR " + falsePositiveRate);
+        }
+        long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком большой фильтр Блума: " + capacity + " элементов");
+        }
+        this.bits = new AtomicLongArray((int) Math.max(1, words));
+        this.bitCount = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = position(hash, i);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits.get(word) & mask) == 0) {
+                bits.getAndAccumulate(word, mask, (current, added) -> current | added);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = position(hash, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    // Оценка (1 - e^(-kn/m))^k по числу добавлений; повторные добавления одного кода завышают её
+    public double getExpectedFpp() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    // Старшая половина хэша - начальная позиция, младшая - шаг; нечётный шаг не даёт позициям схлопнуться в одну
+    private long position(long hash, int i) {
+        return Math.floorMod((hash >>> 32) + i * ((hash & 0xFFFFFFFFL) | 1), bitCount);
+    }
+
+    // FNV-1a по символам и перемешивание fmix64 из MurmurHash3
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.mephi.url.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.counter.ClickCounter;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.store.RedirectStore;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Component
+public class RedirectCache {
+    private final RedirectStore redirectStore;
+    private final ClickCounter clickCounter;
+    private final ShortCodeFilter codeFilter;
+    private final AsyncCache<String, RedirectEntry> cache;
+
+    public RedirectCache(RedirectStore redirectStore, ClickCounter clickCounter, ShortCodeFilter codeFilter,
+                         ShortURLConfig config) {
+        this.redirectStore = redirectStore;
+        this.clickCounter = clickCounter;
+        this.codeFilter = codeFilter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getCache().getMaxSize())
+                .expireAfterWrite(config.getCache().getExpireAfterWrite())
+                .buildAsync();
+    }
+
+    // Параллельные промахи по одному коду ждут единственной загрузки из хранилища. Загрузка выполняется вызывающим потоком
+    // вне блокировок словаря кэша, поэтому виртуальный поток не закрепляется за платформенным на время запроса в БД.
+    // Коды, которых точно нет по фильтру Блума, не загружаются и не кэшируются.
+    // Хранилище, которое само считает переходы (движок memory), держит записи без объектов на ссылку: вторая копия
+    // в кэше ему не нужна, и запись читается из него напрямую, уже с неучтёнными в БД переходами
+    public Optional<RedirectEntry> get(String shortUrl) {
+        if (redirectStore.countsClicks()) {
+            return codeFilter.mightContain(shortUrl) ? redirectStore.findRedirectEntry(shortUrl) : Optional.empty();
+        }
+
+        CompletableFuture<RedirectEntry> cached = cache.getIfPresent(shortUrl);
+        if (cached == null) {
+            if (!codeFilter.mightContain(shortUrl)) {
+                return Optional.empty();
+            }
+
+            CompletableFuture<RedirectEntry> loading = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(shortUrl, loading);
+            if (cached == null) {
+                cached = loading;
+                load(shortUrl, loading);
+            }
+        }
+        try {
+            return Optional.ofNullable(cached.join());
+        } catch (CompletionException ex) {
+            throw (ex.getCause() instanceof RuntimeException cause) ? cause : ex; // Ошибка загрузки в другом потоке
+        }
+    }
+
+    public void invalidate(String shortUrl) {
+        cache.synchronous().invalidate(shortUrl);
+        afterCommit(() -> cache.synchronous().invalidate(shortUrl));
+    }
+
+    public void invalidateAll(Collection<String> shortUrls) {
+        cache.synchronous().invalidateAll(shortUrls);
+        afterCommit(() -> cache.synchronous().invalidateAll(shortUrls));
+    }
+
+    // Завершившаяся null или исключением загрузка удаляется из кэша самим Caffeine
+    private void load(String shortUrl, CompletableFuture<RedirectEntry> loading) {
+        try {
+            loading.complete(clickCounter.load(shortUrl, redirectStore::findRedirectEntry).orElse(null));
+        } catch (RuntimeException ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // Повторная инвалидация после коммита не даёт параллельному промаху закэшировать ещё не изменённую строку
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
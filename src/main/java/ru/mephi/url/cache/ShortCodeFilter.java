@@ -0,0 +1,188 @@
+package ru.mephi.url.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Фильтр Блума по всем выданным кодам: код, которого точно нет в БД, отклоняется без запроса в БД.
+// Фильтр строится при запуске и пополняется при создании ссылок; когда кодов становится больше расчётной ёмкости,
+// в фоне строится фильтр вдвое большего размера. Пока фильтр не построен, любой код считается возможным.
+// Коды, созданные другими экземплярами приложения, фильтр не видит, поэтому по умолчанию он выключен
+// и рассчитан на один экземпляр с одной БД: вместе с репликами чтения и шардированием приложение не запускается
+@Component
+@Slf4j
+public class ShortCodeFilter {
+    private final ShortURLRepository urlRepository;
+    private final TaskScheduler taskScheduler;
+    private final Shards shards;
+    private final boolean enabled;
+    private final long minCapacity;
+    private final double falsePositiveRate;
+    private final int loadChunkSize;
+    private final Counter negatives;
+
+    // Добавление кода - под чтением, смена фильтров - под записью: код, добавленный после начала перестроения,
+    // попадает и в новый фильтр, а добавленный раньше уже закоммичен и будет прочитан из БД
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile BloomFilter filter;
+    private volatile BloomFilter pending;
+
+    public ShortCodeFilter(ShortURLRepository urlRepository, TaskScheduler taskScheduler, Shards shards,
+                           ShortURLConfig config, MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.taskScheduler = taskScheduler;
+        this.shards = shards;
+        this.enabled = config.getCodeFilter().isEnabled();
+        if (enabled && (config.getReplica().isEnabled() || config.getSharding().isEnabled())) {
+            throw new IllegalStateException("Фильтр кодов (app.code-filter.enabled) не поддерживается вместе с репликами чтения и шардированием");
+        }
+        this.minCapacity = config.getCodeFilter().getExpectedCodes();
+        this.falsePositiveRate = config.getCodeFilter().getFalsePositiveRate();
+        this.loadChunkSize = config.getCleanup().getChunkSize();
+
+        Gauge.builder("shortener.code.filter.fpp", this, ShortCodeFilter::getExpectedFpp)
+                .description("Оценка вероятности ложноположительного ответа фильтра кодов")
+                .register(meterRegistry);
+        Gauge.builder("shortener.code.filter.codes", this, f -> (f.filter != null) ? f.filter.getInsertions() : 0)
+                .description("Количество кодов в фильтре")
+                .register(meterRegistry);
+        Gauge.builder("shortener.code.filter.capacity", this, f -> (f.filter != null) ? f.filter.getCapacity() : 0)
+                .description("Расчётная ёмкость фильтра кодов")
+                .register(meterRegistry);
+        this.negatives = Counter.builder("shortener.code.filter.negatives")
+                .description("Коды, отклонённые фильтром без запроса в БД")
+                .register(meterRegistry);
+    }
+
+    public boolean mightContain(String shortUrl) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(shortUrl)) {
+            return true;
+        }
+        negatives.increment();
+        return false;
+    }
+
+    // Код попадает в фильтр после коммита: до этого о нём знает только создающий запрос
+    public void add(String shortUrl) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(shortUrl);
+                }
+            });
+        } else {
+            put(shortUrl);
+        }
+    }
+
+    public double getExpectedFpp() {
+        BloomFilter current = filter;
+        return (current != null) ? current.getExpectedFpp() : 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        BloomFilter current = filter;
+        long stored = shards.onEach(urlRepository::count).stream().mapToLong(Long::longValue).sum();
+        long codes = Math.max(stored, (current != null) ? current.getInsertions() : 0);
+        BloomFilter next = new BloomFilter(Math.max(minCapacity, 2 * codes), falsePositiveRate);
+
+        swapLock.writeLock().lock();
+        try {
+            pending = next;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            for (int shard = 0; shard < shards.count(); shard++) {
+                String after = "";
+                List<String> chunk;
+                do {
+                    String chunkAfter = after;
+                    chunk = shards.on(shard,
+                            () -> urlRepository.findShortUrlsAfter(chunkAfter, Limit.of(loadChunkSize)));
+                    chunk.forEach(next::put);
+                    after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1);
+                } while (chunk.size() == loadChunkSize);
+            }
+        } catch (RuntimeException ex) {
+            pending = null;
+            throw ex;
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            filter = next;
+            pending = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        log.info("Фильтр коротких ссылок построен: {} кодов, ёмкость {}", next.getInsertions(), next.getCapacity());
+    }
+
+    private void put(String shortUrl) {
+        BloomFilter current;
+        swapLock.readLock().lock();
+        try {
+            current = filter;
+            if (current != null) {
+                current.put(shortUrl);
+            }
+            BloomFilter next = pending;
+            if (next != null) {
+                next.put(shortUrl);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        if (current != null && current.getInsertions() > current.getCapacity()) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException ex) {
+                    log.warn("Не удалось перестроить фильтр коротких ссылок: {}", ex.getMessage());
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            }, Instant.now());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.mephi.url.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+// Пул соединений с учётными данными и настройками пула из spring.datasource, но со своим адресом БД
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    static HikariDataSource create(DataSourceProperties properties, String url, String name, Environment environment) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
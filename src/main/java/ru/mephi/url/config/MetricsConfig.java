@@ -0,0 +1,69 @@
+package ru.mephi.url.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.mephi.url.metrics.DbCallsInterceptor;
+import ru.mephi.url.metrics.QueryCountingDataSource;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // Статический метод: постпроцессор создаётся раньше остальных бинов конфигурации
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return (bean instanceof DataSource dataSource && !(bean instanceof QueryCountingDataSource))
+                        ? new QueryCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    // Реестр метрик может отсутствовать, например в тестах @WebMvcTest
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public static class WebMvcMetricsConfig implements WebMvcConfigurer {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private DbCallsInterceptor dbCallsInterceptor;
+
+        public WebMvcMetricsConfig(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            DbCallsInterceptor interceptor = dbCallsInterceptor();
+            if (interceptor != null) {
+                registry.addInterceptor(interceptor);
+            }
+        }
+
+        // Тот же перехватчик привязывает счётчик запроса к потоку асинхронной обработки
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            DbCallsInterceptor interceptor = dbCallsInterceptor();
+            if (interceptor != null) {
+                configurer.registerCallableInterceptors(interceptor);
+            }
+        }
+
+        private DbCallsInterceptor dbCallsInterceptor() {
+            if (dbCallsInterceptor == null) {
+                MeterRegistry meters = meterRegistry.getIfAvailable();
+                dbCallsInterceptor = (meters != null) ? new DbCallsInterceptor(meters) : null;
+            }
+            return dbCallsInterceptor;
+        }
+    }
+}
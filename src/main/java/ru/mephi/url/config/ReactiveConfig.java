@@ -0,0 +1,59 @@
+package ru.mephi.url.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import ru.mephi.url.controller.ReactiveRedirectHandler;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig implements WebFluxConfigurer {
+    private final AsyncTaskExecutor blockingExecutor;
+
+    public ReactiveConfig(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    // Tomcat тоже на classpath, и без явного выбора Spring Boot запустил бы WebFlux поверх него
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // ConnectionFactory не публикуется как бин: при его наличии Spring Boot не создаёт DataSource для JPA.
+    // Учётные данные те же, что и у spring.datasource
+    @Bean
+    public DatabaseClient databaseClient(ShortURLConfig config, DataSourceProperties dataSourceProperties) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(config.getReactive().getR2dbcUrl()).mutate()
+                .option(ConnectionFactoryOptions.USER, dataSourceProperties.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.getPassword())
+                .build();
+        return DatabaseClient.create(ConnectionFactories.get(options));
+    }
+
+    // Функциональные маршруты проверяются раньше аннотированных, поэтому GET /{shortUrl} из ShortURLController не используется
+    @Bean
+    public RouterFunction<ServerResponse> redirectRoute(ReactiveRedirectHandler redirectHandler) {
+        return route(GET("/{shortUrl:[a-zA-Z0-9]{6}}"), redirectHandler::redirectToLongUrl);
+    }
+
+    // Остальные эндпоинты ShortURLController блокирующие (JPA), поэтому они выполняются вне потоков Netty
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        configurer.setExecutor(blockingExecutor);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.mephi.url.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.mephi.url.replica.ReadReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.replica", name = "enabled", havingValue = "true")
+public class ReplicaConfig {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    // Пулы основной БД и реплик не публикуются как бины: Spring Boot не создаёт свой DataSource при наличии этого,
+    // а запросы считаются один раз - на внешнем источнике. Реплики используют учётные данные и настройки пула
+    // spring.datasource, а их соединения помечаются только для чтения
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, ShortURLConfig config, Environment environment) {
+        HikariDataSource primary = DataSourcePools.create(properties, properties.determineUrl(), "primary", environment);
+        pools.add(primary);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : config.getReplica().getUrls()) {
+            HikariDataSource replica = DataSourcePools.create(properties, url, "replica-" + replicas.size(), environment);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+            pools.add(replica);
+        }
+
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, replicas);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Конфигурация уничтожается после зависящего от неё DataSource и всех его пользователей
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
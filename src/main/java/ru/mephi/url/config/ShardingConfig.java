@@ -0,0 +1,66 @@
+package ru.mephi.url.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.mephi.url.shard.ShardRoutingDataSource;
+import ru.mephi.url.shard.ShardSequences;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    // Основная БД (spring.datasource) хранит пользователей и резервы кодов, шарды - ссылки и копии их владельцев.
+    // Схема шардов создаётся тем же schema.sql. Реплики чтения и реактивный режим работают с одной БД,
+    // поэтому вместе с шардированием не поддерживаются
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, ShortURLConfig config, Environment environment) {
+        if (config.getSharding().getUrls().isEmpty()) {
+            throw new IllegalStateException("Шардирование включено, но адреса шардов (app.sharding.urls) не заданы");
+        }
+        if (config.getReplica().isEnabled() || config.getReactive().getR2dbcUrl() != null) {
+            throw new IllegalStateException("Шардирование не поддерживается вместе с репликами чтения и реактивным режимом");
+        }
+        // EntityManager, открытый на весь запрос, держит соединение той БД, к которой обратился первым,
+        // и транзакция шарда, начатая вне других транзакций, продолжила бы работать на нём
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException("При шардировании нужно отключить spring.jpa.open-in-view");
+        }
+
+        HikariDataSource home = DataSourcePools.create(properties, properties.determineUrl(), "home", environment);
+        pools.add(home);
+
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : config.getSharding().getUrls()) {
+            HikariDataSource shard = DataSourcePools.create(properties, url, "shard-" + shards.size(), environment);
+            pools.add(shard);
+            DatabasePopulatorUtils.execute(schema, shard);
+            shards.add(shard);
+        }
+        ShardSequences.align(shards);
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(home, shards);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Конфигурация уничтожается после зависящего от неё DataSource и всех его пользователей
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
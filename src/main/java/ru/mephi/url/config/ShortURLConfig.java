@@ -4,11 +4,33 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "app")
 @Getter
 @Setter
 public class ShortURLConfig {
+    private String baseUrl;
     private Defaults defaults = new Defaults();
+    private Batch batch = new Batch();
+    private BulkImport bulkImport = new BulkImport();
+    private Export export = new Export();
+    private Listing listing = new Listing();
+    private Users users = new Users();
+    private Cache cache = new Cache();
+    private Counters counters = new Counters();
+    private CodePool codePool = new CodePool();
+    private CodeGenerator codeGenerator = new CodeGenerator();
+    private CodeFilter codeFilter = new CodeFilter();
+    private Cleanup cleanup = new Cleanup();
+    private Expiry expiry = new Expiry();
+    private Reactive reactive = new Reactive();
+    private Replica replica = new Replica();
+    private Sharding sharding = new Sharding();
+    private RedirectStore redirectStore = new RedirectStore();
+    private Snapshot snapshot = new Snapshot();
 
     @Getter
     @Setter
@@ -16,4 +38,130 @@ public class ShortURLConfig {
         private int useLimit;
         private int ttlHours;
     }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        private int maxSize;
+    }
+
+    @Getter
+    @Setter
+    public static class BulkImport {
+        private int chunkSize;
+        private String rejectedDir;
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+        private int chunkSize;
+    }
+
+    @Getter
+    @Setter
+    public static class Listing {
+        private int defaultPageSize;
+        private int maxPageSize;
+    }
+
+    @Getter
+    @Setter
+    public static class Users {
+        private long knownIdsCacheSize;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        private long maxSize;
+        private Duration expireAfterWrite;
+    }
+
+    @Getter
+    @Setter
+    public static class Counters {
+        private Duration flushInterval;
+        private int maxUnflushedDelta;
+    }
+
+    @Getter
+    @Setter
+    public static class CodePool {
+        private int capacity;
+        private int lowWaterMark;
+        private Duration reservationTtl;
+    }
+
+    @Getter
+    @Setter
+    public static class CodeGenerator {
+        private int codeLength;
+        private long blockSize;
+        private Long secret; // Ключ перестановки не хранится в репозитории и задаётся окружением
+        private int feistelRounds;
+    }
+
+    @Getter
+    @Setter
+    public static class CodeFilter {
+        private boolean enabled;
+        private long expectedCodes;
+        private double falsePositiveRate;
+    }
+
+    @Getter
+    @Setter
+    public static class Cleanup {
+        private int chunkSize;
+        private Duration timeBudget;
+    }
+
+    @Getter
+    @Setter
+    public static class Expiry {
+        private Duration tick;
+    }
+
+    @Getter
+    @Setter
+    public static class Reactive {
+        private String r2dbcUrl;
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private boolean enabled;
+        private List<String> urls = new ArrayList<>();
+        private Duration maxLag;
+    }
+
+    @Getter
+    @Setter
+    public static class Sharding {
+        private boolean enabled;
+        private List<String> urls = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class RedirectStore {
+        private String directory;
+        private Duration syncInterval;
+        private Duration compactionInterval;
+        private double compactionGarbageRatio;
+        private int maxLinks;
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        private boolean enabled;
+        private String directory;
+        private Duration interval;
+        private Duration refreshInterval;
+        private Duration changeOverlap;
+        private Duration maxAge;
+    }
 }
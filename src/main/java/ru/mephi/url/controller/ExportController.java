@@ -0,0 +1,34 @@
+package ru.mephi.url.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mephi.url.service.ExportService;
+
+import java.util.UUID;
+
+// StreamingResponseBody пишет ответ в потоке асинхронной обработки Spring MVC, поэтому эндпоинт есть только в сервлетном
+// профиле. Время выгрузки ограничено spring.mvc.async.request-timeout
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class ExportController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ExportService exportService;
+
+    @GetMapping("/users/{uuid}/links/export")
+    public ResponseEntity<StreamingResponseBody> exportLinks(@PathVariable UUID uuid) {
+        StreamingResponseBody body = exportService.exportLinks(uuid);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(NDJSON); // Тело пишется в обход конвертеров сообщений, тип задаётся явно
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
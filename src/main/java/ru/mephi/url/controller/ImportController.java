@@ -0,0 +1,33 @@
+package ru.mephi.url.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import ru.mephi.url.dto.ImportReportDto;
+import ru.mephi.url.service.ImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+// Тело запроса читается напрямую из потока сервлета, поэтому эндпоинт есть только в сервлетном профиле
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class ImportController {
+    private final ImportService importService;
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ImportReportDto> importLinks(@RequestHeader(name = "UUID", required = false) UUID uuid,
+                                                       @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                       InputStream body) throws IOException {
+        ImportReportDto reportDto = importService.importLinks(uuid, body, contentType);
+        return new ResponseEntity<>(reportDto, HttpStatus.OK);
+    }
+}
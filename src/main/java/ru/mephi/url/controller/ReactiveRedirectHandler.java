@@ -0,0 +1,37 @@
+package ru.mephi.url.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.mephi.url.dto.ErrorResponseDto;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.service.ReactiveRedirectService;
+
+import java.net.URI;
+
+// Перенаправление в реактивном профиле; ответы об ошибках - в том же формате, что и у GlobalExceptionHandler
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveRedirectHandler {
+    private final ReactiveRedirectService redirectService;
+
+    public Mono<ServerResponse> redirectToLongUrl(ServerRequest request) {
+        return redirectService.redirect(request.pathVariable("shortUrl"))
+                .flatMap(result -> switch (result.getStatus()) {
+                    case OK -> ServerResponse.status(HttpStatus.FOUND).location(URI.create(result.getLongUrl())).build();
+                    case NOT_FOUND -> error(HttpStatus.NOT_FOUND, result);
+                    case EXPIRED, LIMIT_REACHED -> error(HttpStatus.BAD_REQUEST, result);
+                });
+    }
+
+    private Mono<ServerResponse> error(HttpStatus status, AccessResult result) {
+        ErrorResponseDto responseDto = new ErrorResponseDto();
+        responseDto.setError(result.getError());
+        return ServerResponse.status(status).bodyValue(responseDto);
+    }
+}
@@ -6,12 +6,17 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.mephi.url.dto.ErrorResponseDto;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
 import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLPageDto;
 import ru.mephi.url.dto.ShortURLResponseDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.AccessResult;
 import ru.mephi.url.service.ShortURLService;
 
 import java.net.URI;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -26,12 +31,33 @@ public class ShortURLController {
         return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
     }
 
+    @PostMapping("/shorten/batch")
+    public ResponseEntity<List<ShortURLBatchItemDto>> createShortUrls(@RequestHeader(name = "UUID", required = false) UUID uuid,
+                                                                      @RequestBody List<ShortURLCreateDto> requestDtos) {
+        List<ShortURLBatchItemDto> responseDtos = urlService.createShortUrls(uuid, requestDtos);
+        return new ResponseEntity<>(responseDtos, HttpStatus.OK);
+    }
+
+    @GetMapping("/links")
+    public ResponseEntity<ShortURLPageDto> listShortUrls(@RequestHeader("UUID") UUID uuid,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        ShortURLPageDto responseDto = urlService.listShortUrls(uuid, cursor, limit);
+        return new ResponseEntity<>(responseDto, HttpStatus.OK);
+    }
+
     @GetMapping("/{shortUrl:[a-zA-Z0-9]{6}}")
     public ResponseEntity<?> redirectToLongUrl(@PathVariable String shortUrl) {
-        String longUrl = urlService.getLongUrl(shortUrl);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setLocation(URI.create(longUrl));
-        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+        AccessResult result = urlService.redirect(shortUrl);
+        return switch (result.getStatus()) {
+            case OK -> {
+                HttpHeaders headers = new HttpHeaders();
+                headers.setLocation(URI.create(result.getLongUrl()));
+                yield new ResponseEntity<>(headers, HttpStatus.FOUND);
+            }
+            case NOT_FOUND -> rejected(result, HttpStatus.NOT_FOUND);
+            case EXPIRED, LIMIT_REACHED -> rejected(result, HttpStatus.BAD_REQUEST);
+        };
     }
 
     @PutMapping("/{shortUrl:[a-zA-Z0-9]{6}}")
@@ -47,4 +73,11 @@ public class ShortURLController {
         urlService.deleteShortUrl(shortUrl, uuid);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    // Тело ответа - как у GlobalExceptionHandler для тех же отказов
+    private ResponseEntity<ErrorResponseDto> rejected(AccessResult result, HttpStatus status) {
+        ErrorResponseDto responseDto = new ErrorResponseDto();
+        responseDto.setError(result.getError());
+        return new ResponseEntity<>(responseDto, status);
+    }
 }
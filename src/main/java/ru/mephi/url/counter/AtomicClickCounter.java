@@ -0,0 +1,55 @@
+package ru.mephi.url.counter;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+@Component
+@ConditionalOnProperty(prefix = "app.counters", name = "mode", havingValue = "atomic")
+@RequiredArgsConstructor
+public class AtomicClickCounter implements ClickCounter {
+    private final ShortURLRepository urlRepository;
+    private final Shards shards;
+    private final RedirectStore redirectStore;
+
+    @Override
+    public Optional<RedirectEntry> load(String shortUrl, Function<String, Optional<RedirectEntry>> loader) {
+        return loader.apply(shortUrl);
+    }
+
+    @Override
+    public boolean registerClick(RedirectEntry entry) {
+        // Решение принимает БД: лимит не превышается даже при нескольких экземплярах приложения
+        String shortUrl = entry.getShortUrl();
+        int allowed = shards.on(shards.of(shortUrl),
+                () -> urlRepository.incrementUseCountIfAllowed(shortUrl, LocalDateTime.now()));
+        if (allowed == 0) {
+            entry.markLimitReached();
+            return false;
+        }
+
+        entry.addUseCount(1);
+        redirectStore.clicked(Map.of(shortUrl, 1));
+        return true;
+    }
+
+    @Override
+    public boolean registerCountedClick(String shortUrl) {
+        return shards.on(shards.of(shortUrl),
+                () -> urlRepository.incrementUseCountIfAllowed(shortUrl, LocalDateTime.now())) > 0;
+    }
+
+    @Override
+    public void flush(String shortUrl) {
+        // Счётчик всегда актуален в БД
+    }
+}
@@ -0,0 +1,27 @@
+package ru.mephi.url.counter;
+
+import ru.mephi.url.model.RedirectEntry;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface ClickCounter {
+
+    // Загрузка записи для кэша перенаправлений с учётом ещё не сохранённых переходов
+    Optional<RedirectEntry> load(String shortUrl, Function<String, Optional<RedirectEntry>> loader);
+
+    // false - переход отклонён, лимит исчерпан (entry.isLimitReached() после вызова истинно)
+    boolean registerClick(RedirectEntry entry);
+
+    // Переход, который уже проверило и учло хранилище переходов (RedirectStore.click): остаётся сохранить его в БД.
+    // false - переход отклонила БД
+    boolean registerCountedClick(String shortUrl);
+
+    // Переходы по ссылке, ещё не записанные в БД
+    default long getPending(String shortUrl) {
+        return 0;
+    }
+
+    // Сохраняет переходы одной ссылки в текущей транзакции (перед её редактированием)
+    void flush(String shortUrl);
+}
@@ -0,0 +1,193 @@
+package ru.mephi.url.counter;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
+import ru.mephi.url.repository.ShortURLRepository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+@Component
+@ConditionalOnProperty(prefix = "app.counters", name = "mode", havingValue = "write-behind", matchIfMissing = true)
+@Slf4j
+public class WriteBehindClickCounter implements ClickCounter {
+    private final ShortURLRepository urlRepository;
+    private final TaskScheduler taskScheduler;
+    private final RecentWrites recentWrites;
+    private final Shards shards;
+    private final RedirectStore redirectStore;
+    private final int maxUnflushedDelta;
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public WriteBehindClickCounter(ShortURLRepository urlRepository, TaskScheduler taskScheduler,
+                                   RecentWrites recentWrites, Shards shards, RedirectStore redirectStore,
+                                   ShortURLConfig config) {
+        this.urlRepository = urlRepository;
+        this.taskScheduler = taskScheduler;
+        this.recentWrites = recentWrites;
+        this.shards = shards;
+        this.redirectStore = redirectStore;
+        this.maxUnflushedDelta = config.getCounters().getMaxUnflushedDelta();
+    }
+
+    @Override
+    public Optional<RedirectEntry> load(String shortUrl, Function<String, Optional<RedirectEntry>> loader) {
+        // Пока идёт сброс, переходы уже сняты со счётчиков, но ещё не видны в БД
+        flushLock.readLock().lock();
+        try {
+            Optional<RedirectEntry> entry = loader.apply(shortUrl);
+            entry.ifPresent(e -> e.addUseCount((int) getPending(shortUrl)));
+            return entry;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean registerClick(RedirectEntry entry) {
+        if (!entry.tryIncrementUseCount()) {
+            return false;
+        }
+
+        return registerCountedClick(entry.getShortUrl());
+    }
+
+    @Override
+    public boolean registerCountedClick(String shortUrl) {
+        if (addPending(shortUrl, 1) >= maxUnflushedDelta) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    @Override
+    public long getPending(String shortUrl) {
+        LongAdder counter = pending.get(shortUrl);
+        return (counter != null) ? counter.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval}")
+    public void flush() {
+        flushRequested.set(false);
+        flushLock.writeLock().lock();
+        try {
+            Map<String, Integer> deltas = new HashMap<>();
+            for (Map.Entry<String, LongAdder> counter : pending.entrySet()) {
+                int delta = harvest(counter.getKey(), counter.getValue());
+                if (delta > 0) {
+                    deltas.merge(counter.getKey(), delta, Integer::sum);
+                }
+            }
+
+            if (!deltas.isEmpty()) {
+                write(deltas);
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush(String shortUrl) {
+        LongAdder counter = pending.get(shortUrl);
+        if (counter == null) {
+            return;
+        }
+
+        int delta = harvest(shortUrl, counter);
+        if (delta == 0) {
+            return;
+        }
+
+        shards.run(shards.of(shortUrl), () -> {
+            urlRepository.incrementUseCounts(Map.of(shortUrl, delta));
+            recentWrites.record(shortUrl);
+            redirectStore.clicked(Map.of(shortUrl, delta));
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            addPending(shortUrl, delta);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("При остановке не удалось сохранить переходы по {} ссылкам", pending.size());
+        }
+    }
+
+    // Каждый шард получает свой пакет UPDATE, ошибка в одном шарде не мешает сохранить переходы в остальных
+    private void write(Map<String, Integer> deltas) {
+        shards.group(deltas.entrySet(), Map.Entry::getKey).forEach((shard, entries) -> {
+            Map<String, Integer> shardDeltas = new HashMap<>();
+            entries.forEach(entry -> shardDeltas.put(entry.getKey(), entry.getValue()));
+            try {
+                shards.run(shard, () -> urlRepository.incrementUseCounts(shardDeltas));
+            } catch (RuntimeException ex) {
+                shardDeltas.forEach(this::addPending); // Вернём переходы, чтобы сохранить их при следующем сбросе
+                log.warn("Не удалось сохранить счётчики переходов по {} ссылкам: {}", shardDeltas.size(), ex.getMessage());
+                return;
+            }
+            recentWrites.recordAll(shardDeltas.keySet()); // Снятые со счётчиков переходы реплика может ещё не видеть
+            redirectStore.clicked(shardDeltas);
+        });
+    }
+
+    // Счётчик сначала снимается с регистрации, и только потом обнуляется:
+    // переход, попавший в уже снятый счётчик, будет перенесён в новый в addPending
+    private int harvest(String shortUrl, LongAdder counter) {
+        pending.remove(shortUrl, counter);
+        return (int) counter.sumThenReset();
+    }
+
+    private long addPending(String shortUrl, long delta) {
+        while (true) {
+            LongAdder counter = pending.computeIfAbsent(shortUrl, code -> new LongAdder());
+            counter.add(delta);
+            if (pending.get(shortUrl) == counter) {
+                return counter.sum();
+            }
+
+            delta = counter.sumThenReset();
+            if (delta == 0) {
+                return 0;
+            }
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+}
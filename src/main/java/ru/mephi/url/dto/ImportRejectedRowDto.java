@@ -0,0 +1,18 @@
+package ru.mephi.url.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+// Строка файла отклонённых строк: номер и исходный текст строки входного потока и причина отказа
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+public class ImportRejectedRowDto {
+    private long line;
+    private String row;
+    private String error;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,15 @@
+package ru.mephi.url.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+public class ImportReportDto {
+    private long rows;
+    private long imported;
+    private long rejected;
+    private String rejectedFile;
+}
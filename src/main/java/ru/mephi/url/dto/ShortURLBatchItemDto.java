@@ -0,0 +1,19 @@
+package ru.mephi.url.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+// Результат для одного элемента пакета: status - HTTP-код, который получил бы такой же одиночный POST /shorten,
+// url - созданная ссылка, error/errors - ошибка в том же виде, что и в ErrorResponseDto
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+public class ShortURLBatchItemDto {
+    private int status;
+    private ShortURLResponseDto url;
+    private String error;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,28 @@
+package ru.mephi.url.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Строка выгрузки: ссылка в том виде, в каком хранится в БД. Поля longUrl, useLimit и ttlHours совпадают
+// с форматом импорта, поэтому выгрузку можно загрузить обратно через POST /import
+@Getter
+@Setter
+public class ShortURLExportDto {
+    private String shortUrl;
+    private String longUrl;
+    private Integer useCount;
+    private Integer useLimit;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    private Integer ttlHours;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expiresAt;
+
+    private Boolean deleted;
+}
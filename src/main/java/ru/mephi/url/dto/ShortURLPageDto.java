@@ -0,0 +1,14 @@
+package ru.mephi.url.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Страница списка ссылок; nextCursor передаётся в следующий запрос и равен null на последней странице
+@Getter
+@Setter
+public class ShortURLPageDto {
+    private List<ShortURLResponseDto> items;
+    private String nextCursor;
+}
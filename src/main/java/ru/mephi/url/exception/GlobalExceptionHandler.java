@@ -7,11 +7,14 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.MissingRequestValueException;
 import ru.mephi.url.dto.ErrorResponseDto;
 
 import java.util.LinkedHashMap;
@@ -20,10 +23,13 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(MissingRequestHeaderException.class)
+    // Исключения WebFlux - для эндпоинтов контроллера в реактивном профиле
+    @ExceptionHandler({MissingRequestHeaderException.class, MissingRequestValueException.class})
     public ResponseEntity<ErrorResponseDto> handleMissingRequestHeaderException(HttpMethod method) {
         String error = "Для %s коротких ссылок в запросе обязательно должен быть заголовок UUID";
-        if (method == HttpMethod.PUT) {
+        if (method == HttpMethod.GET) {
+            error = String.format(error, "просмотра");
+        } else if (method == HttpMethod.PUT) {
             error = String.format(error, "редактирования параметров");
         } else {
             error = String.format(error, "удаления");
@@ -43,16 +49,12 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponseDto> handleArgumentNotValidException(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new LinkedHashMap<>();
-        ex.getBindingResult().getAllErrors().forEach(error -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
+        return handleBindingErrors(ex.getBindingResult());
+    }
 
-        ErrorResponseDto responseDto = new ErrorResponseDto();
-        responseDto.setErrors(errors);
-        return new ResponseEntity<>(responseDto, HttpStatus.BAD_REQUEST);
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponseDto> handleWebExchangeBindException(WebExchangeBindException ex) {
+        return handleBindingErrors(ex.getBindingResult());
     }
 
     @ExceptionHandler(EntityNotFoundException.class)
@@ -75,4 +77,17 @@ public class GlobalExceptionHandler {
         responseDto.setError(ex.getMessage());
         return new ResponseEntity<>(responseDto, HttpStatus.BAD_REQUEST);
     }
+
+    private ResponseEntity<ErrorResponseDto> handleBindingErrors(BindingResult bindingResult) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        bindingResult.getAllErrors().forEach(error -> {
+            String fieldName = ((FieldError) error).getField();
+            String errorMessage = error.getDefaultMessage();
+            errors.put(fieldName, errorMessage);
+        });
+
+        ErrorResponseDto responseDto = new ErrorResponseDto();
+        responseDto.setErrors(errors);
+        return new ResponseEntity<>(responseDto, HttpStatus.BAD_REQUEST);
+    }
 }
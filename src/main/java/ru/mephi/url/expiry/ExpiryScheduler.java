@@ -0,0 +1,87 @@
+package ru.mephi.url.expiry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.ExpiryEntry;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.service.CleanupService;
+import ru.mephi.url.shard.Shards;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+@Component
+@Slf4j
+public class ExpiryScheduler {
+    private static final int WHEEL_LEVELS = 5; // 64^5 тиков - с запасом покрывает максимальное TTL в один год
+
+    private final ShortURLRepository urlRepository;
+    private final CleanupService cleanupService;
+    private final Shards shards;
+    private final int loadChunkSize;
+    private final HierarchicalTimingWheel<String> wheel;
+
+    public ExpiryScheduler(ShortURLRepository urlRepository, CleanupService cleanupService, Shards shards,
+                           ShortURLConfig config) {
+        this.urlRepository = urlRepository;
+        this.cleanupService = cleanupService;
+        this.shards = shards;
+        this.loadChunkSize = config.getCleanup().getChunkSize();
+        this.wheel = new HierarchicalTimingWheel<>(config.getExpiry().getTick().toMillis(), WHEEL_LEVELS,
+                System.currentTimeMillis());
+    }
+
+    public synchronized void schedule(String shortUrl, LocalDateTime expiresAt) {
+        wheel.schedule(shortUrl, toMillis(expiresAt));
+    }
+
+    public synchronized void cancel(String shortUrl) {
+        wheel.cancel(shortUrl);
+    }
+
+    public synchronized int size() {
+        return wheel.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveUrls() {
+        int loaded = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            long afterId = 0;
+            List<ExpiryEntry> chunk;
+            do {
+                long chunkAfterId = afterId;
+                chunk = shards.on(shard,
+                        () -> urlRepository.findActiveExpiries(chunkAfterId, Limit.of(loadChunkSize)));
+                for (ExpiryEntry entry : chunk) {
+                    schedule(entry.getShortUrl(), entry.getExpiresAt());
+                }
+                loaded += chunk.size();
+                afterId = chunk.isEmpty() ? afterId : chunk.get(chunk.size() - 1).getId();
+            } while (chunk.size() == loadChunkSize);
+        }
+
+        log.info("Запланировано истечение {} активных ссылок", loaded);
+    }
+
+    @Scheduled(fixedRateString = "${app.expiry.tick}")
+    public void tick() {
+        List<String> expired;
+        synchronized (this) {
+            expired = wheel.advance(System.currentTimeMillis());
+        }
+        if (!expired.isEmpty()) {
+            cleanupService.expireUrls(expired);
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.mephi.url.expiry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Иерархическое колесо таймеров: уровень l состоит из 64 ячеек по 64^l тиков. Таймер кладётся на самый нижний уровень,
+// диапазон которого покрывает его задержку, и опускается ниже, когда колесо доходит до его ячейки.
+// Добавление, перенос и отмена - O(1): ячейки хранят двусвязные списки, а узел таймера находится по ключу.
+// Класс не потокобезопасен, синхронизацию обеспечивает владелец
+public class HierarchicalTimingWheel<K> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final Node<K>[][] slots;
+    private final Map<K, Node<K>> timers = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int levels, long startMillis) {
+        if (levels < 1 || levels * SLOT_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Недопустимое количество уровней колеса таймеров: " + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.slots = new Node[levels][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Повторное планирование того же ключа переносит таймер. Срок в прошлом истекает на ближайшем тике
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Node<K> node = new Node<>(key, deadlineTick);
+        timers.put(key, node);
+        insert(node);
+    }
+
+    public boolean cancel(K key) {
+        Node<K> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    // Проворачивает колесо до момента nowMillis и возвращает ключи истёкших таймеров
+    public List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            Node<K> node = detach(0, (int) (currentTick & SLOT_MASK));
+            while (node != null) {
+                timers.remove(node.key);
+                expired.add(node.key);
+                node = node.next;
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    // На границе ячейки уровня l её таймеры перераспределяются по нижним уровням, начиная с верхнего
+    private void cascade() {
+        int topLevel = 0;
+        while (topLevel + 1 < levels && (currentTick & ((1L << (SLOT_BITS * (topLevel + 1))) - 1)) == 0) {
+            topLevel++;
+        }
+
+        for (int level = topLevel; level > 0; level--) {
+            Node<K> node = detach(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            while (node != null) {
+                Node<K> next = node.next;
+                insert(node);
+                node = next;
+            }
+        }
+    }
+
+    private void insert(Node<K> node) {
+        long delay = node.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        // Таймер дальше диапазона колеса ждёт в самой дальней ячейке верхнего уровня и переоценивается при каскаде
+        long placementTick = Math.min(node.deadlineTick, currentTick + (1L << (SLOT_BITS * levels)) - 1);
+        int slot = (int) ((placementTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = slots[level][slot];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        slots[level][slot] = node;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[node.level][node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+    }
+
+    private Node<K> detach(int level, int slot) {
+        Node<K> head = slots[level][slot];
+        slots[level][slot] = null;
+        return head;
+    }
+
+    private static class Node<K> {
+        private final K key;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.mephi.url.generator;
+
+public final class Base62 {
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final int BASE = ALPHABET.length;
+
+    private Base62() {
+    }
+
+    public static long capacity(int length) {
+        long capacity = 1;
+        for (int i = 0; i < length; i++) {
+            capacity *= BASE;
+        }
+        return capacity;
+    }
+
+    // Код фиксированной длины с ведущими нулями, чтобы соответствие числам было взаимно однозначным
+    public static String encode(long value, int length) {
+        char[] code = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Число не помещается в " + length + " символов Base62");
+        }
+        return new String(code);
+    }
+
+    public static long decode(String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            value = value * BASE + digit(code.charAt(i));
+        }
+        return value;
+    }
+
+    public static boolean isValid(String code) {
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        throw new IllegalArgumentException("Недопустимый символ Base62: " + c);
+    }
+}
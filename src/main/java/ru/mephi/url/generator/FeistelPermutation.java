@@ -0,0 +1,54 @@
+package ru.mephi.url.generator;
+
+// Ключевая перестановка чисел [0, domainSize): сеть Фейстеля над ближайшей степенью двойки
+// и "cycle walking" - результат, выпавший за границу диапазона, переставляется повторно
+public class FeistelPermutation {
+    private final long domainSize;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys;
+
+    public FeistelPermutation(long domainSize, long key, int rounds) {
+        this.domainSize = domainSize;
+        int bits = 64 - Long.numberOfLeadingZeros(domainSize - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        this.roundKeys = new long[rounds];
+        long seed = key;
+        for (int i = 0; i < rounds; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    public long permute(long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Число " + value + " вне диапазона перестановки");
+        }
+
+        long result = value;
+        do {
+            result = encrypt(result);
+        } while (result >= domainSize);
+        return result;
+    }
+
+    private long encrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long next = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    // Финализатор SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
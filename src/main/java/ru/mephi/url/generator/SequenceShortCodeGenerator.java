@@ -0,0 +1,122 @@
+package ru.mephi.url.generator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ReservedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@ConditionalOnProperty(prefix = "app.code-generator", name = "strategy", havingValue = "sequence")
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+    private final ShortURLRepository urlRepository;
+    private final ReservedCodeRepository codeRepository;
+    private final Shards shards;
+    private final int codeLength;
+    private final long capacity;
+    private final FeistelPermutation permutation;
+    private final long blockSize;
+    private final Lock lock = new ReentrantLock(); // Не synchronized: захват нового блока ходит в БД
+    private final Counter skipped;
+
+    private final Queue<String> block = new ArrayDeque<>();
+
+    public SequenceShortCodeGenerator(ShortURLRepository urlRepository, ReservedCodeRepository codeRepository,
+                                      Shards shards, ShortURLConfig config, MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.codeRepository = codeRepository;
+        this.shards = shards;
+        this.codeLength = ShortCodeGenerator.codeLength(config);
+        this.capacity = Base62.capacity(codeLength);
+        // По ключу и номерам блоков восстанавливаются все выданные коды, поэтому значения по умолчанию у него нет
+        Long secret = config.getCodeGenerator().getSecret();
+        if (secret == null) {
+            throw new IllegalStateException("Для стратегии sequence нужен ключ перестановки app.code-generator.secret " +
+                    "(переменная окружения APP_CODEGENERATOR_SECRET)");
+        }
+        this.permutation = new FeistelPermutation(capacity, secret, config.getCodeGenerator().getFeistelRounds());
+        this.blockSize = config.getCodeGenerator().getBlockSize();
+
+        this.skipped = Counter.builder("shortener.code.sequence.skipped")
+                .description("Коды блока последовательности, пропущенные как уже занятые")
+                .register(meterRegistry);
+    }
+
+    // Каждый узел забирает из последовательности БД номер блока и выдаёт коды внутри него без обращения к БД.
+    // Перестановка взаимно однозначна, поэтому разные номера всегда дают разные коды
+    @Override
+    public String nextCode() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> nextCodes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                codes.add(next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return codes;
+    }
+
+    private String next() {
+        while (block.isEmpty()) {
+            claimBlock();
+        }
+        return block.poll();
+    }
+
+    // Коды нового блока сверяются с уже занятыми одним запросом на блок: в БД могут быть ссылки со случайными кодами
+    // (стратегия random-pool, ссылки до перехода на последовательность) и коды, зарезервированные пулом
+    private void claimBlock() {
+        long start = urlRepository.nextCodeBlock() * blockSize;
+        if (start >= capacity) {
+            throw new IllegalStateException("Пространство коротких ссылок исчерпано");
+        }
+        long end = Math.min(start + blockSize, capacity);
+        List<String> codes = new ArrayList<>((int) (end - start));
+        for (long number = start; number < end; number++) {
+            codes.add(Base62.encode(permutation.permute(number), codeLength));
+        }
+
+        Set<String> taken = new HashSet<>(codeRepository.findTakenCodes(codes));
+        if (shards.isEnabled()) {
+            taken.addAll(findStoredCodes(codes));
+        }
+        if (!taken.isEmpty()) {
+            codes.removeIf(taken::contains);
+            skipped.increment(taken.size());
+        }
+        block.addAll(codes);
+    }
+
+    // Ссылки лежат в шардах своих кодов, а резервы - в основной БД
+    private List<String> findStoredCodes(Collection<String> codes) {
+        List<String> stored = new ArrayList<>();
+        shards.group(codes, code -> code).forEach((shard, shardCodes) ->
+                stored.addAll(shards.on(shard, () -> urlRepository.findExistingShortUrls(shardCodes))));
+        return stored;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.mephi.url.generator;
+
+import ru.mephi.url.config.ShortURLConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface ShortCodeGenerator {
+    int MAX_CODE_LENGTH = 6; // Столбец short_url - VARCHAR(6)
+
+    // Возвращает ещё не выданный код из app.code-generator.code-length символов Base62
+    String nextCode();
+
+    // Коды для пакетного создания ссылок; реализации могут выдавать их разом, без поштучных накладных расходов
+    default List<String> nextCodes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(nextCode());
+        }
+        return codes;
+    }
+
+    // Пути контроллера принимают только коды из 6 символов: более короткие коды нужны лишь для замеров
+    // на заполненном пространстве ключей, которое при 6 символах не засеять
+    static int codeLength(ShortURLConfig config) {
+        int codeLength = config.getCodeGenerator().getCodeLength();
+        if (codeLength < 1 || codeLength > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Длина кода app.code-generator.code-length должна быть от 1 до " + MAX_CODE_LENGTH);
+        }
+        return codeLength;
+    }
+}
@@ -0,0 +1,233 @@
+package ru.mephi.url.generator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ReservedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Резерв кода держится, пока код лежит в пуле: раз в час пул продлевает резервы своих кодов, а резервы, не продлённые
+// дольше app.code-pool.reservation-ttl (пул остановился аварийно или выданный код не попал в ссылку), удаляются.
+// При штатной остановке невыданные коды освобождаются сразу
+@Component
+@ConditionalOnProperty(prefix = "app.code-generator", name = "strategy", havingValue = "random-pool", matchIfMissing = true)
+@Slf4j
+public class ShortCodePool implements ShortCodeGenerator {
+    private final ReservedCodeRepository codeRepository;
+    private final ShortURLRepository urlRepository;
+    private final Shards shards;
+    private final TaskScheduler taskScheduler;
+    private final int codeLength;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int purgeChunkSize;
+    private final Duration reservationTtl;
+
+    private final Queue<String> codes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final Lock refillLock = new ReentrantLock(); // synchronized закрепил бы виртуальный поток на время запросов в БД
+    private final Counter collisions;
+    private final Counter retries;
+
+    public ShortCodePool(ReservedCodeRepository codeRepository, ShortURLRepository urlRepository, Shards shards,
+                         TaskScheduler taskScheduler, ShortURLConfig config, MeterRegistry meterRegistry) {
+        this.codeRepository = codeRepository;
+        this.urlRepository = urlRepository;
+        this.shards = shards;
+        this.taskScheduler = taskScheduler;
+        this.codeLength = ShortCodeGenerator.codeLength(config);
+        this.capacity = config.getCodePool().getCapacity();
+        this.lowWaterMark = config.getCodePool().getLowWaterMark();
+        this.purgeChunkSize = config.getCleanup().getChunkSize();
+        this.reservationTtl = config.getCodePool().getReservationTtl();
+
+        Gauge.builder("shortener.code.pool.depth", depth, AtomicInteger::get)
+                .description("Количество зарезервированных кодов, готовых к выдаче")
+                .register(meterRegistry);
+        this.collisions = Counter.builder("shortener.code.pool.collisions")
+                .description("Сгенерированные коды, которые оказались уже заняты")
+                .register(meterRegistry);
+        this.retries = Counter.builder("shortener.code.pool.retries")
+                .description("Повторные раунды генерации кодов из-за коллизий")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String nextCode() {
+        String code;
+        while ((code = codes.poll()) == null) {
+            refill(); // Пул опустел быстрее, чем успел пополниться в фоне
+        }
+
+        if (depth.decrementAndGet() < lowWaterMark) {
+            scheduleRefill();
+        }
+        return code;
+    }
+
+    @Override
+    public List<String> nextCodes(int count) {
+        List<String> result = new ArrayList<>(count);
+        while (result.size() < count) {
+            String code = codes.poll();
+            if (code == null) {
+                refill(); // Пакет больше, чем осталось в пуле
+                continue;
+            }
+            result.add(code);
+            depth.decrementAndGet();
+        }
+
+        if (depth.get() < lowWaterMark) {
+            scheduleRefill();
+        }
+        return result;
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRefill() {
+        if (refillScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                try {
+                    refill();
+                } catch (RuntimeException ex) {
+                    log.warn("Не удалось пополнить пул коротких ссылок: {}", ex.getMessage());
+                } finally {
+                    refillScheduled.set(false);
+                }
+            }, Instant.now());
+        }
+    }
+
+    public void refill() {
+        refillLock.lock();
+        try {
+            fill();
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private void fill() {
+        int missing;
+        while ((missing = capacity - depth.get()) > 0) {
+            Set<String> candidates = new HashSet<>();
+            while (candidates.size() < missing) {
+                candidates.add(RandomStringUtils.randomAlphanumeric(codeLength));
+            }
+
+            List<String> taken = new ArrayList<>(codeRepository.findTakenCodes(candidates));
+            if (shards.isEnabled()) {
+                taken.addAll(findStoredCodes(candidates));
+            }
+            taken.forEach(candidates::remove);
+            collisions.increment(taken.size());
+            if (!taken.isEmpty()) {
+                retries.increment(); // Вместо занятых кодов понадобится ещё один раунд
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            try {
+                codeRepository.reserveAll(candidates);
+            } catch (DuplicateKeyException ex) {
+                collisions.increment(); // Другой узел успел зарезервировать часть кодов, пробуем новый набор
+                retries.increment();
+                continue;
+            }
+
+            codes.addAll(candidates);
+            depth.addAndGet(candidates.size());
+        }
+    }
+
+    @Scheduled(cron = "0 30 * * * *") // В середине каждого часа
+    public void purgeReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> pooled = new ArrayList<>(codes);
+        for (int from = 0; from < pooled.size(); from += purgeChunkSize) {
+            codeRepository.touchAll(pooled.subList(from, Math.min(from + purgeChunkSize, pooled.size())), now);
+        }
+        int purged = shards.isEnabled() ? purgeStoredReservations() : codeRepository.deleteUsedReservations();
+        int expired = codeRepository.deleteReservedBefore(now.minus(reservationTtl));
+        log.info("Удалено {} резервов уже выданных коротких ссылок и {} брошенных резервов", purged, expired);
+    }
+
+    // Коды, оставшиеся в пуле, больше никто не выдаст
+    @PreDestroy
+    public void release() {
+        List<String> pooled = new ArrayList<>();
+        String code;
+        while ((code = codes.poll()) != null) {
+            pooled.add(code);
+            depth.decrementAndGet();
+        }
+        try {
+            for (int from = 0; from < pooled.size(); from += purgeChunkSize) {
+                codeRepository.deleteAllByIdInBatch(pooled.subList(from, Math.min(from + purgeChunkSize, pooled.size())));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Не удалось освободить {} невыданных кодов, их резервы истекут через {}: {}",
+                    pooled.size(), reservationTtl, ex.getMessage());
+        }
+    }
+
+    // Резервы лежат в основной БД, а ссылки - в шардах, поэтому одного запроса с EXISTS недостаточно:
+    // резервы обходятся порциями и сверяются с шардами своих кодов
+    private int purgeStoredReservations() {
+        int purged = 0;
+        String after = "";
+        List<String> chunk;
+        do {
+            chunk = codeRepository.findCodesAfter(after, Limit.of(purgeChunkSize));
+            List<String> stored = findStoredCodes(chunk);
+            if (!stored.isEmpty()) {
+                codeRepository.deleteAllByIdInBatch(stored);
+                purged += stored.size();
+            }
+            after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1);
+        } while (chunk.size() == purgeChunkSize);
+        return purged;
+    }
+
+    private List<String> findStoredCodes(Collection<String> codes) {
+        List<String> stored = new ArrayList<>();
+        shards.group(codes, code -> code).forEach((shard, shardCodes) ->
+                stored.addAll(shards.on(shard, () -> urlRepository.findExistingShortUrls(shardCodes))));
+        return stored;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.mephi.url.importer;
+
+import jakarta.validation.ValidationException;
+import ru.mephi.url.dto.ShortURLCreateDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Первая строка - заголовок со столбцами longUrl (обязателен), useLimit, ttlHours в любом порядке.
+// Значения с запятыми и кавычками берутся в двойные кавычки, кавычка внутри удваивается (RFC 4180)
+public class CsvRowReader implements ImportRowReader {
+    private final BufferedReader reader;
+    private final int longUrlColumn;
+    private final int useLimitColumn;
+    private final int ttlHoursColumn;
+    private long line;
+
+    public CsvRowReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        String header = reader.readLine();
+        line++;
+        if (header == null) {
+            throw new ValidationException("CSV без строки заголовка");
+        }
+
+        List<String> columns = split(header);
+        if (columns == null) {
+            throw new ValidationException("Незакрытая кавычка в заголовке CSV");
+        }
+        columns.replaceAll(String::trim);
+        this.longUrlColumn = columns.indexOf("longUrl");
+        this.useLimitColumn = columns.indexOf("useLimit");
+        this.ttlHoursColumn = columns.indexOf("ttlHours");
+        if (longUrlColumn < 0) {
+            throw new ValidationException("В заголовке CSV нет обязательного столбца longUrl");
+        }
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        String raw;
+        do {
+            raw = reader.readLine();
+            line++;
+        } while (raw != null && raw.isBlank());
+
+        if (raw == null) {
+            return null;
+        }
+        List<String> values = split(raw);
+        if (values == null) {
+            return ImportRow.malformed(line, raw, "Незакрытая кавычка в строке CSV");
+        }
+
+        ShortURLCreateDto requestDto = new ShortURLCreateDto();
+        requestDto.setLongUrl(value(values, longUrlColumn));
+        try {
+            requestDto.setUseLimit(integer(value(values, useLimitColumn)));
+        } catch (NumberFormatException ex) {
+            return ImportRow.malformed(line, raw, "Значение useLimit должно быть целым числом");
+        }
+        try {
+            requestDto.setTtlHours(integer(value(values, ttlHoursColumn)));
+        } catch (NumberFormatException ex) {
+            return ImportRow.malformed(line, raw, "Значение ttlHours должно быть целым числом");
+        }
+        return ImportRow.parsed(line, raw, requestDto);
+    }
+
+    private static String value(List<String> values, int column) {
+        if (column < 0 || column >= values.size() || values.get(column).isEmpty()) {
+            return null;
+        }
+        return values.get(column);
+    }
+
+    private static Integer integer(String value) {
+        return (value != null) ? Integer.valueOf(value.trim()) : null;
+    }
+
+    // null - если кавычка не закрыта до конца строки
+    static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.mephi.url.importer;
+
+import lombok.Getter;
+import ru.mephi.url.dto.ShortURLCreateDto;
+
+// Строка входного файла: разобранная ссылка или ошибка разбора, исходный текст нужен для файла отклонённых строк
+@Getter
+public class ImportRow {
+    private final long line;
+    private final String raw;
+    private final ShortURLCreateDto requestDto;
+    private final String error;
+
+    private ImportRow(long line, String raw, ShortURLCreateDto requestDto, String error) {
+        this.line = line;
+        this.raw = raw;
+        this.requestDto = requestDto;
+        this.error = error;
+    }
+
+    public static ImportRow parsed(long line, String raw, ShortURLCreateDto requestDto) {
+        return new ImportRow(line, raw, requestDto, null);
+    }
+
+    public static ImportRow malformed(long line, String raw, String error) {
+        return new ImportRow(line, raw, null, error);
+    }
+
+    public boolean isMalformed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.mephi.url.importer;
+
+import java.io.IOException;
+
+// Построчное чтение входного потока: в памяти только текущая строка
+public interface ImportRowReader {
+
+    // Следующая непустая строка или null в конце потока
+    ImportRow next() throws IOException;
+}
@@ -0,0 +1,38 @@
+package ru.mephi.url.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.mephi.url.dto.ShortURLCreateDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// Одна ссылка на строку: {"longUrl": "...", "useLimit": 10, "ttlHours": 24}
+public class NdjsonRowReader implements ImportRowReader {
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long line;
+
+    public NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        String raw;
+        do {
+            raw = reader.readLine();
+            line++;
+        } while (raw != null && raw.isBlank());
+
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return ImportRow.parsed(line, raw, objectMapper.readValue(raw, ShortURLCreateDto.class));
+        } catch (JsonProcessingException ex) {
+            return ImportRow.malformed(line, raw, "Строка не является корректным JSON-объектом ссылки");
+        }
+    }
+}
@@ -2,11 +2,16 @@ package ru.mephi.url.mapper;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.mephi.url.config.ShortURLConfig;
 import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLExportDto;
 import ru.mephi.url.dto.ShortURLResponseDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.ExportedURL;
+import ru.mephi.url.model.ListedURL;
 import ru.mephi.url.model.ShortURL;
 import ru.mephi.url.model.User;
 
@@ -19,8 +24,7 @@ public class ShortURLMapper {
 
     public ShortURLResponseDto entityToResponseDto(ShortURL url) {
         ShortURLResponseDto dto = new ShortURLResponseDto();
-        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        dto.setShortUrl(baseUrl + "/" + url.getShortUrl());
+        dto.setShortUrl(baseUrl() + "/" + url.getShortUrl());
 
         dto.setLongUrl(url.getLongUrl());
         dto.setCreatorId(url.getCreator().getId());
@@ -31,10 +35,37 @@ public class ShortURLMapper {
         return dto;
     }
 
+    // Переходы, ещё не записанные в БД, добавляются к сохранённому счётчику
+    public ShortURLResponseDto listedToResponseDto(ListedURL url, long pendingClicks) {
+        ShortURLResponseDto dto = new ShortURLResponseDto();
+        dto.setShortUrl(baseUrl() + "/" + url.getShortUrl());
+        dto.setLongUrl(url.getLongUrl());
+        dto.setCreatorId(url.getCreatorId());
+        dto.setUseCount((int) (url.getUseCount() + pendingClicks));
+        dto.setUseLimit(url.getUseLimit());
+        dto.setCreatedAt(url.getCreatedAt());
+        dto.setTtlHours(url.getTtlHours());
+        return dto;
+    }
+
+    public ShortURLExportDto exportedToDto(ExportedURL url) {
+        ShortURLExportDto dto = new ShortURLExportDto();
+        dto.setShortUrl(url.getShortUrl());
+        dto.setLongUrl(url.getLongUrl());
+        dto.setUseCount(url.getUseCount());
+        dto.setUseLimit(url.getUseLimit());
+        dto.setCreatedAt(url.getCreatedAt());
+        dto.setTtlHours(url.getTtlHours());
+        dto.setExpiresAt(url.getExpiresAt());
+        dto.setDeleted(url.getDeleted());
+        return dto;
+    }
+
     public ShortURL requestDtoToEntity(ShortURLCreateDto dto, User creator, String shortUrl) {
         ShortURL entity = new ShortURL();
         entity.setShortUrl(shortUrl);
         entity.setLongUrl(dto.getLongUrl());
+        entity.setLongUrlHash(ShortURL.hashLongUrl(dto.getLongUrl()));
         entity.setCreator(creator);
 
         entity.setUseCount(0);
@@ -44,14 +75,17 @@ public class ShortURLMapper {
         entity.setCreatedAt(LocalDateTime.now());
         Integer ttlHours = (dto.getTtlHours() != null) ? dto.getTtlHours() : config.getDefaults().getTtlHours();
         entity.setTtlHours(ttlHours);
+        entity.setExpiresAt(entity.getCreatedAt().plusHours(ttlHours));
 
         entity.setDeleted(false);
+        entity.setUpdatedAt(entity.getCreatedAt());
         return entity;
     }
 
     public void updateEntityFromRequestDto(ShortURL url, ShortURLUpdateDto dto) {
         if (dto.getLongUrl() != null) {
             url.setLongUrl(dto.getLongUrl());
+            url.setLongUrlHash(ShortURL.hashLongUrl(dto.getLongUrl()));
         }
 
         if (dto.getUseLimit() != null) {
@@ -60,6 +94,17 @@ public class ShortURLMapper {
 
         if (dto.getTtlHours() != null) {
             url.setTtlHours(dto.getTtlHours());
+            url.setExpiresAt(url.getCreatedAt().plusHours(dto.getTtlHours()));
+        }
+
+        url.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // Вне запроса сервлета (реактивный профиль) адрес сервиса берётся из app.base-url
+    private String baseUrl() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes) {
+            return ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
         }
+        return config.getBaseUrl();
     }
 }
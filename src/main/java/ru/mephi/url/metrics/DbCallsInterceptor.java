@@ -0,0 +1,75 @@
+package ru.mephi.url.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Количество обращений к БД за запрос по данным QueryCountingDataSource. Работа, вынесенная в фоновые потоки
+// (сброс счётчиков переходов, пополнение пула кодов), в запрос не попадает.
+// Счётчик запроса хранится в его атрибуте: асинхронная обработка (выгрузка через StreamingResponseBody) выполняется
+// в другом потоке и привязывает к нему тот же счётчик, а повторная ASYNC-диспетчеризация продолжает его, а не обнуляет.
+// Значение записывается один раз, в afterCompletion последней диспетчеризации
+@RequiredArgsConstructor
+public class DbCallsInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+    private static final String COUNTER_ATTRIBUTE = DbCallsInterceptor.class.getName() + ".counter";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(COUNTER_ATTRIBUTE) instanceof AtomicLong counter) {
+            QueryCountingDataSource.bind(counter);
+        } else {
+            QueryCountingDataSource.reset();
+            request.setAttribute(COUNTER_ATTRIBUTE, QueryCountingDataSource.current());
+        }
+        return true;
+    }
+
+    // Поток контейнера освобождается до конца обработки и не должен обнулить счётчик запроса следующим запросом
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountingDataSource.unbind();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(COUNTER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof AtomicLong counter) {
+            QueryCountingDataSource.bind(counter);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        QueryCountingDataSource.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        long count = (request.getAttribute(COUNTER_ATTRIBUTE) instanceof AtomicLong counter)
+                ? counter.get()
+                : QueryCountingDataSource.getCount();
+        DistributionSummary.builder("shortener.db.calls")
+                .description("Обращения к БД за один HTTP-запрос")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", (pattern != null) ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(count);
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            QueryCountingDataSource.unbind();
+        }
+    }
+}
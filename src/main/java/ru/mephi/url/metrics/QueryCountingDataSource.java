@@ -0,0 +1,75 @@
+package ru.mephi.url.metrics;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Считает SQL-операторы, подготовленные в текущем потоке, - и через JPA, и через JdbcTemplate.
+// Пакетное выполнение одного оператора считается одним обращением к БД. Счётчик запроса можно привязать к другому потоку
+// (bind), чтобы в него попала и асинхронная обработка запроса
+public class QueryCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+    private static final ThreadLocal<AtomicLong> COUNT = ThreadLocal.withInitial(AtomicLong::new);
+
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    public static long getCount() {
+        return COUNT.get().get();
+    }
+
+    public static void reset() {
+        COUNT.get().set(0);
+    }
+
+    public static AtomicLong current() {
+        return COUNT.get();
+    }
+
+    public static void bind(AtomicLong counter) {
+        COUNT.set(counter);
+    }
+
+    // Поток получает новый счётчик, привязанный остаётся у того, кто его сохранил
+    public static void unbind() {
+        COUNT.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection proxy(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> target;
+                    default -> {
+                        if (STATEMENT_METHODS.contains(method.getName())) {
+                            COUNT.get().incrementAndGet();
+                        }
+                        try {
+                            yield method.invoke(target, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    }
+                });
+    }
+}
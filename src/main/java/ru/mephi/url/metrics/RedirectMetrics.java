@@ -0,0 +1,29 @@
+package ru.mephi.url.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.model.AccessResult;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Component
+public class RedirectMetrics {
+    private final Map<AccessResult.Status, Counter> rejected = new EnumMap<>(AccessResult.Status.class);
+
+    public RedirectMetrics(MeterRegistry meterRegistry) {
+        for (AccessResult.Status status : AccessResult.Status.values()) {
+            if (status != AccessResult.Status.OK) {
+                rejected.put(status, Counter.builder("shortener.redirect.rejected")
+                        .description("Отклонённые переходы по коротким ссылкам")
+                        .tag("reason", status.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    public void rejected(AccessResult.Status status) {
+        rejected.get(status).increment();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.mephi.url.model;
+
+import lombok.Getter;
+
+// Итог перехода по короткой ссылке. Отказ - обычный результат, а не исключение: частые отклонённые переходы
+// не платят за создание исключения со стеком и его обработку в GlobalExceptionHandler
+@Getter
+public class AccessResult {
+    private final Status status;
+    private final String shortUrl;
+    private final String longUrl;
+
+    private AccessResult(Status status, String shortUrl, String longUrl) {
+        this.status = status;
+        this.shortUrl = shortUrl;
+        this.longUrl = longUrl;
+    }
+
+    public static AccessResult ok(RedirectEntry entry) {
+        return ok(entry.getShortUrl(), entry.getLongUrl());
+    }
+
+    public static AccessResult ok(String shortUrl, String longUrl) {
+        return new AccessResult(Status.OK, shortUrl, longUrl);
+    }
+
+    public static AccessResult notFound(String shortUrl) {
+        return new AccessResult(Status.NOT_FOUND, shortUrl, null);
+    }
+
+    public static AccessResult expired(String shortUrl) {
+        return new AccessResult(Status.EXPIRED, shortUrl, null);
+    }
+
+    public static AccessResult limitReached(String shortUrl) {
+        return new AccessResult(Status.LIMIT_REACHED, shortUrl, null);
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    // Текст ошибки для ответа - тот же, что у исключений валидатора и сервиса
+    public String getError() {
+        return switch (status) {
+            case OK -> null;
+            case NOT_FOUND -> notFoundMessage(shortUrl);
+            case EXPIRED -> expiredMessage(shortUrl);
+            case LIMIT_REACHED -> limitReachedMessage(shortUrl);
+        };
+    }
+
+    public static String notFoundMessage(String shortUrl) {
+        return "Короткая ссылка '" + shortUrl + "' не найдена";
+    }
+
+    public static String expiredMessage(String shortUrl) {
+        return "Время жизни ссылки '" + shortUrl + "' истекло";
+    }
+
+    public static String limitReachedMessage(String shortUrl) {
+        return "Лимит переходов по ссылке '" + shortUrl + "' исчерпан";
+    }
+
+    public enum Status {
+        OK, NOT_FOUND, EXPIRED, LIMIT_REACHED
+    }
+}
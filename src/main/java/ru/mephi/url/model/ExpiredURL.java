@@ -0,0 +1,18 @@
+package ru.mephi.url.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class ExpiredURL {
+    private final Long id;
+    private final String shortUrl;
+    private final String longUrl;
+    private final UUID creatorId;
+    private final Integer ttlHours;
+    private final LocalDateTime expiresAt;
+}
@@ -0,0 +1,20 @@
+package ru.mephi.url.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class ExportedURL {
+    private final Long id;
+    private final String shortUrl;
+    private final String longUrl;
+    private final Integer useCount;
+    private final Integer useLimit;
+    private final LocalDateTime createdAt;
+    private final Integer ttlHours;
+    private final LocalDateTime expiresAt;
+    private final Boolean deleted;
+}
@@ -0,0 +1,20 @@
+package ru.mephi.url.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class ListedURL {
+    private final Long id;
+    private final String shortUrl;
+    private final String longUrl;
+    private final UUID creatorId;
+    private final Integer useCount;
+    private final Integer useLimit;
+    private final LocalDateTime createdAt;
+    private final Integer ttlHours;
+}
@@ -0,0 +1,41 @@
+package ru.mephi.url.model;
+
+import jakarta.validation.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Позиция в списке ссылок пользователя: ключ (created_at, id) последней выданной ссылки. Клиенту отдаётся
+// непрозрачной строкой Base64, следующая страница начинается строго после этого ключа
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+    // Первая страница - от ключа, который больше любого существующего
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    public static PageCursor after(ListedURL url) {
+        return new PageCursor(url.getCreatedAt(), url.getId());
+    }
+
+    public String encode() {
+        String key = createdAt + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('_');
+            return new PageCursor(LocalDateTime.parse(key.substring(0, separator)),
+                    Long.parseLong(key.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new ValidationException("Некорректный курсор страницы '" + cursor + "'");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.mephi.url.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Getter
+public class RedirectEntry {
+    private final String shortUrl;
+    private final String longUrl;
+    private final UUID creatorId;
+    private final int useLimit;
+    private final LocalDateTime expiresAt;
+    private final AtomicInteger useCount;
+
+    public RedirectEntry(String shortUrl, String longUrl, UUID creatorId,
+                         Integer useCount, Integer useLimit, LocalDateTime expiresAt) {
+        this.shortUrl = shortUrl;
+        this.longUrl = longUrl;
+        this.creatorId = creatorId;
+        this.useLimit = useLimit;
+        this.expiresAt = expiresAt;
+        this.useCount = new AtomicInteger(useCount);
+    }
+
+    public int getUseCount() {
+        return useCount.get();
+    }
+
+    public void addUseCount(int delta) {
+        useCount.addAndGet(delta);
+    }
+
+    public void markLimitReached() {
+        useCount.accumulateAndGet(useLimit, Math::max);
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return now.isAfter(expiresAt);
+    }
+
+    public boolean isLimitReached() {
+        return useCount.get() >= useLimit;
+    }
+
+    public boolean tryIncrementUseCount() {
+        int current;
+        do {
+            current = useCount.get();
+            if (current >= useLimit) {
+                return false;
+            }
+        } while (!useCount.compareAndSet(current, current + 1));
+        return true;
+    }
+}
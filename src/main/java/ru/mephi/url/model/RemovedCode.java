@@ -0,0 +1,28 @@
+package ru.mephi.url.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "removed_codes", indexes = {
+        @Index(name = "idx_removed_codes_removed_at", columnList = "removed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RemovedCode {
+
+    @Id
+    private String code;
+
+    private LocalDateTime removedAt;
+}
@@ -0,0 +1,22 @@
+package ru.mephi.url.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reserved_codes", indexes = @Index(name = "idx_reserved_codes_reserved_at", columnList = "reserved_at"))
+@Getter
+@Setter
+public class ReservedCode {
+
+    @Id
+    private String code;
+
+    private LocalDateTime reservedAt;
+}
@@ -3,28 +3,55 @@ package ru.mephi.url.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "short_urls")
+@Table(name = "short_urls", indexes = {
+        @Index(name = "idx_short_urls_deleted_expires_at", columnList = "deleted, expires_at"),
+        @Index(name = "idx_short_urls_long_url_hash_creator", columnList = "long_url_hash, creator_id"),
+        @Index(name = "idx_short_urls_creator_id_id", columnList = "creator_id, id"),
+        @Index(name = "idx_short_urls_creator_created_at", columnList = "creator_id, deleted, created_at DESC, id DESC"),
+        @Index(name = "idx_short_urls_updated_at_id", columnList = "updated_at, id")
+})
+@DynamicUpdate // use_count накапливается отложенно и не должен перезаписываться при редактировании
 @Getter
 @Setter
 public class ShortURL {
 
+    // Последовательность с шагом 50 вместо IDENTITY: Hibernate заранее знает идентификаторы и может объединять INSERT в пакеты
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "short_urls_id_seq")
+    @SequenceGenerator(name = "short_urls_id_seq", sequenceName = "short_urls_id_seq", allocationSize = 50)
     private Long id;
 
     private String shortUrl;
     private String longUrl;
+    private Long longUrlHash;
     private Integer useCount;
     private Integer useLimit;
     private LocalDateTime createdAt;
     private Integer ttlHours;
+    private LocalDateTime expiresAt;
     private Boolean deleted;
+    private LocalDateTime updatedAt; // Любое изменение строки, кроме счётчика переходов: по нему снимок переходов узнаёт об изменениях
 
     @ManyToOne
     @JoinColumn(name = "creator_id", nullable = false)
     private User creator;
+
+    // Первые 8 байт SHA-256 от UTF-8 представления; совпадает с CAST(SUBSTRING(HASH('SHA-256', long_url), 1, 8) AS BIGINT) в H2
+    public static long hashLongUrl(String longUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(longUrl.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); // SHA-256 обязан поддерживаться любой реализацией JVM
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package ru.mephi.url.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class UpdatedURL {
+    private final Long id;
+    private final String shortUrl;
+    private final LocalDateTime updatedAt;
+}
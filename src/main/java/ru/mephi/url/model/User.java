@@ -2,9 +2,13 @@ package ru.mephi.url.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 import java.util.UUID;
 
@@ -12,8 +16,30 @@ import java.util.UUID;
 @Table(name = "users")
 @Getter
 @Setter
-public class User {
+public class User implements Persistable<UUID> {
 
     @Id
     private UUID id;
+
+    // Идентификатор назначает приложение, поэтому без этого признака save() выполнял бы merge с лишним SELECT
+    @Transient
+    private boolean created;
+
+    public static User created(UUID id) {
+        User user = new User();
+        user.setId(id);
+        user.setCreated(true);
+        return user;
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        created = false;
+    }
 }
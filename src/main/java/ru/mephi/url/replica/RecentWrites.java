@@ -0,0 +1,59 @@
+package ru.mephi.url.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mephi.url.config.ShortURLConfig;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Коды, изменённые этим экземпляром за последние app.replica.max-lag: реплика могла ещё не получить изменение,
+// поэтому такие коды читаются из основной БД. Изменения других экземпляров здесь не видны - для них max-lag
+// должен покрывать обычное отставание реплик. Без реплик коды не запоминаются
+@Component
+public class RecentWrites {
+    private final Cache<String, Boolean> codes;
+    private final TransactionTemplate primaryReads;
+
+    public RecentWrites(PlatformTransactionManager transactionManager, ShortURLConfig config) {
+        ShortURLConfig.Replica replica = config.getReplica();
+        this.codes = replica.isEnabled()
+                ? Caffeine.newBuilder().expireAfterWrite(replica.getMaxLag()).build()
+                : null;
+        // Чтение внутри пишущей транзакции не получает признак readOnly и уходит в основную БД
+        this.primaryReads = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(String shortUrl) {
+        recordAll(List.of(shortUrl));
+    }
+
+    // Окно отсчитывается заново после коммита: долгая транзакция не должна съедать время на репликацию
+    public void recordAll(Collection<String> shortUrls) {
+        if (codes == null) {
+            return;
+        }
+        shortUrls.forEach(code -> codes.put(code, Boolean.TRUE));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    shortUrls.forEach(code -> codes.put(code, Boolean.TRUE));
+                }
+            });
+        }
+    }
+
+    public <T> T read(String shortUrl, Supplier<T> query) {
+        if (codes != null && codes.getIfPresent(shortUrl) != null) {
+            return primaryReads.execute(status -> query.get());
+        }
+        return query.get();
+    }
+}
@@ -0,0 +1,46 @@
+package ru.mephi.url.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Запросы реактивного пути перенаправления к той же таблице short_urls через R2DBC
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveShortURLRepository {
+    private final DatabaseClient databaseClient;
+
+    public Mono<RedirectEntry> findRedirectEntry(String shortUrl) {
+        return databaseClient.sql("SELECT short_url, long_url, creator_id, use_count, use_limit, expires_at " +
+                        "FROM short_urls WHERE short_url = :shortUrl")
+                .bind("shortUrl", shortUrl)
+                .map(row -> new RedirectEntry(
+                        row.get("short_url", String.class),
+                        row.get("long_url", String.class),
+                        row.get("creator_id", UUID.class),
+                        row.get("use_count", Integer.class),
+                        row.get("use_limit", Integer.class),
+                        row.get("expires_at", LocalDateTime.class)))
+                .one();
+    }
+
+    // Тот же условный UPDATE, что и в ShortURLRepository.incrementUseCountIfAllowed
+    public Mono<Long> incrementUseCountIfAllowed(String shortUrl, LocalDateTime now) {
+        return databaseClient.sql("UPDATE short_urls SET use_count = use_count + 1 " +
+                        "WHERE short_url = :shortUrl " +
+                        "AND use_count < use_limit " +
+                        "AND deleted = false " +
+                        "AND expires_at >= :now")
+                .bind("shortUrl", shortUrl)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.mephi.url.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mephi.url.model.RemovedCode;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RemovedCodeRepository extends JpaRepository<RemovedCode, String> {
+
+    @Query("SELECT r FROM RemovedCode r WHERE r.removedAt >= :since")
+    List<RemovedCode> findRemovedSince(LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RemovedCode r WHERE r.removedAt < :before")
+    int deleteRemovedBefore(LocalDateTime before);
+}
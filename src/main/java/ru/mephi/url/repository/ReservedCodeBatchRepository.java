@@ -0,0 +1,8 @@
+package ru.mephi.url.repository;
+
+import java.util.Collection;
+
+public interface ReservedCodeBatchRepository {
+
+    void reserveAll(Collection<String> codes);
+}
@@ -0,0 +1,26 @@
+package ru.mephi.url.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ReservedCodeBatchRepositoryImpl implements ReservedCodeBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Резерв фиксируется независимо от транзакции, в которой понадобился код.
+    // Если часть кодов успел занять другой узел, пакет откатывается целиком (DuplicateKeyException)
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void reserveAll(Collection<String> codes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = codes.stream().map(code -> new Object[]{code, now}).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO reserved_codes (code, reserved_at) VALUES (?, ?)", args);
+    }
+}
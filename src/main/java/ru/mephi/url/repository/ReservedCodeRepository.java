@@ -0,0 +1,44 @@
+package ru.mephi.url.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mephi.url.model.ReservedCode;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ReservedCodeRepository extends JpaRepository<ReservedCode, String>, ReservedCodeBatchRepository {
+
+    @Query(value = "SELECT code FROM reserved_codes WHERE code IN (:codes) " +
+            "UNION " +
+            "SELECT short_url FROM short_urls WHERE short_url IN (:codes)",
+            nativeQuery = true)
+    List<String> findTakenCodes(Collection<String> codes);
+
+    @Query("SELECT r.code FROM ReservedCode r WHERE r.code > :afterCode ORDER BY r.code")
+    List<String> findCodesAfter(String afterCode, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM reserved_codes r " +
+            "WHERE EXISTS (SELECT 1 FROM short_urls s WHERE s.short_url = r.code)",
+            nativeQuery = true)
+    int deleteUsedReservations();
+
+    // Резервы кодов, которые ещё лежат в пуле, продлеваются, чтобы их не приняли за брошенные
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReservedCode r SET r.reservedAt = :now WHERE r.code IN :codes")
+    int touchAll(Collection<String> codes, LocalDateTime now);
+
+    // Резервы, которые никто не продлевал: пул, в котором лежали коды, остановился аварийно,
+    // или код был выдан, но ссылка с ним не сохранилась
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReservedCode r WHERE r.reservedAt < :before")
+    int deleteReservedBefore(LocalDateTime before);
+}
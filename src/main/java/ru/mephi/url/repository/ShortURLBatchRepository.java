@@ -0,0 +1,8 @@
+package ru.mephi.url.repository;
+
+import java.util.Map;
+
+public interface ShortURLBatchRepository {
+
+    void incrementUseCounts(Map<String, Integer> deltas);
+}
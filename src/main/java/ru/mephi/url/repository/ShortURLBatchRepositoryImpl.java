@@ -0,0 +1,22 @@
+package ru.mephi.url.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ShortURLBatchRepositoryImpl implements ShortURLBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void incrementUseCounts(Map<String, Integer> deltas) {
+        List<Object[]> args = deltas.entrySet().stream()
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE short_urls SET use_count = use_count + ? WHERE short_url = ?", args);
+    }
+}
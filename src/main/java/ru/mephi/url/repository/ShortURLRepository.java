@@ -1,32 +1,163 @@
 package ru.mephi.url.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mephi.url.model.ExpiredURL;
+import ru.mephi.url.model.ExpiryEntry;
+import ru.mephi.url.model.ExportedURL;
+import ru.mephi.url.model.ListedURL;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.model.UpdatedURL;
 import ru.mephi.url.model.User;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
-public interface ShortURLRepository extends JpaRepository<ShortURL, String> {
+public interface ShortURLRepository extends JpaRepository<ShortURL, String>, ShortURLBatchRepository {
 
     @Query("SELECT s FROM ShortURL s JOIN FETCH s.creator WHERE s.shortUrl = :shortUrl")
     Optional<ShortURL> findByShortUrl(String shortUrl);
 
-    @Query("SELECT CASE WHEN COUNT(s) > 0 THEN true ELSE false END FROM ShortURL s WHERE s.shortUrl = :shortUrl")
-    boolean existsByShortUrl(String shortUrl);
+    @Query("SELECT new ru.mephi.url.model.RedirectEntry(" +
+            "s.shortUrl, s.longUrl, s.creator.id, s.useCount, s.useLimit, s.expiresAt) " +
+            "FROM ShortURL s WHERE s.shortUrl = :shortUrl")
+    @Transactional(readOnly = true) // Вне пишущей транзакции читается с реплики
+    Optional<RedirectEntry> findRedirectEntry(String shortUrl);
 
+    // Счётчик переходов к записи из снимка переходов: переходы не сдвигают updated_at, и снимок о них не знает
+    @Query("SELECT s.useCount FROM ShortURL s WHERE s.shortUrl = :shortUrl")
+    @Transactional(readOnly = true)
+    Optional<Integer> findUseCount(String shortUrl);
+
+    // Проверка лимита и срока жизни вместе с инкрементом одним запросом: 1 - переход разрешён, 0 - отклонён
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE short_urls SET use_count = use_count + 1 " +
+            "WHERE short_url = :shortUrl " +
+            "AND use_count < use_limit " +
+            "AND deleted = false " +
+            "AND expires_at >= :now",
+            nativeQuery = true)
+    int incrementUseCountIfAllowed(String shortUrl, LocalDateTime now);
+
+    // Точечный поиск по индексу (creator_id, long_url_hash), сравнение long_url отсекает коллизии хэша
     @Query("SELECT CASE WHEN COUNT(s) > 0 THEN true ELSE false END " +
             "FROM ShortURL s " +
             "WHERE s.creator = :creator " +
+            "AND s.longUrlHash = :longUrlHash " +
             "AND s.longUrl = :longUrl " +
             "AND s.deleted = false")
-    boolean existsByLongUrlForUser(User creator, String longUrl);
+    boolean existsByLongUrlForUser(User creator, long longUrlHash, String longUrl);
 
-    @Query(value = "SELECT * FROM short_urls " +
-            "WHERE deleted = false " +
-            "AND DATEADD('HOUR', ttl_hours, created_at) < :now",
-            nativeQuery = true)
-    List<ShortURL> findExpiredUrls(LocalDateTime now);
+    // Проверка дубликатов для целого пакета одним запросом по тому же индексу; коллизии хэша отсекает вызывающий код
+    @Query("SELECT s.longUrl " +
+            "FROM ShortURL s " +
+            "WHERE s.creator = :creator " +
+            "AND s.longUrlHash IN :longUrlHashes " +
+            "AND s.deleted = false")
+    List<String> findLongUrlsByHashes(User creator, Collection<Long> longUrlHashes);
+
+    @Query(value = "SELECT NEXT VALUE FOR short_code_block_seq", nativeQuery = true)
+    long nextCodeBlock();
+
+    // Очередная порция просроченных ссылок после (afterExpiresAt, afterId): диапазонный поиск по индексу (deleted, expires_at)
+    @Query("SELECT new ru.mephi.url.model.ExpiredURL(" +
+            "s.id, s.shortUrl, s.longUrl, s.creator.id, s.ttlHours, s.expiresAt) " +
+            "FROM ShortURL s " +
+            "WHERE s.deleted = false " +
+            "AND s.expiresAt < :now " +
+            "AND (s.expiresAt > :afterExpiresAt OR (s.expiresAt = :afterExpiresAt AND s.id > :afterId)) " +
+            "ORDER BY s.expiresAt, s.id")
+    List<ExpiredURL> findExpiredChunk(LocalDateTime now, LocalDateTime afterExpiresAt, long afterId, Limit limit);
+
+    @Query("SELECT new ru.mephi.url.model.ExpiredURL(" +
+            "s.id, s.shortUrl, s.longUrl, s.creator.id, s.ttlHours, s.expiresAt) " +
+            "FROM ShortURL s " +
+            "WHERE s.shortUrl IN :shortUrls " +
+            "AND s.deleted = false " +
+            "AND s.expiresAt < :now")
+    List<ExpiredURL> findExpiredByShortUrls(Collection<String> shortUrls, LocalDateTime now);
+
+    // Очередная порция ссылок пользователя после afterId, включая помеченные удалёнными: диапазонный поиск по индексу
+    // (creator_id, id). Сортировка по обоим столбцам индекса, иначе H2 не берёт порядок из него и сортирует все
+    // оставшиеся ссылки пользователя ради каждой порции
+    @Query("SELECT new ru.mephi.url.model.ExportedURL(" +
+            "s.id, s.shortUrl, s.longUrl, s.useCount, s.useLimit, s.createdAt, s.ttlHours, s.expiresAt, s.deleted) " +
+            "FROM ShortURL s " +
+            "WHERE s.creator.id = :creatorId " +
+            "AND s.id > :afterId " +
+            "ORDER BY s.creator.id, s.id")
+    @Transactional(readOnly = true)
+    List<ExportedURL> findCreatorChunk(UUID creatorId, long afterId, Limit limit);
+
+    // Страница активных ссылок пользователя строго после курсора (новые первыми). Условие created_at <= задаёт начало
+    // диапазона в индексе (creator_id, deleted, created_at DESC, id DESC), поэтому любая страница стоит как первая
+    @Query("SELECT new ru.mephi.url.model.ListedURL(" +
+            "s.id, s.shortUrl, s.longUrl, s.creator.id, s.useCount, s.useLimit, s.createdAt, s.ttlHours) " +
+            "FROM ShortURL s " +
+            "WHERE s.creator.id = :creatorId " +
+            "AND s.deleted = false " +
+            "AND s.createdAt <= :beforeCreatedAt " +
+            "AND (s.createdAt < :beforeCreatedAt OR s.id < :beforeId) " +
+            "ORDER BY s.creator.id, s.deleted, s.createdAt DESC, s.id DESC")
+    List<ListedURL> findCreatorPage(UUID creatorId, LocalDateTime beforeCreatedAt, long beforeId, Limit limit);
+
+    @Query("SELECT new ru.mephi.url.model.ExpiryEntry(s.id, s.shortUrl, s.expiresAt) " +
+            "FROM ShortURL s " +
+            "WHERE s.deleted = false " +
+            "AND s.id > :afterId " +
+            "ORDER BY s.id")
+    List<ExpiryEntry> findActiveExpiries(long afterId, Limit limit);
+
+    // Все коды, включая помеченные удалёнными, порциями по уникальному индексу short_url
+    @Query("SELECT s.shortUrl FROM ShortURL s WHERE s.shortUrl > :afterShortUrl ORDER BY s.shortUrl")
+    List<String> findShortUrlsAfter(String afterShortUrl, Limit limit);
+
+    // Действующие ссылки порциями по уникальному индексу short_url - для снимка переходов
+    @Query("SELECT new ru.mephi.url.model.RedirectEntry(" +
+            "s.shortUrl, s.longUrl, s.creator.id, s.useCount, s.useLimit, s.expiresAt) " +
+            "FROM ShortURL s " +
+            "WHERE s.shortUrl > :afterShortUrl " +
+            "AND s.deleted = false " +
+            "AND s.expiresAt >= :now " +
+            "ORDER BY s.shortUrl")
+    List<RedirectEntry> findActiveRedirectEntriesAfter(String afterShortUrl, LocalDateTime now, Limit limit);
+
+    // Очередная порция ссылок, изменённых после (afterUpdatedAt, afterId): диапазонный поиск по индексу (updated_at, id).
+    // Обход начинается с (момент, 0) и включает ссылки, изменённые ровно в этот момент
+    @Query("SELECT new ru.mephi.url.model.UpdatedURL(s.id, s.shortUrl, s.updatedAt) " +
+            "FROM ShortURL s " +
+            "WHERE s.updatedAt >= :afterUpdatedAt " +
+            "AND (s.updatedAt > :afterUpdatedAt OR s.id > :afterId) " +
+            "ORDER BY s.updatedAt, s.id")
+    List<UpdatedURL> findUpdatedChunk(LocalDateTime afterUpdatedAt, long afterId, Limit limit);
+
+    @Query("SELECT s.shortUrl FROM ShortURL s WHERE s.shortUrl IN :shortUrls")
+    List<String> findExistingShortUrls(Collection<String> shortUrls);
+
+    // Блокирует до конца транзакции строки порции, которые всё ещё просрочены и не удалены. Ссылку, срок которой
+    // успели продлить после чтения порции или которую уже удалил параллельный обход, блокировка не берёт
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s.id FROM ShortURL s " +
+            "WHERE s.id IN :ids " +
+            "AND s.deleted = false " +
+            "AND s.expiresAt < :now")
+    List<Long> lockExpired(Collection<Long> ids, LocalDateTime now);
+
+    // Условие на expires_at не даёт удалить ссылку, срок жизни которой успели продлить после чтения порции
+    @Modifying
+    @Query("UPDATE ShortURL s SET s.deleted = true, s.updatedAt = :now " +
+            "WHERE s.id IN :ids " +
+            "AND s.deleted = false " +
+            "AND s.expiresAt < :now")
+    int markDeleted(Collection<Long> ids, LocalDateTime now);
 }
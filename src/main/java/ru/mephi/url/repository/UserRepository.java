@@ -1,9 +1,16 @@
 package ru.mephi.url.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.mephi.url.model.User;
 
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
+
+    // Копия владельца в шарде для внешнего ключа short_urls.creator_id; существующая строка не меняется
+    @Modifying
+    @Query(value = "MERGE INTO users (id) KEY (id) VALUES (:id)", nativeQuery = true)
+    void insertIfAbsent(UUID id);
 }
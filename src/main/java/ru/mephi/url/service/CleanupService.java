@@ -1,37 +1,165 @@
 package ru.mephi.url.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.mephi.url.model.ShortURL;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mephi.url.cache.RedirectCache;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.ExpiredURL;
 import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CleanupService {
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final ShortURLRepository urlRepository;
+    private final RedirectCache redirectCache;
+    private final RedirectStore redirectStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final int chunkSize;
+    private final Duration timeBudget;
+    private final Timer scheduledRuns;
+    private final Timer expiryRuns;
+    private final Counter scheduledRows;
+    private final Counter expiryRows;
+
+    public CleanupService(ShortURLRepository urlRepository, RedirectCache redirectCache, RedirectStore redirectStore,
+                          TransactionTemplate transactionTemplate, Shards shards,
+                          ShortURLConfig config, MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.redirectCache = redirectCache;
+        this.redirectStore = redirectStore;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+        this.chunkSize = config.getCleanup().getChunkSize();
+        this.timeBudget = config.getCleanup().getTimeBudget();
+
+        // trigger=scheduled - ежечасный обход, trigger=expiry - удаление по колесу таймеров
+        this.scheduledRuns = runTimer(meterRegistry, "scheduled");
+        this.expiryRuns = runTimer(meterRegistry, "expiry");
+        this.scheduledRows = rowCounter(meterRegistry, "scheduled");
+        this.expiryRows = rowCounter(meterRegistry, "expiry");
+    }
 
+    // Ссылки удаляются в момент истечения через ExpiryScheduler, ежечасный обход лишь подбирает пропущенные им.
+    // Просроченные ссылки обходятся порциями по ключу (expires_at, id), каждая порция - отдельная короткая транзакция
+    // с блокировкой ещё просроченных строк и одним UPDATE. Если время на запуск исчерпано, оставшиеся ссылки будут удалены при следующем запуске.
+    // Шарды обходятся одновременно, у каждого свой ключ обхода и общий срок
     @Scheduled(cron = "0 0 * * * *") // В начале каждого часа
-    @Transactional
     public void cleanupExpiredUrls() {
-        LocalDateTime now = LocalDateTime.now();
-        List<ShortURL> expiredUrls = urlRepository.findExpiredUrls(now);
+        scheduledRuns.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            long deadline = System.nanoTime() + timeBudget.toNanos();
+            shards.parallel(shard -> deleteExpiredChunks(shard, now, deadline));
+        });
+    }
+
+    private int deleteExpiredChunks(int shard, LocalDateTime now, long deadline) {
+        LocalDateTime afterExpiresAt = KEYSET_START;
+        long afterId = 0;
+        int deleted = 0;
+        List<ExpiredURL> chunk;
+        do {
+            LocalDateTime chunkAfterExpiresAt = afterExpiresAt;
+            long chunkAfterId = afterId;
+            Chunk result = shards.on(shard, () -> transactionTemplate.execute(status ->
+                    deleteChunk(now, chunkAfterExpiresAt, chunkAfterId)));
+            chunk = result.read();
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            result.deleted().forEach(this::sendExpirationNotification);
+            deleted += result.deleted().size();
+            scheduledRows.increment(result.deleted().size());
+
+            ExpiredURL last = chunk.get(chunk.size() - 1);
+            afterExpiresAt = last.getExpiresAt();
+            afterId = last.getId();
+        } while (chunk.size() == chunkSize && System.nanoTime() < deadline);
+
+        if (chunk.size() == chunkSize) {
+            log.warn("Очистка остановлена по истечении {}: удалено {} ссылок, остальные будут удалены при следующем запуске",
+                    timeBudget, deleted);
+        }
+        return deleted;
+    }
 
-        for (ShortURL url : expiredUrls) {
-            url.setDeleted(true);
-            sendExpirationNotification(url);
+    // Удаление ссылок, чей срок истёк по данным ExpiryScheduler; срок повторно проверяется по БД
+    public void expireUrls(List<String> shortUrls) {
+        expiryRuns.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            shards.group(shortUrls, code -> code).forEach((shard, shardCodes) -> {
+                for (int from = 0; from < shardCodes.size(); from += chunkSize) {
+                    List<String> codes = shardCodes.subList(from, Math.min(from + chunkSize, shardCodes.size()));
+                    List<ExpiredURL> expired = shards.on(shard, () -> transactionTemplate.execute(status ->
+                            markDeleted(urlRepository.findExpiredByShortUrls(codes, now), now)));
+                    expired.forEach(this::sendExpirationNotification);
+                    expiryRows.increment(expired.size());
+                }
+            });
+        });
+    }
+
+    private Chunk deleteChunk(LocalDateTime now, LocalDateTime afterExpiresAt, long afterId) {
+        List<ExpiredURL> chunk = urlRepository.findExpiredChunk(now, afterExpiresAt, afterId, Limit.of(chunkSize));
+        return new Chunk(chunk, markDeleted(chunk, now));
+    }
+
+    // Между чтением и удалением срок ссылки могут продлить, а ссылку - удалить параллельным обходом (колесо таймеров
+    // и ежечасный обход читают одни и те же строки). Поэтому строки, которые ещё просрочены, сначала блокируются,
+    // и уведомления, счётчики и вытеснение из кэша достаются только действительно удалённым ссылкам
+    private List<ExpiredURL> markDeleted(List<ExpiredURL> urls, LocalDateTime now) {
+        if (urls.isEmpty()) {
+            return urls;
+        }
+        Set<Long> locked = new HashSet<>(urlRepository.lockExpired(urls.stream().map(ExpiredURL::getId).toList(), now));
+        List<ExpiredURL> deleted = urls.stream().filter(url -> locked.contains(url.getId())).toList();
+        if (!deleted.isEmpty()) {
+            urlRepository.markDeleted(locked, now);
+            List<String> shortUrls = deleted.stream().map(ExpiredURL::getShortUrl).toList();
+            redirectCache.invalidateAll(shortUrls);
+            redirectStore.evicted(shortUrls);
         }
+        return deleted;
+    }
+
+    // Порция, прочитанная для ключа обхода, и удалённые из неё ссылки
+    private record Chunk(List<ExpiredURL> read, List<ExpiredURL> deleted) {
+    }
+
+    private static Timer runTimer(MeterRegistry meterRegistry, String trigger) {
+        return Timer.builder("shortener.cleanup.duration")
+                .description("Длительность удаления просроченных ссылок")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String trigger) {
+        return Counter.builder("shortener.cleanup.rows")
+                .description("Удалённые просроченные ссылки")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
     }
 
-    private void sendExpirationNotification(ShortURL url) {
+    private void sendExpirationNotification(ExpiredURL url) {
         log.info("Пользователь с ID {} - время жизни ({} ч) ссылки '{}' (перенаправление на {}) истекло.",
-                url.getCreator().getId(),
+                url.getCreatorId(),
                 url.getTtlHours(),
                 url.getShortUrl(),
                 url.getLongUrl());
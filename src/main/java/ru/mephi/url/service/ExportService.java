@@ -0,0 +1,75 @@
+package ru.mephi.url.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.mapper.ShortURLMapper;
+import ru.mephi.url.model.ExportedURL;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+
+// Выгрузка всех ссылок пользователя в NDJSON потоком: порции по app.export.chunk-size читаются по ключу (creator_id, id)
+// и сразу пишутся в ответ, так что в памяти не больше одной порции независимо от числа ссылок. Каждая порция -
+// отдельный запрос без общей транзакции: ссылки, созданные во время выгрузки, попадут в неё, если их id больше прочитанных.
+// При шардировании шарды выгружаются по очереди, и порядок создания сохраняется только внутри шарда
+@Service
+@Slf4j
+public class ExportService {
+    private final ShortURLRepository urlRepository;
+    private final UserService userService;
+    private final ShortURLMapper urlMapper;
+    private final Shards shards;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public ExportService(ShortURLRepository urlRepository, UserService userService, ShortURLMapper urlMapper,
+                         Shards shards, ObjectMapper objectMapper, ShortURLConfig config) {
+        this.urlRepository = urlRepository;
+        this.userService = userService;
+        this.urlMapper = urlMapper;
+        this.shards = shards;
+        this.objectMapper = objectMapper;
+        this.chunkSize = config.getExport().getChunkSize();
+    }
+
+    // Пользователь проверяется сразу, чтобы ответить 404 до начала потока; сами строки пишутся позже, в потоке ответа
+    public StreamingResponseBody exportLinks(UUID userId) {
+        userService.getUserById(userId);
+        return out -> writeLinks(userId, out);
+    }
+
+    private void writeLinks(UUID userId, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        long exported = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            long afterId = 0;
+            List<ExportedURL> chunk;
+            do {
+                long chunkAfterId = afterId;
+                chunk = shards.on(shard,
+                        () -> urlRepository.findCreatorChunk(userId, chunkAfterId, Limit.of(chunkSize)));
+                for (ExportedURL url : chunk) {
+                    buffered.write(objectMapper.writeValueAsBytes(urlMapper.exportedToDto(url)));
+                    buffered.write('\n');
+                }
+                buffered.flush(); // Клиент получает каждую порцию, не дожидаясь конца выгрузки
+
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).getId();
+                    exported += chunk.size();
+                }
+            } while (chunk.size() == chunkSize);
+        }
+
+        log.info("Выгрузка ссылок пользователя с ID {} завершена: {} ссылок", userId, exported);
+    }
+}
@@ -0,0 +1,164 @@
+package ru.mephi.url.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.dto.ImportRejectedRowDto;
+import ru.mephi.url.dto.ImportReportDto;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
+import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.importer.CsvRowReader;
+import ru.mephi.url.importer.ImportRow;
+import ru.mephi.url.importer.ImportRowReader;
+import ru.mephi.url.importer.NdjsonRowReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Импорт ссылок из NDJSON или CSV потоком: строки читаются по одной, а создаются порциями через
+// ShortURLService.createShortUrls, каждая порция - отдельная транзакция. В памяти не больше одной порции,
+// отклонённые строки сразу дописываются в файл в app.bulk-import.rejected-dir
+@Service
+@Slf4j
+public class ImportService {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ShortURLService urlService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final Path rejectedDir;
+
+    public ImportService(ShortURLService urlService, UserService userService, ObjectMapper objectMapper,
+                         EntityManager entityManager, ShortURLConfig config) {
+        this.urlService = urlService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        // Порция - один пакетный вызов, поэтому не больше допустимого размера пакета
+        this.chunkSize = Math.min(config.getBulkImport().getChunkSize(), config.getBatch().getMaxSize());
+        this.rejectedDir = Path.of(config.getBulkImport().getRejectedDir());
+    }
+
+    public ImportReportDto importLinks(UUID userId, InputStream body, MediaType contentType) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        ImportRowReader rows = rowReader(reader, contentType);
+        // Все ссылки импорта достаются одному пользователю, а не новому на каждую порцию
+        UUID ownerId = (userId != null) ? userService.getUserById(userId).getId() : userService.createUser().getId();
+
+        ImportReportDto report = new ImportReportDto();
+        try (RejectedRowsWriter rejected = new RejectedRowsWriter()) {
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                report.setRows(report.getRows() + 1);
+                if (row.isMalformed()) {
+                    rejected.write(row, row.getError(), null);
+                    report.setRejected(report.getRejected() + 1);
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(ownerId, chunk, report, rejected);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(ownerId, chunk, report, rejected);
+            }
+            report.setRejectedFile(rejected.getPath());
+        }
+
+        log.info("Импорт завершён для пользователя с ID {}: строк {}, создано ссылок {}, отклонено {}{}",
+                ownerId, report.getRows(), report.getImported(), report.getRejected(),
+                (report.getRejectedFile() != null) ? ", отклонённые строки - в " + report.getRejectedFile() : "");
+        return report;
+    }
+
+    private void importChunk(UUID ownerId, List<ImportRow> chunk, ImportReportDto report,
+                             RejectedRowsWriter rejected) throws IOException {
+        List<ShortURLCreateDto> requestDtos = chunk.stream().map(ImportRow::getRequestDto).toList();
+        List<ShortURLBatchItemDto> results = urlService.createShortUrls(ownerId, requestDtos);
+
+        for (int i = 0; i < results.size(); i++) {
+            ShortURLBatchItemDto result = results.get(i);
+            if (result.getStatus() == HttpStatus.CREATED.value()) {
+                report.setImported(report.getImported() + 1);
+            } else {
+                rejected.write(chunk.get(i), result.getError(), result.getErrors());
+                report.setRejected(report.getRejected() + 1);
+            }
+        }
+        chunk.clear();
+        // При open-in-view контекст персистентности живёт весь запрос и копил бы все импортированные ссылки
+        entityManager.clear();
+
+        log.info("Импорт: обработано строк {}, создано ссылок {}, отклонено {}",
+                report.getRows(), report.getImported(), report.getRejected());
+    }
+
+    private ImportRowReader rowReader(BufferedReader reader, MediaType contentType) throws IOException {
+        if (contentType != null && contentType.isCompatibleWith(NDJSON)) {
+            return new NdjsonRowReader(reader, objectMapper);
+        }
+        if (contentType != null && contentType.isCompatibleWith(CSV)) {
+            return new CsvRowReader(reader);
+        }
+        throw new ValidationException("Импорт поддерживает форматы application/x-ndjson и text/csv");
+    }
+
+    // Файл создаётся только при первой отклонённой строке
+    private class RejectedRowsWriter implements Closeable {
+        private Path path;
+        private BufferedWriter writer;
+
+        void write(ImportRow row, String error, Map<String, String> errors) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(rejectedDir);
+                path = rejectedDir.resolve("rejected-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-"
+                        + UUID.randomUUID().toString().substring(0, 8) + ".ndjson");
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+
+            ImportRejectedRowDto rejectedRow = new ImportRejectedRowDto();
+            rejectedRow.setLine(row.getLine());
+            rejectedRow.setRow(row.getRaw());
+            rejectedRow.setError(error);
+            rejectedRow.setErrors(errors);
+            writer.write(objectMapper.writeValueAsString(rejectedRow));
+            writer.newLine();
+        }
+
+        String getPath() {
+            return (path != null) ? path.toString() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.mephi.url.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import ru.mephi.url.cache.ShortCodeFilter;
+import ru.mephi.url.metrics.RedirectMetrics;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.repository.ReactiveShortURLRepository;
+import ru.mephi.url.validator.ShortURLValidator;
+
+import java.time.LocalDateTime;
+
+// Неблокирующий аналог ShortURLService.redirect: каждый переход - чтение и условный UPDATE, как в режиме atomic
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveRedirectService {
+    private final ReactiveShortURLRepository urlRepository;
+    private final ShortURLValidator urlValidator;
+    private final RedirectMetrics redirectMetrics;
+    private final ShortCodeFilter codeFilter;
+
+    public Mono<AccessResult> redirect(String shortUrl) {
+        Mono<RedirectEntry> lookup = codeFilter.mightContain(shortUrl)
+                ? urlRepository.findRedirectEntry(shortUrl)
+                : Mono.empty(); // Кода точно нет в БД
+        return lookup
+                .flatMap(entry -> {
+                    AccessResult result = urlValidator.checkAccess(entry);
+                    if (!result.isOk()) {
+                        return Mono.just(result);
+                    }
+                    return urlRepository.incrementUseCountIfAllowed(shortUrl, LocalDateTime.now())
+                            .map(updated -> registerClick(entry, updated));
+                })
+                .defaultIfEmpty(AccessResult.notFound(shortUrl))
+                .doOnNext(result -> {
+                    if (!result.isOk()) {
+                        redirectMetrics.rejected(result.getStatus());
+                    }
+                });
+    }
+
+    private AccessResult registerClick(RedirectEntry entry, long updated) {
+        if (updated == 0) {
+            entry.markLimitReached();
+            return AccessResult.limitReached(entry.getShortUrl()); // Последний переход успел занять параллельный запрос
+        }
+        entry.addUseCount(1);
+
+        if (entry.getUseCount() == entry.getUseLimit()) {
+            ShortURLService.sendLimitReachedNotification(entry);
+        }
+        return AccessResult.ok(entry);
+    }
+}
@@ -1,63 +1,215 @@
 package ru.mephi.url.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.mephi.url.cache.RedirectCache;
+import ru.mephi.url.cache.ShortCodeFilter;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.counter.ClickCounter;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
 import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLPageDto;
 import ru.mephi.url.dto.ShortURLResponseDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.expiry.ExpiryScheduler;
+import ru.mephi.url.generator.ShortCodeGenerator;
 import ru.mephi.url.mapper.ShortURLMapper;
+import ru.mephi.url.metrics.RedirectMetrics;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.ListedURL;
+import ru.mephi.url.model.PageCursor;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.model.ShortURL;
 import ru.mephi.url.model.User;
+import ru.mephi.url.replica.RecentWrites;
 import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectSnapshot;
+import ru.mephi.url.store.RedirectStore;
 import ru.mephi.url.validator.ShortURLValidator;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ShortURLService {
+    private static final Comparator<ListedURL> NEWEST_FIRST =
+            Comparator.comparing(ListedURL::getCreatedAt).thenComparingLong(ListedURL::getId).reversed();
+
     private final ShortURLRepository urlRepository;
     private final ShortURLMapper urlMapper;
     private final ShortURLValidator urlValidator;
     private final UserService userService;
+    private final RedirectCache redirectCache;
+    private final ClickCounter clickCounter;
+    private final ShortCodeGenerator codeGenerator;
+    private final ExpiryScheduler expiryScheduler;
+    private final RedirectMetrics redirectMetrics;
+    private final ShortCodeFilter codeFilter;
+    private final RecentWrites recentWrites;
+    private final RedirectStore redirectStore;
+    private final RedirectSnapshot redirectSnapshot;
+    private final Shards shards;
+    private final ShortURLConfig config;
 
     @Transactional
+    @Timed(value = "shortener.create", description = "Создание короткой ссылки")
     public ShortURLResponseDto createShortUrl(UUID userId, ShortURLCreateDto requestDto) {
-        User user = (userId != null) ? userService.getUserById(userId) : userService.createUser();
+        User user = (userId != null) ? userService.getUserReference(userId) : userService.createUser();
 
-        urlValidator.checkUniqueLongUrlForUser(user, requestDto.getLongUrl());
+        if (userId != null) { // У только что созданного пользователя ещё нет ссылок
+            urlValidator.checkUniqueLongUrlForUser(user, requestDto.getLongUrl());
+        }
 
-        String shortUrl = generateUniqueShortUrl();
+        String shortUrl = codeGenerator.nextCode();
         ShortURL url = urlMapper.requestDtoToEntity(requestDto, user, shortUrl);
-        urlRepository.save(url);
+        int shard = shards.of(shortUrl);
+        shards.run(shard, () -> {
+            copyOwnerToShard(shard, user);
+            urlRepository.save(url);
+        });
+        expiryScheduler.schedule(shortUrl, url.getExpiresAt());
+        codeFilter.add(shortUrl);
+        recentWrites.record(shortUrl);
+        redirectStore.saved(List.of(url));
 
         return urlMapper.entityToResponseDto(url);
     }
 
+    // Пакетное создание: пользователь и дубликаты проверяются один раз на весь пакет, коды выдаются разом,
+    // а INSERT объединяются в JDBC-пакеты (hibernate.jdbc.batch_size). Ошибочные элементы не мешают создать остальные
     @Transactional
-    public String getLongUrl(String shortUrl) {
-        ShortURL url = urlRepository.findByShortUrl(shortUrl)
-                .orElseThrow(() -> new EntityNotFoundException("Короткая ссылка '" + shortUrl + "' не найдена"));
+    @Timed(value = "shortener.create.batch", description = "Пакетное создание коротких ссылок")
+    public List<ShortURLBatchItemDto> createShortUrls(UUID userId, List<ShortURLCreateDto> requestDtos) {
+        urlValidator.checkBatchSize(requestDtos.size());
+        User user = (userId != null) ? userService.getUserReference(userId) : userService.createUser();
 
-        urlValidator.validateAccess(url);
+        List<ShortURLBatchItemDto> results = new ArrayList<>(requestDtos.size());
+        Set<String> longUrls = new HashSet<>();
+        for (ShortURLCreateDto requestDto : requestDtos) {
+            ShortURLBatchItemDto result = new ShortURLBatchItemDto();
+            Map<String, String> errors = urlValidator.validateBatchItem(requestDto);
+            if (!errors.isEmpty()) {
+                result.setStatus(HttpStatus.BAD_REQUEST.value());
+                result.setErrors(errors);
+            } else {
+                longUrls.add(requestDto.getLongUrl());
+            }
+            results.add(result);
+        }
 
-        url.setUseCount(url.getUseCount() + 1);
-        urlRepository.save(url);
+        Set<String> taken = (userId != null) ? urlValidator.findTakenLongUrls(user, longUrls) : new HashSet<>();
+        List<Integer> accepted = new ArrayList<>(longUrls.size());
+        for (int i = 0; i < requestDtos.size(); i++) {
+            ShortURLBatchItemDto result = results.get(i);
+            if (result.getErrors() != null) {
+                continue;
+            }
+            String longUrl = requestDtos.get(i).getLongUrl();
+            if (!taken.add(longUrl)) { // Уже сокращена раньше или встречается в пакете повторно
+                result.setStatus(HttpStatus.BAD_REQUEST.value());
+                result.setError(urlValidator.duplicateLongUrlMessage(user, longUrl));
+                continue;
+            }
+            accepted.add(i);
+        }
+
+        List<String> codes = codeGenerator.nextCodes(accepted.size());
+        List<ShortURL> urls = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            urls.add(urlMapper.requestDtoToEntity(requestDtos.get(accepted.get(i)), user, codes.get(i)));
+        }
+        shards.group(urls, ShortURL::getShortUrl).forEach((shard, shardUrls) -> shards.run(shard, () -> {
+            copyOwnerToShard(shard, user);
+            urlRepository.saveAll(shardUrls);
+        }));
+        recentWrites.recordAll(codes);
+        redirectStore.saved(urls);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            ShortURL url = urls.get(i);
+            expiryScheduler.schedule(url.getShortUrl(), url.getExpiresAt());
+            codeFilter.add(url.getShortUrl());
+
+            ShortURLBatchItemDto result = results.get(accepted.get(i));
+            result.setStatus(HttpStatus.CREATED.value());
+            result.setUrl(urlMapper.entityToResponseDto(url));
+        }
+
+        return results;
+    }
+
+    @Timed(value = "shortener.redirect", description = "Переход по короткой ссылке", histogram = true)
+    public AccessResult redirect(String shortUrl) {
+        RedirectStore.Click click = redirectStore.click(shortUrl);
+        RedirectEntry entry = null;
+        if (click == null) {
+            entry = redirectCache.get(shortUrl).orElse(null);
+            // Хранилище, которое считает переходы, дописывает прочитанную при промахе ссылку к себе
+            click = (entry != null) ? redirectStore.click(shortUrl) : null;
+        }
+        if (click != null) {
+            return redirectCounted(shortUrl, click);
+        }
+
+        AccessResult result = (entry != null) ? urlValidator.checkAccess(entry) : AccessResult.notFound(shortUrl);
+
+        if (result.isOk() && !clickCounter.registerClick(entry)) {
+            result = AccessResult.limitReached(shortUrl); // Последний переход успел занять параллельный запрос
+        }
+        if (!result.isOk()) {
+            redirectMetrics.rejected(result.getStatus());
+            return result;
+        }
+
+        if (entry.getUseCount() == entry.getUseLimit()) {
+            sendLimitReachedNotification(entry);
+        }
+
+        return result;
+    }
 
-        if (url.getUseCount().equals(url.getUseLimit())) {
-            sendLimitReachedNotification(url);
+    // Срок и лимит уже проверены хранилищем, а переход учтён в его счётчике. Если БД переход отклонила,
+    // запись хранилища устарела и снимается с него, чтобы следующий переход перечитал её
+    private AccessResult redirectCounted(String shortUrl, RedirectStore.Click click) {
+        AccessResult result = click.result();
+        if (result.isOk() && !clickCounter.registerCountedClick(shortUrl)) {
+            redirectStore.evicted(List.of(shortUrl));
+            result = AccessResult.limitReached(shortUrl);
+        }
+        if (!result.isOk()) {
+            redirectMetrics.rejected(result.getStatus());
+            return result;
         }
 
-        return url.getLongUrl();
+        if (click.last()) {
+            redirectStore.findRedirectEntry(shortUrl).ifPresent(ShortURLService::sendLimitReachedNotification);
+        }
+
+        return result;
     }
 
     @Transactional
+    @Timed(value = "shortener.update", description = "Изменение короткой ссылки")
     public ShortURLResponseDto updateShortUrl(String shortUrl, UUID userId, ShortURLUpdateDto requestDto) {
+        return shards.on(shards.of(shortUrl), () -> update(shortUrl, userId, requestDto));
+    }
+
+    private ShortURLResponseDto update(String shortUrl, UUID userId, ShortURLUpdateDto requestDto) {
+        clickCounter.flush(shortUrl); // Проверка нового лимита должна видеть все совершённые переходы
         ShortURL url = urlRepository.findByShortUrl(shortUrl)
                 .orElseThrow(() -> new EntityNotFoundException("Короткая ссылка '" + shortUrl + "' не найдена"));
 
@@ -66,34 +218,77 @@ public class ShortURLService {
 
         urlMapper.updateEntityFromRequestDto(url, requestDto);
         urlRepository.save(url);
+        redirectCache.invalidate(shortUrl);
+        redirectStore.evicted(List.of(shortUrl));
+        recentWrites.record(shortUrl);
+        if (requestDto.getTtlHours() != null) {
+            expiryScheduler.schedule(shortUrl, url.getExpiresAt());
+        }
 
         return urlMapper.entityToResponseDto(url);
     }
 
+    // Страница активных ссылок пользователя по курсору вместо OFFSET: читаются только нужные ответу столбцы, без сущностей
+    // и пользователя. Запрашивается на одну ссылку больше, чтобы без отдельного COUNT узнать, есть ли следующая страница.
+    // Для неизвестного пользователя возвращается пустая страница
+    @Transactional(readOnly = true)
+    @Timed(value = "shortener.list", description = "Получение страницы ссылок пользователя")
+    public ShortURLPageDto listShortUrls(UUID userId, String cursor, Integer pageSize) {
+        int size = (pageSize != null) ? pageSize : config.getListing().getDefaultPageSize();
+        urlValidator.checkPageSize(size);
+        PageCursor after = (cursor != null) ? PageCursor.decode(cursor) : PageCursor.FIRST;
+
+        List<ListedURL> urls = shards.onEach(() -> urlRepository.findCreatorPage(userId, after.getCreatedAt(),
+                        after.getId(), Limit.of(size + 1))).stream()
+                .flatMap(List::stream)
+                .sorted(NEWEST_FIRST) // Слияние страниц шардов
+                .limit(size + 1)
+                .toList();
+        boolean hasNext = urls.size() > size;
+        if (hasNext) {
+            urls = urls.subList(0, size);
+        }
+
+        ShortURLPageDto page = new ShortURLPageDto();
+        page.setItems(urls.stream()
+                .map(url -> urlMapper.listedToResponseDto(url, clickCounter.getPending(url.getShortUrl())))
+                .toList());
+        page.setNextCursor(hasNext ? PageCursor.after(urls.get(urls.size() - 1)).encode() : null);
+        return page;
+    }
+
     @Transactional
+    @Timed(value = "shortener.delete", description = "Удаление короткой ссылки")
     public void deleteShortUrl(String shortUrl, UUID userId) {
+        shards.run(shards.of(shortUrl), () -> delete(shortUrl, userId));
+    }
+
+    private void delete(String shortUrl, UUID userId) {
         ShortURL url = urlRepository.findByShortUrl(shortUrl)
                 .orElseThrow(() -> new EntityNotFoundException("Короткая ссылка '" + shortUrl + "' не найдена"));
 
         urlValidator.checkOwnership(url, userId);
 
         urlRepository.delete(url);
+        redirectSnapshot.removed(shortUrl);
+        redirectCache.invalidate(shortUrl);
+        redirectStore.evicted(List.of(shortUrl));
+        recentWrites.record(shortUrl);
+        expiryScheduler.cancel(shortUrl);
     }
 
-    private String generateUniqueShortUrl() {
-        String code; // Классический вариант для коротких ссылок, 6 случайных символов из кодировки Base62
-        do {
-            code = RandomStringUtils.randomAlphanumeric(6);
-        } while (urlRepository.existsByShortUrl(code)); // На случай коллизии (очень маловероятно)
-        return code;
+    private void copyOwnerToShard(int shard, User user) {
+        if (shards.isEnabled()) {
+            userService.copyToShard(shard, user.getId());
+        }
     }
 
-    private void sendLimitReachedNotification(ShortURL url) {
+    static void sendLimitReachedNotification(RedirectEntry entry) {
         log.info("Пользователь с ID {} - лимит переходов ({}) по ссылке '{}' (перенаправление на {}) был исчерпан. " +
                 "Следующие попытки перехода будут заблокированы.",
-                url.getCreator().getId(),
-                url.getUseLimit(),
-                url.getShortUrl(),
-                url.getLongUrl());
+                entry.getCreatorId(),
+                entry.getUseLimit(),
+                entry.getShortUrl(),
+                entry.getLongUrl());
     }
 }
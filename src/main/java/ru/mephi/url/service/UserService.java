@@ -1,37 +1,81 @@
 package ru.mephi.url.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mephi.url.config.ShortURLConfig;
 import ru.mephi.url.model.User;
 import ru.mephi.url.repository.UserRepository;
 
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final Cache<UUID, Boolean> knownIds; // Пользователи не удаляются, поэтому известный id не устаревает
+    private final Cache<String, Boolean> shardCopies; // Ключ - "<шард>:<id>", копии в шардах тоже не удаляются
+
+    public UserService(UserRepository userRepository, ShortURLConfig config) {
+        this.userRepository = userRepository;
+        this.knownIds = Caffeine.newBuilder()
+                .maximumSize(config.getUsers().getKnownIdsCacheSize())
+                .build();
+        this.shardCopies = Caffeine.newBuilder()
+                .maximumSize(config.getUsers().getKnownIdsCacheSize())
+                .build();
+    }
 
     public User getUserById(UUID id) {
-        return userRepository.findById(id)
+        User user = userRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь с ID " + id + " не найден"));
+        knownIds.put(id, Boolean.TRUE);
+        return user;
+    }
+
+    // Ссылка на пользователя для связи с новыми ссылками без загрузки из БД. Существование проверяется запросом
+    // только при первом обращении к id, дальше он берётся из кэша известных пользователей
+    public User getUserReference(UUID id) {
+        if (knownIds.getIfPresent(id) == null) {
+            getUserById(id);
+        }
+        return userRepository.getReferenceById(id);
     }
 
+    // Один INSERT без предварительной проверки: совпадение случайных UUID (122 бита) отклонит первичный ключ.
+    // В кэш известных id пользователь попадает только после коммита
     @Transactional
     public User createUser() {
-        User user = new User();
-        user.setId(getUniqueRandomId());
-        userRepository.save(user);
+        User user = userRepository.save(User.created(UUID.randomUUID()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownIds.put(user.getId(), Boolean.TRUE);
+                }
+            });
+        }
         return user;
     }
 
-    private UUID getUniqueRandomId() {
-        UUID id;
-        do {
-            id = UUID.randomUUID();
-        } while (userRepository.existsById(id)); // На случай коллизии (очень маловероятно)
-        return id;
+    // Владелец ссылок копируется в шард до их сохранения: без строки в users шарда Hibernate сочтёт его несохранённым.
+    // Вызывается в транзакции шарда, повторно для того же шарда копия не проверяется
+    public void copyToShard(int shard, UUID id) {
+        String key = shard + ":" + id;
+        if (shardCopies.getIfPresent(key) != null) {
+            return;
+        }
+        userRepository.insertIfAbsent(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    shardCopies.put(key, Boolean.TRUE);
+                }
+            });
+        }
     }
 }
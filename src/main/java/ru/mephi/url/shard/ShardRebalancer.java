@@ -0,0 +1,179 @@
+package ru.mephi.url.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Перенос ссылок при изменении числа шардов. Запускается при остановленном приложении:
+//   java -cp target/url-shortener.jar -Dloader.main=ru.mephi.url.shard.ShardRebalancer
+//        org.springframework.boot.loader.launch.PropertiesLauncher --from=<адреса шардов> --to=<новые адреса шардов>
+// Адреса перечисляются через запятую в порядке номеров шардов, шард с тем же адресом в обоих списках - та же БД.
+// Каждая порция сначала записывается в новый шард вместе с копиями владельцев и только потом удаляется из старого,
+// поэтому прерванный перенос можно просто запустить заново. Шарды, которых нет в новом списке, опустошаются полностью
+@Slf4j
+public class ShardRebalancer {
+    private static final String COLUMNS = "id, short_url, long_url, long_url_hash, creator_id, use_count, use_limit, " +
+            "created_at, ttl_hours, expires_at, deleted, updated_at";
+    private static final int COLUMN_COUNT = 12;
+
+    private final List<String> from;
+    private final List<String> to;
+    private final String user;
+    private final String password;
+    private final int chunkSize;
+
+    public ShardRebalancer(List<String> from, List<String> to, String user, String password, int chunkSize) {
+        this.from = from;
+        this.to = to;
+        this.user = user;
+        this.password = password;
+        this.chunkSize = chunkSize;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new HashMap<>(Map.of("user", "sa", "password", "", "chunk", "1000"));
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], (option.length > 1) ? option[1] : "");
+        }
+        if (!options.containsKey("from") || !options.containsKey("to")) {
+            System.err.println("Использование: ShardRebalancer --from=<адреса шардов> --to=<новые адреса шардов> " +
+                    "[--user=sa] [--password=] [--chunk=1000]");
+            System.exit(2);
+        }
+
+        new ShardRebalancer(Arrays.asList(options.get("from").split(",")), Arrays.asList(options.get("to").split(",")),
+                options.get("user"), options.get("password"), Integer.parseInt(options.get("chunk"))).run();
+    }
+
+    public long run() throws SQLException {
+        Set<String> urls = new LinkedHashSet<>(from);
+        urls.addAll(to);
+        Map<String, Connection> connections = new LinkedHashMap<>();
+        try {
+            for (String url : urls) {
+                Connection connection = DriverManager.getConnection(url, user, password);
+                connection.setAutoCommit(false);
+                connections.put(url, connection);
+            }
+            for (String url : to) {
+                ScriptUtils.executeSqlScript(connections.get(url), new ClassPathResource("schema.sql"));
+                connections.get(url).commit();
+            }
+
+            long moved = 0;
+            for (String source : from) {
+                moved += drain(source, connections);
+            }
+            log.info("Перераспределение завершено: перенесено {} ссылок в {} шардов", moved, to.size());
+            return moved;
+        } finally {
+            for (Connection connection : connections.values()) {
+                connection.close();
+            }
+        }
+    }
+
+    // Ссылки шарда обходятся по id; перенесённые удаляются, поэтому ключ обхода не зависит от удалений
+    private long drain(String source, Map<String, Connection> connections) throws SQLException {
+        Connection sourceConnection = connections.get(source);
+        long moved = 0;
+        long afterId = Long.MIN_VALUE;
+        List<Object[]> chunk;
+        do {
+            chunk = readChunk(sourceConnection, afterId);
+            Map<String, List<Object[]>> targets = new LinkedHashMap<>();
+            for (Object[] row : chunk) {
+                String target = to.get(Shards.shardOf((String) row[1], to.size()));
+                if (!target.equals(source)) {
+                    targets.computeIfAbsent(target, url -> new ArrayList<>()).add(row);
+                }
+            }
+
+            List<Object> movedIds = new ArrayList<>();
+            for (Map.Entry<String, List<Object[]>> target : targets.entrySet()) {
+                write(connections.get(target.getKey()), target.getValue());
+                target.getValue().forEach(row -> movedIds.add(row[0]));
+            }
+            delete(sourceConnection, movedIds);
+            moved += movedIds.size();
+
+            if (!chunk.isEmpty()) {
+                afterId = ((Number) chunk.get(chunk.size() - 1)[0]).longValue();
+                log.info("Шард {}: перенесено {} ссылок", source, moved);
+            }
+        } while (chunk.size() == chunkSize);
+        return moved;
+    }
+
+    private List<Object[]> readChunk(Connection connection, long afterId) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(chunkSize);
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM short_urls WHERE id > ? ORDER BY id LIMIT ?")) {
+            select.setLong(1, afterId);
+            select.setInt(2, chunkSize);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    Object[] row = new Object[COLUMN_COUNT];
+                    for (int i = 0; i < COLUMN_COUNT; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        connection.commit();
+        return rows;
+    }
+
+    // MERGE вместо INSERT: строки, записанные прерванным запуском, перезаписываются
+    private static void write(Connection connection, List<Object[]> rows) throws SQLException {
+        try (PreparedStatement owners = connection.prepareStatement("MERGE INTO users (id) KEY (id) VALUES (?)");
+             PreparedStatement links = connection.prepareStatement("MERGE INTO short_urls (" + COLUMNS + ") KEY (id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Set<Object> creators = new LinkedHashSet<>();
+            for (Object[] row : rows) {
+                creators.add(row[4]);
+                for (int i = 0; i < COLUMN_COUNT; i++) {
+                    links.setObject(i + 1, row[i]);
+                }
+                links.addBatch();
+            }
+            for (Object creator : creators) {
+                owners.setObject(1, creator);
+                owners.addBatch();
+            }
+            owners.executeBatch();
+            links.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private static void delete(Connection connection, List<Object> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM short_urls WHERE id = ?")) {
+            for (Object id : ids) {
+                delete.setObject(1, id);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+        connection.commit();
+    }
+}
@@ -0,0 +1,41 @@
+package ru.mephi.url.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Идентификаторы ссылок уникальны во всех шардах: по ним идут курсор страниц и перенос ссылок между шардами.
+// Последовательность шарда i выдаёт значения из своего диапазона [i * 2^48, (i + 1) * 2^48), но блок идентификаторов
+// Hibernate, полученный из одного шарда, может уйти на ссылки любого. Поэтому при запуске последовательность каждого
+// шарда переводится за наибольший id своего диапазона во всех шардах
+public final class ShardSequences {
+    static final int RANGE_BITS = 48;
+    private static final long ALLOCATION_SIZE = 50; // allocationSize в ShortURL
+
+    private ShardSequences() {
+    }
+
+    public static void align(List<DataSource> shards) {
+        List<JdbcTemplate> databases = shards.stream().map(JdbcTemplate::new).toList();
+        for (int shard = 0; shard < databases.size(); shard++) {
+            long from = (long) shard << RANGE_BITS;
+            long to = (long) (shard + 1) << RANGE_BITS;
+            long next = from + ALLOCATION_SIZE;
+            for (JdbcTemplate database : databases) {
+                Long max = database.queryForObject("SELECT MAX(id) FROM short_urls WHERE id >= ? AND id < ?",
+                        Long.class, from, to);
+                if (max != null) {
+                    next = Math.max(next, max + ALLOCATION_SIZE);
+                }
+            }
+
+            JdbcTemplate database = databases.get(shard);
+            Long current = database.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES " +
+                    "WHERE SEQUENCE_NAME = 'SHORT_URLS_ID_SEQ'", Long.class);
+            if (current == null || current < next) {
+                database.execute("ALTER SEQUENCE short_urls_id_seq RESTART WITH " + next);
+            }
+        }
+    }
+}
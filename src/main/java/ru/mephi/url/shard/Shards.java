@@ -0,0 +1,142 @@
+package ru.mephi.url.shard;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mephi.url.config.ShortURLConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Ссылки распределены по шардам (app.sharding.urls) по хэшу короткого кода, пользователи, резервы кодов
+// и последовательности генератора остаются в основной БД. Работа с шардом выполняется в отдельной транзакции
+// на его соединении (ShardRoutingDataSource), внешняя транзакция основной БД на это время приостанавливается.
+// Без шардирования шард один - основная БД, и работа выполняется в текущей транзакции, как раньше
+@Component
+public class Shards {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final boolean enabled;
+    private final int count;
+    private final TransactionTemplate shardTransaction;
+    private final ExecutorService executor;
+
+    public Shards(PlatformTransactionManager transactionManager, ShortURLConfig config) {
+        this.enabled = config.getSharding().isEnabled();
+        this.count = enabled ? config.getSharding().getUrls().size() : 1;
+        this.shardTransaction = new TransactionTemplate(transactionManager);
+        this.shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = enabled ? Executors.newFixedThreadPool(count, Shards::newThread) : null;
+    }
+
+    // Хэш строки определён спецификацией Java, поэтому шард кода не зависит от версии JVM. Перемешивание
+    // разносит по шардам коды, отличающиеся только последним символом
+    public static int shardOf(String shortUrl, int shardCount) {
+        return Math.floorMod(shortUrl.hashCode() * 0x9E3779B9, shardCount);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int of(String shortUrl) {
+        return shardOf(shortUrl, count);
+    }
+
+    // Уже открытая транзакция того же шарда переиспользуется: изменение ссылки читает и пишет её в одной транзакции
+    public <T> T on(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        if (!enabled || (previous != null && previous == shard
+                && TransactionSynchronizationManager.isActualTransactionActive())) {
+            return work.get();
+        }
+
+        CURRENT.set(shard);
+        try {
+            return shardTransaction.execute(status -> work.get());
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public void run(int shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Результаты по шардам в порядке их номеров
+    public <T> List<T> onEach(Supplier<T> work) {
+        List<T> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            results.add(on(shard, work));
+        }
+        return results;
+    }
+
+    // Шарды обрабатываются одновременно, каждый в своём потоке; без шардирования - в вызывающем потоке
+    public <T> List<T> parallel(IntFunction<T> work) {
+        if (!enabled) {
+            return List.of(work.apply(0));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> work.apply(target), executor));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException ex) {
+            throw (ex.getCause() instanceof RuntimeException cause) ? cause : ex;
+        }
+    }
+
+    public <E> Map<Integer, List<E>> group(Collection<E> items, Function<E, String> shortUrl) {
+        Map<Integer, List<E>> groups = new TreeMap<>();
+        for (E item : items) {
+            groups.computeIfAbsent(of(shortUrl.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static Thread newThread(Runnable task) {
+        Thread thread = new Thread(task, "shard-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+}
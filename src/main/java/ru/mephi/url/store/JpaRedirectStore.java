@@ -0,0 +1,61 @@
+package ru.mephi.url.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+// Записи читаются из снимка переходов, а если его нет или код изменён после снимка - прямо из short_urls.
+// Код читается из своего шарда и с реплики, если только что не изменялся на этом экземпляре.
+// Об изменениях нужно сообщать только снимку. Переходы снимок не отмечают: к записи из снимка из БД дочитывается
+// только счётчик переходов, поэтому отмеченных кодов не становится больше с каждым переходом
+@Component
+@ConditionalOnProperty(prefix = "app.redirect-store", name = "engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaRedirectStore implements RedirectStore {
+    private final ShortURLRepository urlRepository;
+    private final RecentWrites recentWrites;
+    private final Shards shards;
+    private final RedirectSnapshot redirectSnapshot;
+
+    @Override
+    public Optional<RedirectEntry> findRedirectEntry(String shortUrl) {
+        Optional<RedirectEntry> snapshotted = redirectSnapshot.find(shortUrl);
+        if (snapshotted.isEmpty()) {
+            return shards.on(shards.of(shortUrl),
+                    () -> recentWrites.read(shortUrl, () -> urlRepository.findRedirectEntry(shortUrl)));
+        }
+
+        // Строки нет - ссылку удалили после снимка, а чтение изменений ещё не дошло до removed_codes
+        RedirectEntry entry = snapshotted.get();
+        return shards.on(shards.of(shortUrl),
+                        () -> recentWrites.read(shortUrl, () -> urlRepository.findUseCount(shortUrl)))
+                .map(useCount -> {
+                    entry.addUseCount(useCount - entry.getUseCount());
+                    return entry;
+                });
+    }
+
+    @Override
+    public void saved(Collection<ShortURL> urls) {
+        redirectSnapshot.changed(urls.stream().map(ShortURL::getShortUrl).toList());
+    }
+
+    @Override
+    public void evicted(Collection<String> shortUrls) {
+        redirectSnapshot.changed(shortUrls);
+    }
+
+    @Override
+    public void clicked(Map<String, Integer> deltas) {
+        // Счётчик к записи из снимка и так читается из БД
+    }
+}
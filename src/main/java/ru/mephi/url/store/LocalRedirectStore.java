@@ -0,0 +1,172 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Записи для перехода читаются из локальной таблицы RedirectTable, short_urls - только при промахе:
+// действующая ссылка, найденная в БД, дописывается в таблицу. Изменения, сделанные другими экземплярами приложения,
+// таблица не видит, поэтому такие движки рассчитаны на один экземпляр.
+// Изменение ссылки перед коммитом снимает код с таблицы надгробием, а после коммита дописывает новое состояние:
+// сбой между коммитом и записью в таблицу оставляет код непрочитанным, а не устаревшим. Пока транзакция не завершилась,
+// прочитанная при промахе строка может устареть, поэтому в таблицу она не дописывается
+abstract class LocalRedirectStore implements RedirectStore {
+    private final JpaRedirectStore database;
+    private final Counter misses;
+
+    // Проверка незавершённых изменений вместе с записью промаха и отметка изменения вместе с надгробием - под одной блокировкой
+    private final ReentrantLock changeLock = new ReentrantLock();
+    private final ConcurrentHashMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    protected LocalRedirectStore(ShortURLRepository urlRepository, RecentWrites recentWrites, Shards shards,
+                                 RedirectSnapshot redirectSnapshot, ShortURLConfig config, Counter misses) {
+        if (config.getReactive().getR2dbcUrl() != null) {
+            throw new IllegalStateException("Локальное хранилище переходов не поддерживается в реактивном режиме");
+        }
+        this.database = new JpaRedirectStore(urlRepository, recentWrites, shards, redirectSnapshot);
+        this.misses = misses;
+    }
+
+    protected abstract RedirectTable table();
+
+    @Override
+    public Optional<RedirectEntry> findRedirectEntry(String shortUrl) {
+        RedirectTable.Lookup lookup = table().lookup(shortUrl);
+        if (lookup.entry() != null) {
+            return Optional.of(lookup.entry());
+        }
+
+        misses.increment();
+        Optional<RedirectEntry> stored = load(shortUrl, database::findRedirectEntry);
+        // Просроченные ссылки не меняются до очистки, а переходы по ним редки - в таблицу они не попадают
+        stored.filter(entry -> !entry.isExpired(LocalDateTime.now()))
+                .ifPresent(entry -> repair(entry, lookup.version()));
+        return stored;
+    }
+
+    // Новые коды таблице ещё не известны: запись сохраняется, если до коммита код никто не успел изменить
+    @Override
+    public void saved(Collection<ShortURL> urls) {
+        database.saved(urls);
+        List<RedirectEntry> entries = urls.stream()
+                .map(url -> new RedirectEntry(url.getShortUrl(), url.getLongUrl(), url.getCreator().getId(),
+                        url.getUseCount(), url.getUseLimit(), url.getExpiresAt()))
+                .toList();
+        Map<String, Long> versions = new HashMap<>();
+        entries.forEach(entry -> versions.put(entry.getShortUrl(), table().versionOf(entry.getShortUrl())));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    table().putAllIfUnchanged(entries, versions);
+                }
+            });
+        } else {
+            table().putAllIfUnchanged(entries, versions);
+        }
+    }
+
+    @Override
+    public void evicted(Collection<String> shortUrls) {
+        database.evicted(shortUrls);
+        change(shortUrls, Map.of());
+    }
+
+    // Вне транзакции переходы уже записаны в БД и сразу добавляются к записям таблицы. Таблица, которая считает
+    // переходы сама, учла их в момент перехода
+    @Override
+    public void clicked(Map<String, Integer> deltas) {
+        database.clicked(deltas);
+        if (countsClicks()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            change(deltas.keySet(), deltas);
+        } else {
+            table().addUseCounts(deltas);
+        }
+    }
+
+    // Чтение строки из БД при промахе
+    protected Optional<RedirectEntry> load(String shortUrl, Function<String, Optional<RedirectEntry>> loader) {
+        return loader.apply(shortUrl);
+    }
+
+    private void repair(RedirectEntry entry, long version) {
+        changeLock.lock();
+        try {
+            if (!inFlight.containsKey(entry.getShortUrl())) {
+                table().putAllIfUnchanged(List.of(entry), Map.of(entry.getShortUrl(), version));
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    // Коды снимаются с таблицы перед коммитом; записи с добавленными переходами возвращаются после коммита,
+    // если код за это время не изменили снова. После отката код остаётся снятым и будет прочитан из БД
+    private void change(Collection<String> shortUrls, Map<String, Integer> deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            table().removeAll(shortUrls);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private final List<RedirectEntry> counted = new ArrayList<>();
+            private Map<String, Long> versions = Map.of();
+            private boolean marked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                changeLock.lock();
+                try {
+                    shortUrls.forEach(shortUrl -> inFlight.merge(shortUrl, 1, Integer::sum));
+                    marked = true;
+                    deltas.forEach((shortUrl, delta) -> {
+                        RedirectEntry entry = table().lookup(shortUrl).entry();
+                        if (entry != null) {
+                            entry.addUseCount(delta);
+                            counted.add(entry);
+                        }
+                    });
+                    versions = table().removeAll(shortUrls);
+                } finally {
+                    changeLock.unlock();
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                if (!counted.isEmpty()) {
+                    table().putAllIfUnchanged(counted, versions);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (marked) {
+                    shortUrls.forEach(shortUrl -> inFlight.computeIfPresent(shortUrl,
+                            (code, count) -> (count > 1) ? count - 1 : null));
+                }
+            }
+        });
+    }
+}
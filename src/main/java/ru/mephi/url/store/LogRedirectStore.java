@@ -0,0 +1,68 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Записи для перехода читаются из журнала RedirectLog на локальном диске и переживают перезапуск приложения.
+// Согласование журнала с short_urls - см. LocalRedirectStore
+@Component
+@ConditionalOnProperty(prefix = "app.redirect-store", name = "engine", havingValue = "log")
+public class LogRedirectStore extends LocalRedirectStore {
+    private final RedirectLog redirectLog;
+    private final double compactionGarbageRatio;
+
+    public LogRedirectStore(ShortURLRepository urlRepository, RecentWrites recentWrites, Shards shards,
+                            RedirectSnapshot redirectSnapshot, ShortURLConfig config,
+                            MeterRegistry meterRegistry) throws IOException {
+        super(urlRepository, recentWrites, shards, redirectSnapshot, config,
+                Counter.builder("shortener.redirect.log.misses")
+                        .description("Загрузки записей для перехода из БД мимо журнала")
+                        .register(meterRegistry));
+        this.redirectLog = RedirectLog.open(Path.of(config.getRedirectStore().getDirectory()));
+        this.compactionGarbageRatio = config.getRedirectStore().getCompactionGarbageRatio();
+
+        Gauge.builder("shortener.redirect.log.links", redirectLog, RedirectLog::size)
+                .description("Ссылки в журнале переходов")
+                .register(meterRegistry);
+        Gauge.builder("shortener.redirect.log.bytes", redirectLog, RedirectLog::fileSize)
+                .description("Размер файла журнала переходов")
+                .register(meterRegistry);
+        Gauge.builder("shortener.redirect.log.garbage", redirectLog, RedirectLog::garbageRatio)
+                .description("Доля устаревших записей в журнале переходов")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected RedirectTable table() {
+        return redirectLog;
+    }
+
+    @Scheduled(fixedDelayString = "${app.redirect-store.sync-interval}")
+    public void sync() {
+        redirectLog.sync();
+    }
+
+    @Scheduled(fixedDelayString = "${app.redirect-store.compaction-interval}")
+    public void compact() throws IOException {
+        if (redirectLog.garbageRatio() >= compactionGarbageRatio) {
+            redirectLog.compact();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        redirectLog.close();
+    }
+}
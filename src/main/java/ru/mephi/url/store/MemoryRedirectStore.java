@@ -0,0 +1,68 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.counter.ClickCounter;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Записи для перехода читаются из индекса RedirectIndex в памяти процесса; после перезапуска индекс пуст
+// и заполняется промахами. Ссылки сверх app.redirect-store.max-links в индекс не попадают и читаются из БД.
+// Переходы по ссылкам из индекса проверяются и считаются самим индексом, кэш перенаправлений с объектами RedirectEntry
+// перед ним не используется: промах читает строку вместе с ещё не сохранёнными переходами (ClickCounter.load),
+// а сброс счётчиков в БД индекс уже не меняет. Согласование индекса с short_urls - см. LocalRedirectStore
+@Component
+@ConditionalOnProperty(prefix = "app.redirect-store", name = "engine", havingValue = "memory")
+public class MemoryRedirectStore extends LocalRedirectStore {
+    private final RedirectIndex redirectIndex;
+    private final ObjectProvider<ClickCounter> clickCounter; // Счётчик переходов сам зависит от хранилища
+
+    public MemoryRedirectStore(ShortURLRepository urlRepository, RecentWrites recentWrites, Shards shards,
+                               RedirectSnapshot redirectSnapshot, ObjectProvider<ClickCounter> clickCounter,
+                               ShortURLConfig config, MeterRegistry meterRegistry) {
+        super(urlRepository, recentWrites, shards, redirectSnapshot, config,
+                Counter.builder("shortener.redirect.memory.misses")
+                        .description("Загрузки записей для перехода из БД мимо индекса в памяти")
+                        .register(meterRegistry));
+        this.redirectIndex = new RedirectIndex(config.getRedirectStore().getMaxLinks());
+        this.clickCounter = clickCounter;
+
+        Gauge.builder("shortener.redirect.memory.links", redirectIndex, RedirectIndex::size)
+                .description("Ссылки в индексе переходов в памяти")
+                .register(meterRegistry);
+        Gauge.builder("shortener.redirect.memory.bytes", redirectIndex, RedirectIndex::footprint)
+                .description("Память, занятая индексом переходов")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean countsClicks() {
+        return true;
+    }
+
+    @Override
+    public Click click(String shortUrl) {
+        return redirectIndex.click(shortUrl, LocalDateTime.now());
+    }
+
+    @Override
+    protected Optional<RedirectEntry> load(String shortUrl, Function<String, Optional<RedirectEntry>> loader) {
+        return clickCounter.getObject().load(shortUrl, loader);
+    }
+
+    @Override
+    protected RedirectTable table() {
+        return redirectIndex;
+    }
+}
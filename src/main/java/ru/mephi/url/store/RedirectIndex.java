@@ -0,0 +1,546 @@
+package ru.mephi.url.store;
+
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Индекс записей для перехода в памяти процесса без объектов на ссылку. Шестисимвольный код Base62 - число меньше 62^6
+// (36 бит), поэтому ячейка таблицы с открытой адресацией и линейным пробированием - один long из кода и номера слота,
+// а поля записи лежат в параллельных массивах примитивов по номеру слота. Владелец записан номером в словаре владельцев
+// (UUID хранится один раз на пользователя), срок жизни - секундами. Длинные адреса хранятся в UTF-8 на страницах по 1 МБ
+// (перед адресом - 2 байта длины), в слоте - смещение адреса. На ссылку приходится около 50 байт и длина адреса
+// вместо сотен байт у String, RedirectEntry и их полей.
+// Чтение не блокирует: оптимистичное чтение StampedLock повторяется под блокировкой чтения, только если совпало
+// с изменением. Переход (click) проверяет срок и лимит и увеличивает счётчик слота сравнением с обменом под блокировкой
+// чтения, не создавая записи. Удаление оставляет в таблице надгробие, чтобы версия менялась и у отсутствующих кодов;
+// надгробия выбрасываются при перестроении таблицы, которое меняет поколение индекса. Коды другой длины
+// и не из Base62 в индекс не попадают
+public final class RedirectIndex implements RedirectTable {
+    private static final int CODE_LENGTH = 6;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SLOT_BITS = 28; // Код занимает остальные 36 бит ячейки
+    private static final int TOMBSTONE = (1 << SLOT_BITS) - 1;
+    private static final int MAX_SLOTS = TOMBSTONE;
+    private static final long NOT_INDEXED = Long.MIN_VALUE; // Версия кода, который не помещается в индекс
+    private static final long MAX_EXPIRY = 0xFFFFFFFFL;
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_PAGES = Integer.MAX_VALUE >>> PAGE_BITS; // Смещение адреса - int
+    private static final int URL_LENGTH_SIZE = 2;
+    private static final int MAX_URL_LENGTH = 0xFFFF;
+    private static final int CELL_BYTES = 16; // Код со слотом и версия
+    private static final int SLOT_BYTES = 20; // Владелец, счётчик, лимит, срок жизни и смещение адреса
+    private static final int OWNER_BYTES = 20; // UUID и число ссылок владельца
+    private static final VarHandle USE_COUNTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int maxLinks;
+    private final StampedLock lock = new StampedLock();
+
+    // Ячейки таблицы: (код + 1) << SLOT_BITS | слот или TOMBSTONE (0 - пустая ячейка) и версия кода
+    private long[] cells = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int usedCells;
+
+    // Поля записей по номеру слота. Счётчик переходов меняется и под блокировкой чтения - только через USE_COUNTS
+    private int[] owners = new int[INITIAL_CAPACITY];
+    private int[] useCounts = new int[INITIAL_CAPACITY];
+    private int[] useLimits = new int[INITIAL_CAPACITY];
+    private int[] expiries = new int[INITIAL_CAPACITY];
+    private int[] urls = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+    private int slotCount;
+
+    // Словарь владельцев: номер -> UUID и число ссылок; таблица с открытой адресацией хранит номер + 1 (0 - пустая ячейка).
+    // Номера владельцев, у которых не осталось ссылок, освобождаются при перестроении таблицы кодов
+    private long[] ownerMsbs = new long[INITIAL_CAPACITY];
+    private long[] ownerLsbs = new long[INITIAL_CAPACITY];
+    private int[] ownerLinks = new int[INITIAL_CAPACITY];
+    private int[] ownerCells = new int[INITIAL_CAPACITY];
+    private int ownerCount;
+    private int idleOwners;
+
+    private byte[][] pages = new byte[16][];
+    private int pageCount;
+    private int pagePosition = PAGE_SIZE;
+    private long urlBytes;
+    private long garbageBytes;
+
+    private long sequence;
+    private long generation;
+    private volatile int live;
+
+    public RedirectIndex(int maxLinks) {
+        this.maxLinks = Math.min(maxLinks, MAX_SLOTS);
+    }
+
+    @Override
+    public Lookup lookup(String shortUrl) {
+        long key = key(shortUrl);
+        if (key < 0) {
+            return new Lookup(NOT_INDEXED, null);
+        }
+        return read(() -> {
+            int cell = find(cells, key + 1);
+            if (cells[cell] == 0) {
+                return new Lookup(-1 - generation, null);
+            }
+            int slot = slotOf(cells[cell]);
+            return new Lookup(versions[cell], (slot == TOMBSTONE) ? null : entry(shortUrl, slot));
+        });
+    }
+
+    @Override
+    public long versionOf(String shortUrl) {
+        long key = key(shortUrl);
+        return (key < 0) ? NOT_INDEXED : read(() -> version(key));
+    }
+
+    // Переход по ссылке из индекса: срок и лимит проверяются, а счётчик увеличивается в массиве. null - кода в индексе нет
+    public RedirectStore.Click click(String shortUrl, LocalDateTime now) {
+        long key = key(shortUrl);
+        if (key < 0) {
+            return null;
+        }
+        long stamp = lock.readLock();
+        try {
+            long cell = cells[find(cells, key + 1)];
+            int slot = slotOf(cell);
+            if (cell == 0 || slot == TOMBSTONE) {
+                return null;
+            }
+            if (expired(expiries[slot], now)) {
+                return new RedirectStore.Click(AccessResult.expired(shortUrl), false);
+            }
+            int useLimit = useLimits[slot];
+            int useCount;
+            do {
+                useCount = (int) USE_COUNTS.getVolatile(useCounts, slot);
+                if (useCount >= useLimit) {
+                    return new RedirectStore.Click(AccessResult.limitReached(shortUrl), false);
+                }
+            } while (!USE_COUNTS.compareAndSet(useCounts, slot, useCount, useCount + 1));
+            return new RedirectStore.Click(AccessResult.ok(shortUrl, longUrl(slot)), useCount + 1 == useLimit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void putAll(Collection<RedirectEntry> entries) {
+        long stamp = lock.writeLock();
+        try {
+            entries.forEach(this::store);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Записи не сохраняются и сверх max-links, и когда адрес не помещается на страницу или страницы кончились
+    @Override
+    public int putAllIfUnchanged(Collection<RedirectEntry> entries, Map<String, Long> versions) {
+        long stamp = lock.writeLock();
+        try {
+            int stored = 0;
+            for (RedirectEntry entry : entries) {
+                long key = key(entry.getShortUrl());
+                Long version = versions.get(entry.getShortUrl());
+                if (key >= 0 && version != null && version == version(key) && store(entry)) {
+                    stored++;
+                }
+            }
+            return stored;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Map<String, Long> removeAll(Collection<String> shortUrls) {
+        long stamp = lock.writeLock();
+        try {
+            Map<String, Long> removed = new HashMap<>();
+            for (String shortUrl : shortUrls) {
+                long key = key(shortUrl);
+                if (key < 0) {
+                    removed.put(shortUrl, NOT_INDEXED);
+                    continue;
+                }
+                int cell = claimCell(key + 1);
+                int slot = slotOf(cells[cell]);
+                if (slot != TOMBSTONE) {
+                    releaseSlot(slot);
+                    cells[cell] = cellOf(key + 1, TOMBSTONE);
+                }
+                versions[cell] = ++sequence;
+                removed.put(shortUrl, versions[cell]);
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addUseCounts(Map<String, Integer> deltas) {
+        long stamp = lock.writeLock();
+        try {
+            for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                long key = key(delta.getKey());
+                int cell = (key < 0) ? -1 : find(cells, key + 1);
+                if (cell >= 0 && cells[cell] != 0 && slotOf(cells[cell]) != TOMBSTONE) {
+                    useCounts[slotOf(cells[cell])] += delta.getValue();
+                    versions[cell] = ++sequence;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return live;
+    }
+
+    // Занятая массивами и страницами адресов память, без заголовков массивов
+    public long footprint() {
+        long stamp = lock.readLock();
+        try {
+            return (long) cells.length * CELL_BYTES
+                    + (long) urls.length * SLOT_BYTES + (long) freeSlots.length * Integer.BYTES
+                    + (long) ownerMsbs.length * OWNER_BYTES + (long) ownerCells.length * Integer.BYTES
+                    + (long) pageCount * PAGE_SIZE;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException ex) {
+                // Чтение совпало с изменением и увидело массивы в промежуточном состоянии
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long key(String shortUrl) {
+        return (shortUrl.length() == CODE_LENGTH && Base62.isValid(shortUrl)) ? Base62.decode(shortUrl) : -1;
+    }
+
+    private static long cellOf(long stored, int slot) {
+        return (stored << SLOT_BITS) | slot;
+    }
+
+    private static int slotOf(long cell) {
+        return (int) cell & TOMBSTONE;
+    }
+
+    // Ячейка с ключом или пустая ячейка, с которой его можно вставить. Таблица заполнена не больше чем на 3/4,
+    // поэтому пустая ячейка на пути пробирования всегда есть
+    private static int find(long[] cells, long stored) {
+        int mask = cells.length - 1;
+        int cell = (int) ((stored * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (cells[cell] != 0 && cells[cell] >>> SLOT_BITS != stored) {
+            cell = (cell + 1) & mask;
+        }
+        return cell;
+    }
+
+    private long version(long key) {
+        int cell = find(cells, key + 1);
+        return (cells[cell] == 0) ? -1 - generation : versions[cell];
+    }
+
+    private RedirectEntry entry(String shortUrl, int slot) {
+        int owner = owners[slot];
+        return new RedirectEntry(shortUrl, longUrl(slot), new UUID(ownerMsbs[owner], ownerLsbs[owner]),
+                useCounts[slot], useLimits[slot],
+                LocalDateTime.ofEpochSecond(Integer.toUnsignedLong(expiries[slot]), 0, ZoneOffset.UTC));
+    }
+
+    private String longUrl(int slot) {
+        int location = urls[slot];
+        byte[] page = pages[location >>> PAGE_BITS];
+        int position = location & (PAGE_SIZE - 1);
+        int length = ((page[position] & 0xFF) << 8) | (page[position + 1] & 0xFF);
+        return new String(page, position + URL_LENGTH_SIZE, length, StandardCharsets.UTF_8);
+    }
+
+    // Срок жизни - секунды эпохи без знака (до 2106 года), округлённые вверх: ссылка из индекса не перестаёт
+    // действовать раньше срока из БД
+    private static int expiry(LocalDateTime expiresAt) {
+        long seconds = expiresAt.toEpochSecond(ZoneOffset.UTC) + ((expiresAt.getNano() > 0) ? 1 : 0);
+        return (int) Math.max(0, Math.min(seconds, MAX_EXPIRY));
+    }
+
+    private static boolean expired(int expiry, LocalDateTime now) {
+        long seconds = now.toEpochSecond(ZoneOffset.UTC);
+        long expiresAt = Integer.toUnsignedLong(expiry);
+        return seconds > expiresAt || (seconds == expiresAt && now.getNano() > 0);
+    }
+
+    private boolean store(RedirectEntry entry) {
+        long key = key(entry.getShortUrl());
+        byte[] longUrl = entry.getLongUrl().getBytes(StandardCharsets.UTF_8);
+        if (key < 0 || longUrl.length > MAX_URL_LENGTH) {
+            return false;
+        }
+        int cell = find(cells, key + 1);
+        int slot = (cells[cell] == 0) ? TOMBSTONE : slotOf(cells[cell]);
+        if (slot == TOMBSTONE && live >= maxLinks) {
+            return false;
+        }
+
+        int location = (slot != TOMBSTONE && sameUrl(urls[slot], longUrl)) ? urls[slot] : appendUrl(longUrl);
+        if (location < 0) {
+            return false;
+        }
+        if (slot == TOMBSTONE) {
+            cell = claimCell(key + 1); // Таблица могла быть перестроена
+            slot = claimSlot();
+            cells[cell] = cellOf(key + 1, slot);
+        } else {
+            releaseOwner(owners[slot]);
+            if (location != urls[slot]) {
+                garbageBytes += urlSize(urls[slot]);
+            }
+        }
+
+        urls[slot] = location;
+        owners[slot] = acquireOwner(entry.getCreatorId());
+        useCounts[slot] = entry.getUseCount();
+        useLimits[slot] = entry.getUseLimit();
+        expiries[slot] = expiry(entry.getExpiresAt());
+        versions[cell] = ++sequence;
+        return true;
+    }
+
+    // Ячейка для ключа; новая ячейка создаётся надгробием
+    private int claimCell(long stored) {
+        int cell = find(cells, stored);
+        if (cells[cell] != 0) {
+            return cell;
+        }
+        if ((usedCells + 1) * 4L > cells.length * 3L) {
+            rebuild();
+            cell = find(cells, stored);
+        }
+        cells[cell] = cellOf(stored, TOMBSTONE);
+        usedCells++;
+        return cell;
+    }
+
+    // Таблица переписывается без надгробий в размер, заполненный живыми кодами не больше чем наполовину
+    private void rebuild() {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < live * 2L) {
+            capacity <<= 1;
+        }
+        long[] newCells = new long[capacity];
+        long[] newVersions = new long[capacity];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0 && slotOf(cells[cell]) != TOMBSTONE) {
+                int target = find(newCells, cells[cell] >>> SLOT_BITS);
+                newCells[target] = cells[cell];
+                newVersions[target] = versions[cell];
+            }
+        }
+        cells = newCells;
+        versions = newVersions;
+        usedCells = live;
+        generation++;
+        if (idleOwners * 2L > ownerCount) {
+            compactOwners();
+        }
+    }
+
+    private int claimSlot() {
+        live++;
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == urls.length) {
+            int capacity = (int) Math.max(slotCount + 1L, Math.min(urls.length * 2L, maxLinks));
+            owners = Arrays.copyOf(owners, capacity);
+            useCounts = Arrays.copyOf(useCounts, capacity);
+            useLimits = Arrays.copyOf(useLimits, capacity);
+            expiries = Arrays.copyOf(expiries, capacity);
+            urls = Arrays.copyOf(urls, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void releaseSlot(int slot) {
+        live--;
+        garbageBytes += urlSize(urls[slot]);
+        releaseOwner(owners[slot]);
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int acquireOwner(UUID creatorId) {
+        long msb = creatorId.getMostSignificantBits();
+        long lsb = creatorId.getLeastSignificantBits();
+        int cell = findOwner(ownerCells, msb, lsb);
+        if (ownerCells[cell] != 0) {
+            int owner = ownerCells[cell] - 1;
+            if (ownerLinks[owner]++ == 0) {
+                idleOwners--;
+            }
+            return owner;
+        }
+
+        if ((ownerCount + 1) * 4L > ownerCells.length * 3L) {
+            ownerCells = ownerTable(ownerCells.length * 2);
+            cell = findOwner(ownerCells, msb, lsb);
+        }
+        if (ownerCount == ownerMsbs.length) {
+            ownerMsbs = Arrays.copyOf(ownerMsbs, ownerCount * 2);
+            ownerLsbs = Arrays.copyOf(ownerLsbs, ownerCount * 2);
+            ownerLinks = Arrays.copyOf(ownerLinks, ownerCount * 2);
+        }
+        ownerMsbs[ownerCount] = msb;
+        ownerLsbs[ownerCount] = lsb;
+        ownerLinks[ownerCount] = 1;
+        ownerCells[cell] = ++ownerCount;
+        return ownerCount - 1;
+    }
+
+    private void releaseOwner(int owner) {
+        if (--ownerLinks[owner] == 0) {
+            idleOwners++;
+        }
+    }
+
+    private int findOwner(int[] table, long msb, long lsb) {
+        int mask = table.length - 1;
+        int cell = (int) (((msb ^ lsb) * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (table[cell] != 0 && (ownerMsbs[table[cell] - 1] != msb || ownerLsbs[table[cell] - 1] != lsb)) {
+            cell = (cell + 1) & mask;
+        }
+        return cell;
+    }
+
+    private int[] ownerTable(int capacity) {
+        int[] table = new int[capacity];
+        for (int owner = 0; owner < ownerCount; owner++) {
+            table[findOwner(table, ownerMsbs[owner], ownerLsbs[owner])] = owner + 1;
+        }
+        return table;
+    }
+
+    // Владельцы с ссылками получают номера по порядку, слоты живых кодов - новые номера своих владельцев
+    private void compactOwners() {
+        int[] renumbered = new int[ownerCount];
+        int count = 0;
+        for (int owner = 0; owner < ownerCount; owner++) {
+            if (ownerLinks[owner] > 0) {
+                ownerMsbs[count] = ownerMsbs[owner];
+                ownerLsbs[count] = ownerLsbs[owner];
+                ownerLinks[count] = ownerLinks[owner];
+                renumbered[owner] = count++;
+            }
+        }
+        for (long cell : cells) {
+            if (cell != 0 && slotOf(cell) != TOMBSTONE) {
+                owners[slotOf(cell)] = renumbered[owners[slotOf(cell)]];
+            }
+        }
+        ownerCount = count;
+        idleOwners = 0;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < count * 2L) {
+            capacity <<= 1;
+        }
+        ownerCells = ownerTable(capacity);
+    }
+
+    private boolean sameUrl(int location, byte[] longUrl) {
+        byte[] page = pages[location >>> PAGE_BITS];
+        int position = location & (PAGE_SIZE - 1);
+        return urlSize(location) == URL_LENGTH_SIZE + longUrl.length
+                && Arrays.equals(page, position + URL_LENGTH_SIZE, position + URL_LENGTH_SIZE + longUrl.length,
+                longUrl, 0, longUrl.length);
+    }
+
+    private int urlSize(int location) {
+        byte[] page = pages[location >>> PAGE_BITS];
+        int position = location & (PAGE_SIZE - 1);
+        return URL_LENGTH_SIZE + (((page[position] & 0xFF) << 8) | (page[position + 1] & 0xFF));
+    }
+
+    // Смещение записанного адреса или -1, если страницы кончились. Когда больше половины занятого места - адреса
+    // удалённых и изменённых ссылок, живые адреса сначала переписываются на новые страницы
+    private int appendUrl(byte[] longUrl) {
+        int size = URL_LENGTH_SIZE + longUrl.length;
+        if (pagePosition + size > PAGE_SIZE && garbageBytes * 2 > urlBytes) {
+            compactUrls();
+        }
+        if (pagePosition + size > PAGE_SIZE) {
+            if (pageCount == MAX_PAGES) {
+                return -1;
+            }
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pages.length * 2);
+            }
+            pages[pageCount++] = new byte[PAGE_SIZE];
+            pagePosition = 0;
+        }
+        int location = ((pageCount - 1) << PAGE_BITS) | pagePosition;
+        byte[] page = pages[pageCount - 1];
+        page[pagePosition] = (byte) (longUrl.length >>> 8);
+        page[pagePosition + 1] = (byte) longUrl.length;
+        System.arraycopy(longUrl, 0, page, pagePosition + URL_LENGTH_SIZE, longUrl.length);
+        pagePosition += size;
+        urlBytes += size;
+        return location;
+    }
+
+    private void compactUrls() {
+        byte[][] oldPages = pages;
+        int[] oldUrls = urls.clone();
+        pages = new byte[Math.max(16, pageCount)][];
+        pageCount = 0;
+        pagePosition = PAGE_SIZE;
+        urlBytes = 0;
+        garbageBytes = 0;
+        for (long cell : cells) {
+            if (cell != 0 && slotOf(cell) != TOMBSTONE) {
+                int slot = slotOf(cell);
+                int location = oldUrls[slot];
+                byte[] page = oldPages[location >>> PAGE_BITS];
+                int position = location & (PAGE_SIZE - 1);
+                int length = ((page[position] & 0xFF) << 8) | (page[position + 1] & 0xFF);
+                urls[slot] = appendUrl(Arrays.copyOfRange(page, position + URL_LENGTH_SIZE,
+                        position + URL_LENGTH_SIZE + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package ru.mephi.url.store;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Журнальное хранилище записей для перехода: файл, в который записи только дописываются, и индекс в памяти
+// "код -> смещение последней записи кода". Запись читается одним позиционным чтением, изменение дописывает
+// новую запись, удаление - надгробие. При открытии индекс восстанавливается чтением журнала; запись с неверной
+// контрольной суммой или оборванная в конце файла (сбой посреди записи) отрезается вместе со всем, что после неё.
+// Уплотнение переписывает живые записи в новый файл, не останавливая чтение и запись
+@Slf4j
+public class RedirectLog implements RedirectTable, Closeable {
+    public static final String FILE_NAME = "redirects.log";
+    private static final String COMPACT_FILE_NAME = "redirects.log.compact";
+
+    private static final int HEADER_SIZE = 8; // Длина тела записи и CRC32 тела
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int OFFSET_BITS = 41;
+
+    private final Path file;
+    private final Path compactFile;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock compactLock = new ReentrantLock(); // Не synchronized: уплотнение переписывает файл
+    private volatile Segment segment;
+
+    private RedirectLog(Path file, Segment segment) {
+        this.file = file;
+        this.compactFile = file.resolveSibling(COMPACT_FILE_NAME);
+        this.segment = segment;
+    }
+
+    public static RedirectLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(COMPACT_FILE_NAME)); // Уплотнение, прерванное до замены файла
+        Path file = directory.resolve(FILE_NAME);
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(channel, 0);
+        try {
+            long valid = replay(channel, 0, channel.size(), (shortUrl, type, offset, body) ->
+                    segment.apply(shortUrl, type, offset));
+            segment.size = valid;
+            if (valid < channel.size()) {
+                log.warn("Журнал переходов {} повреждён с позиции {}, отрезано {} байт", file, valid, channel.size() - valid);
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        log.info("Журнал переходов {}: {} ссылок, {} записей", file, segment.live, segment.records);
+        return new RedirectLog(file, segment);
+    }
+
+    @Override
+    public Lookup lookup(String shortUrl) {
+        while (true) {
+            Segment current = segment;
+            Long location = current.index.get(shortUrl);
+            if (location == null || location < 0) {
+                return new Lookup(current.version(location), null);
+            }
+            try {
+                return new Lookup(current.version(location), decode(readBody(current.channel, location)));
+            } catch (ClosedChannelException ex) {
+                if (segment == current) {
+                    throw new UncheckedIOException(ex);
+                }
+                // Файл заменён уплотнением: смещение нужно взять из нового индекса
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    public void putAll(Collection<RedirectEntry> entries) {
+        writeLock.lock();
+        try {
+            Batch batch = new Batch();
+            entries.forEach(entry -> batch.add(PUT, entry.getShortUrl(), entry));
+            append(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Сохраняются только записи кодов, которые не менялись с получения версий (и журнал не уплотнялся)
+    @Override
+    public int putAllIfUnchanged(Collection<RedirectEntry> entries, Map<String, Long> versions) {
+        writeLock.lock();
+        try {
+            Batch batch = new Batch();
+            for (RedirectEntry entry : entries) {
+                Long version = versions.get(entry.getShortUrl());
+                if (version != null && version == versionOf(entry.getShortUrl())) {
+                    batch.add(PUT, entry.getShortUrl(), entry);
+                }
+            }
+            append(batch);
+            return batch.codes.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Надгробия для кодов; возвращает их версии. Надгробия сразу сбрасываются на диск: потерянное при отключении
+    // питания надгробие вернуло бы прежнюю запись кода, а потерянная запись - только промах и чтение из БД
+    @Override
+    public Map<String, Long> removeAll(Collection<String> shortUrls) {
+        writeLock.lock();
+        try {
+            Batch batch = new Batch();
+            shortUrls.forEach(shortUrl -> batch.add(REMOVE, shortUrl, null));
+            append(batch);
+            sync();
+
+            Map<String, Long> versions = new HashMap<>();
+            for (String shortUrl : shortUrls) {
+                versions.put(shortUrl, versionOf(shortUrl));
+            }
+            return versions;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Переходы добавляются только к ссылкам, которые есть в журнале: остальные будут прочитаны из БД целиком
+    @Override
+    public void addUseCounts(Map<String, Integer> deltas) {
+        writeLock.lock();
+        try {
+            Batch batch = new Batch();
+            for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                RedirectEntry entry = lookup(delta.getKey()).entry();
+                if (entry != null) {
+                    entry.addUseCount(delta.getValue());
+                    batch.add(PUT, entry.getShortUrl(), entry);
+                }
+            }
+            append(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long versionOf(String shortUrl) {
+        Segment current = segment;
+        return current.version(current.index.get(shortUrl));
+    }
+
+    @Override
+    public int size() {
+        return segment.live;
+    }
+
+    // Доля записей файла, которые уже перекрыты более новыми записями или являются надгробиями
+    public double garbageRatio() {
+        Segment current = segment;
+        return (current.records == 0) ? 0 : 1 - (double) current.live / current.records;
+    }
+
+    public long fileSize() {
+        return segment.size;
+    }
+
+    public void sync() {
+        try {
+            segment.channel.force(false);
+        } catch (ClosedChannelException ex) {
+            // Файл заменён уплотнением, новый уже сброшен на диск
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Живые записи, известные к началу уплотнения, копируются без блокировки; записи, дописанные за это время,
+    // переносятся под блокировкой записи, после чего новый файл атомарно заменяет старый. Надгробия
+    // из скопированной части не переносятся: более ранних записей этих кодов в новом файле нет
+    public void compact() throws IOException {
+        compactLock.lock();
+        try {
+            compactLocked();
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        Segment old = segment;
+        long boundary;
+        writeLock.lock();
+        try {
+            boundary = old.size;
+        } finally {
+            writeLock.unlock();
+        }
+
+        Segment fresh = new Segment(FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                old.generation + 1);
+        boolean swapped = false;
+        try {
+            for (Map.Entry<String, Long> location : old.index.entrySet()) {
+                if (location.getValue() >= 0 && location.getValue() < boundary) {
+                    long copied = fresh.size;
+                    fresh.write(frame(readBody(old.channel, location.getValue())));
+                    fresh.apply(location.getKey(), PUT, copied);
+                }
+            }
+
+            writeLock.lock();
+            try {
+                replay(old.channel, boundary, old.size, (shortUrl, type, offset, body) -> {
+                    long location = fresh.size;
+                    fresh.write(frame(body));
+                    fresh.apply(shortUrl, type, location);
+                });
+                fresh.channel.force(true);
+                Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                segment = fresh;
+                swapped = true;
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            if (swapped) {
+                old.channel.close();
+            } else {
+                fresh.channel.close();
+                Files.deleteIfExists(compactFile);
+            }
+        }
+        log.info("Журнал переходов уплотнён: {} ссылок, {} байт вместо {}", fresh.live, fresh.size, old.size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            segment.channel.force(true);
+            segment.channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой записи: записи пакета попадают в файл одним вызовом write
+    private void append(Batch batch) {
+        if (batch.codes.isEmpty()) {
+            return;
+        }
+        Segment current = segment;
+        long position = current.size;
+        try {
+            current.write(batch.bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        for (int i = 0; i < batch.codes.size(); i++) {
+            current.apply(batch.codes.get(i), batch.types.get(i), position + batch.offsets.get(i));
+        }
+    }
+
+    private static byte[] readBody(FileChannel channel, long location) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, location);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, body, location + HEADER_SIZE);
+        return body.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Запись журнала переходов обрывается на позиции " + position);
+            }
+        }
+    }
+
+    private static byte[] encode(byte type, String shortUrl, RedirectEntry entry) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(type);
+            out.writeUTF(shortUrl);
+            if (entry != null) {
+                out.writeUTF(entry.getLongUrl());
+                out.writeLong(entry.getCreatorId().getMostSignificantBits());
+                out.writeLong(entry.getCreatorId().getLeastSignificantBits());
+                out.writeInt(entry.getUseCount());
+                out.writeInt(entry.getUseLimit());
+                out.writeLong(entry.getExpiresAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(entry.getExpiresAt().getNano());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return frame(body.toByteArray());
+    }
+
+    private static byte[] frame(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(HEADER_SIZE + body.length)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body)
+                .array();
+    }
+
+    private static RedirectEntry decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        in.readByte();
+        String shortUrl = in.readUTF();
+        String longUrl = in.readUTF();
+        UUID creatorId = new UUID(in.readLong(), in.readLong());
+        int useCount = in.readInt();
+        int useLimit = in.readInt();
+        LocalDateTime expiresAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new RedirectEntry(shortUrl, longUrl, creatorId, useCount, useLimit, expiresAt);
+    }
+
+    private static long replay(FileChannel channel, long from, long to, RecordHandler handler) throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(from)), 1 << 16);
+        return replay(in, from, to, handler);
+    }
+
+    // Разбирает записи подряд с позиции from и возвращает конец последней целой записи
+    private static long replay(InputStream source, long from, long to, RecordHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        long position = from;
+        while (to - position >= HEADER_SIZE) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > to - position - HEADER_SIZE) {
+                break;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+            byte type = fields.readByte();
+            String shortUrl = fields.readUTF();
+            handler.handle(shortUrl, type, position, body);
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void handle(String shortUrl, byte type, long offset, byte[] body) throws IOException;
+    }
+
+    // Записи, дописываемые одной операцией, и их смещения от начала пакета
+    private static final class Batch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<String> codes = new ArrayList<>();
+        private final List<Byte> types = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+
+        private void add(byte type, String shortUrl, RedirectEntry entry) {
+            codes.add(shortUrl);
+            types.add(type);
+            offsets.add((long) bytes.size());
+            bytes.writeBytes(encode(type, shortUrl, entry));
+        }
+    }
+
+    // Файл журнала и индекс по нему. size, records и live меняются под блокировкой записи.
+    // generation увеличивается при каждом уплотнении
+    private static final class Segment {
+        private final FileChannel channel;
+        private final int generation;
+        private final ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+        private volatile long size;
+        private volatile int records;
+        private volatile int live;
+
+        private Segment(FileChannel channel, int generation) {
+            this.channel = channel;
+            this.generation = generation;
+        }
+
+        // Версия включает номер файла: после уплотнения то же смещение означает другую запись.
+        // Отсутствующий код получает версию со всеми единицами в смещении - такого смещения в журнале не бывает
+        private long version(Long location) {
+            long offsetMask = (1L << OFFSET_BITS) - 1;
+            long state;
+            if (location == null) {
+                state = (1L << OFFSET_BITS) | offsetMask;
+            } else if (location < 0) {
+                state = (1L << OFFSET_BITS) | (-location - 1);
+            } else {
+                state = location;
+            }
+            return ((long) generation << (OFFSET_BITS + 1)) | state;
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer, size);
+            }
+        }
+
+        // Надгробие хранится в индексе как -(смещение + 1)
+        private void apply(String shortUrl, byte type, long location) {
+            Long previous = index.put(shortUrl, (type == PUT) ? location : -location - 1);
+            boolean wasLive = previous != null && previous >= 0;
+            if (type == PUT && !wasLive) {
+                live++;
+            } else if (type == REMOVE && wasLive) {
+                live--;
+            }
+            records++;
+        }
+    }
+}
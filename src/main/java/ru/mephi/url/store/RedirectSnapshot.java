@@ -0,0 +1,257 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.RemovedCode;
+import ru.mephi.url.model.UpdatedURL;
+import ru.mephi.url.repository.RemovedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Снимок действующих ссылок (SnapshotFile) для быстрого старта: после перезапуска переходы отдаются из отображённого
+// в память файла, пока кэш переходов не заполнится, вместо запросов в БД. Снимок записывается раз в app.snapshot.interval,
+// при запуске открывается последний записанный. Ссылки, изменённые после снимка, берутся из БД: при открытии
+// и затем раз в app.snapshot.refresh-interval из БД читаются коды с updated_at не раньше момента снимка
+// (за вычетом app.snapshot.change-overlap на расхождение часов и незавершённые транзакции) и удалённые пользователями
+// коды из removed_codes, а изменения этого экземпляра отмечаются сразу. Отмеченные коды снимок не отдаёт.
+// Переходы updated_at не сдвигают: счётчик к записи из снимка дочитывает JpaRedirectStore.
+// Без app.snapshot.enabled снимок не пишется и не читается, удаления не запоминаются
+@Component
+@Slf4j
+public class RedirectSnapshot {
+    private static final String TEMP_FILE_NAME = SnapshotFile.FILE_NAME + ".tmp";
+
+    private final ShortURLRepository urlRepository;
+    private final RemovedCodeRepository removedCodeRepository;
+    private final Shards shards;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration changeOverlap;
+    private final Duration maxAge;
+    private final int chunkSize;
+    private final Counter hits;
+    private final Lock lock = new ReentrantLock(); // Не synchronized: открытие, чтение изменений и запись ходят в БД и на диск
+
+    // Код -> момент изменения: updated_at или removed_at для изменений из БД, момент отметки для изменений этого экземпляра.
+    // Отметки старше нового снимка снимаются при его открытии
+    private final ConcurrentHashMap<String, LocalDateTime> changed = new ConcurrentHashMap<>();
+    private volatile SnapshotFile snapshot;
+    private LocalDateTime changesSince;
+
+    public RedirectSnapshot(ShortURLRepository urlRepository, RemovedCodeRepository removedCodeRepository,
+                            Shards shards, ShortURLConfig config, MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.removedCodeRepository = removedCodeRepository;
+        this.shards = shards;
+        ShortURLConfig.Snapshot settings = config.getSnapshot();
+        this.enabled = settings.isEnabled();
+        this.directory = Path.of(settings.getDirectory());
+        this.changeOverlap = settings.getChangeOverlap();
+        this.maxAge = settings.getMaxAge();
+        this.chunkSize = config.getCleanup().getChunkSize();
+
+        Gauge.builder("shortener.redirect.snapshot.links", this, s -> (s.snapshot != null) ? s.snapshot.size() : 0)
+                .description("Ссылки в открытом снимке переходов")
+                .register(meterRegistry);
+        Gauge.builder("shortener.redirect.snapshot.changed", changed, ConcurrentHashMap::size)
+                .description("Коды, изменённые после снимка переходов")
+                .register(meterRegistry);
+        this.hits = Counter.builder("shortener.redirect.snapshot.hits")
+                .description("Записи для перехода, отданные из снимка")
+                .register(meterRegistry);
+    }
+
+    // Пустой ответ не означает, что ссылки нет: новые, изменённые и недействующие ссылки читаются из БД
+    public Optional<RedirectEntry> find(String shortUrl) {
+        SnapshotFile current = snapshot;
+        if (current == null || changed.containsKey(shortUrl)) {
+            return Optional.empty();
+        }
+        Optional<RedirectEntry> entry;
+        try {
+            entry = current.find(shortUrl, Shards.shardOf(shortUrl, current.getSectionCount()));
+        } catch (IndexOutOfBoundsException ex) {
+            log.warn("Снимок переходов повреждён и больше не используется: {}", ex.getMessage());
+            snapshot = null;
+            return Optional.empty();
+        }
+        entry.ifPresent(found -> hits.increment());
+        return entry;
+    }
+
+    // Отметка ставится до коммита изменения: после него снимок уже не отдаст прежнюю запись
+    public void changed(Collection<String> shortUrls) {
+        if (enabled) {
+            LocalDateTime now = LocalDateTime.now();
+            shortUrls.forEach(shortUrl -> mark(shortUrl, now));
+        }
+    }
+
+    // Строки удалённой ссылки в БД не остаётся, поэтому удаление запоминается отдельно, в той же транзакции
+    public void removed(String shortUrl) {
+        if (enabled) {
+            changed(List.of(shortUrl));
+            removedCodeRepository.save(new RemovedCode(shortUrl, LocalDateTime.now()));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void open() {
+        lock.lock();
+        try {
+            openLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openLocked() {
+        Path file = directory.resolve(SnapshotFile.FILE_NAME);
+        if (!enabled || !Files.exists(file)) {
+            return;
+        }
+        try {
+            SnapshotFile opened = SnapshotFile.open(file);
+            if (opened.getCreatedAt().isBefore(LocalDateTime.now().minus(maxAge))) {
+                log.warn("Снимок переходов {} старше {} и не используется", file, maxAge);
+                return;
+            }
+            if (opened.getSectionCount() != shards.count()) {
+                log.warn("Снимок переходов {} записан для {} шардов вместо {} и не используется",
+                        file, opened.getSectionCount(), shards.count());
+                return;
+            }
+            use(opened);
+            log.info("Открыт снимок переходов {} от {}: {} ссылок, изменено после снимка {}",
+                    file, opened.getCreatedAt(), opened.size(), changed.size());
+        } catch (IOException ex) {
+            log.warn("Не удалось открыть снимок переходов {}: {}", file, ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.refresh-interval}")
+    public void refresh() {
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                readChanges();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ссылки читаются из основной БД порциями по коду, в каждом шарде - в свой раздел. Снимок пишется
+    // во временный файл и атомарно заменяет предыдущий, после чего этот экземпляр сразу переходит на него
+    @Scheduled(fixedDelayString = "${app.snapshot.interval}", initialDelayString = "${app.snapshot.interval}")
+    public void write() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            writeLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLocked() throws IOException {
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(TEMP_FILE_NAME);
+        LocalDateTime createdAt = LocalDateTime.now();
+        long links;
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(temp, createdAt, shards.count())) {
+            for (int shard = 0; shard < shards.count(); shard++) {
+                String after = "";
+                List<RedirectEntry> chunk;
+                do {
+                    String chunkAfter = after;
+                    chunk = shards.on(shard, () -> urlRepository.findActiveRedirectEntriesAfter(chunkAfter, createdAt,
+                            Limit.of(chunkSize)));
+                    for (RedirectEntry entry : chunk) {
+                        writer.add(shard, entry);
+                    }
+                    after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1).getShortUrl();
+                } while (chunk.size() == chunkSize);
+            }
+            links = writer.finish();
+        }
+        Path file = directory.resolve(SnapshotFile.FILE_NAME);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        use(SnapshotFile.open(file));
+
+        // Удаления старше max-age не нужны ни одному снимку, который ещё может быть открыт
+        LocalDateTime expired = createdAt.minus(maxAge);
+        int pruned = shards.onEach(() -> removedCodeRepository.deleteRemovedBefore(expired)).stream()
+                .mapToInt(Integer::intValue).sum();
+        log.info("Записан снимок переходов {}: {} ссылок, {} байт; удалено старых записей об удалении: {}",
+                file, links, Files.size(file), pruned);
+    }
+
+    // Изменения с момента снимка дочитываются до того, как снимок начнёт отдавать записи
+    private void use(SnapshotFile next) {
+        LocalDateTime since = next.getCreatedAt().minus(changeOverlap);
+        if (snapshot == null) {
+            changesSince = since;
+        }
+        readChanges();
+        snapshot = next;
+        changed.values().removeIf(markedAt -> markedAt.isBefore(since));
+    }
+
+    private void readChanges() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = changesSince;
+        shards.onEach(() -> {
+            readUpdated(since);
+            removedCodeRepository.findRemovedSince(since).forEach(code -> mark(code.getCode(), code.getRemovedAt()));
+            return null;
+        });
+        changesSince = startedAt.minus(changeOverlap);
+    }
+
+    // Изменённые ссылки читаются порциями по ключу (updated_at, id), как просроченные ссылки при очистке
+    private void readUpdated(LocalDateTime since) {
+        LocalDateTime afterUpdatedAt = since;
+        long afterId = 0;
+        List<UpdatedURL> chunk;
+        do {
+            chunk = urlRepository.findUpdatedChunk(afterUpdatedAt, afterId, Limit.of(chunkSize));
+            chunk.forEach(url -> mark(url.getShortUrl(), url.getUpdatedAt()));
+            if (!chunk.isEmpty()) {
+                UpdatedURL last = chunk.get(chunk.size() - 1);
+                afterUpdatedAt = last.getUpdatedAt();
+                afterId = last.getId();
+            }
+        } while (chunk.size() == chunkSize);
+    }
+
+    // Изменение, уже вошедшее в следующий снимок, снимается при его открытии, поэтому отметка - момент изменения,
+    // а не чтения: иначе ссылки, изменённые между чтениями изменений и записанные в снимок, оставались бы отмеченными
+    private void mark(String shortUrl, LocalDateTime changedAt) {
+        changed.merge(shortUrl, changedAt, (marked, next) -> next.isAfter(marked) ? next : marked);
+    }
+}
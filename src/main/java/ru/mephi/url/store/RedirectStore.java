@@ -0,0 +1,42 @@
+package ru.mephi.url.store;
+
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.ShortURL;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+// Хранилище записей для перехода по ссылке (код -> адрес, счётчик и лимит переходов, срок действия).
+// Таблица short_urls остаётся основной копией ссылок: методы saved, evicted и clicked сообщают хранилищу
+// об изменениях, уже сделанных в ней в текущей транзакции
+public interface RedirectStore {
+
+    Optional<RedirectEntry> findRedirectEntry(String shortUrl);
+
+    // Созданные ссылки
+    void saved(Collection<ShortURL> urls);
+
+    // Изменённые, удалённые и помеченные удалёнными ссылки
+    void evicted(Collection<String> shortUrls);
+
+    // Переходы, записанные в use_count
+    void clicked(Map<String, Integer> deltas);
+
+    // Хранилище само проверяет срок и лимит переходов по своим записям и ведёт их счётчики (движок memory):
+    // записи отдаются уже с переходами, ещё не сохранёнными в БД, а кэш перенаправлений перед ним не нужен
+    default boolean countsClicks() {
+        return false;
+    }
+
+    // Переход по ссылке, которая уже есть в хранилище, без обращения к БД. null - ссылки в хранилище нет
+    // или хранилище переходы не считает
+    default Click click(String shortUrl) {
+        return null;
+    }
+
+    // Итог перехода, проверенного и учтённого хранилищем; last - переход занял последний разрешённый лимитом
+    record Click(AccessResult result, boolean last) {
+    }
+}
@@ -0,0 +1,31 @@
+package ru.mephi.url.store;
+
+import ru.mephi.url.model.RedirectEntry;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Локальная таблица записей для перехода (журнал на диске или индекс в памяти процесса), которую LocalRedirectStore
+// держит согласованной с short_urls. Каждое изменение кода, в том числе надгробие для отсутствующего кода,
+// меняет его версию
+public interface RedirectTable {
+
+    // version - состояние кода в таблице на момент чтения: по нему putAllIfUnchanged узнаёт, что код с тех пор не менялся
+    record Lookup(long version, RedirectEntry entry) {
+    }
+
+    Lookup lookup(String shortUrl);
+
+    long versionOf(String shortUrl);
+
+    // Сохраняются только записи кодов, которые не менялись с получения версий; возвращает число сохранённых
+    int putAllIfUnchanged(Collection<RedirectEntry> entries, Map<String, Long> versions);
+
+    // Надгробия для кодов; возвращает их версии
+    Map<String, Long> removeAll(Collection<String> shortUrls);
+
+    // Переходы добавляются только к записям, которые есть в таблице
+    void addUseCounts(Map<String, Integer> deltas);
+
+    int size();
+}
@@ -0,0 +1,255 @@
+package ru.mephi.url.store;
+
+import ru.mephi.url.model.RedirectEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+// Неизменяемый снимок действующих ссылок, отображаемый в память. Файл делится на разделы по шардам кодов,
+// в каждом разделе - индекс записей фиксированной длины, отсортированный по коду, поэтому поиск - двоичный
+// по отображённому файлу, без чтения файла в кучу и без разбора записей, кроме найденной.
+// Формат: заголовок (сигнатура, версия, момент снимка, число разделов, смещение и размер индекса каждого раздела),
+// затем данные ссылок, затем индексы разделов. Элемент индекса - код (6 байт ASCII), 2 байта выравнивания
+// и смещение данных ссылки. Данные ссылки - владелец, счётчик, лимит, срок жизни и длинный адрес в UTF-8
+public final class SnapshotFile {
+    public static final String FILE_NAME = "redirects.snapshot";
+
+    private static final int MAGIC = 0x52534E50; // "RSNP"
+    private static final int VERSION = 1;
+    private static final int CODE_LENGTH = 6;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final int SECTION_SIZE = 12; // Смещение индекса раздела и число ссылок в нём
+    private static final int SECTIONS_OFFSET = 20;
+    private static final int ENTRY_FIXED_SIZE = 38; // Владелец, счётчик, лимит, срок жизни и длина адреса
+
+    private final MappedByteBuffer buffer;
+    private final LocalDateTime createdAt;
+    private final int sectionCount;
+    private final int size;
+
+    private SnapshotFile(MappedByteBuffer buffer, LocalDateTime createdAt, int sectionCount, int size) {
+        this.buffer = buffer;
+        this.createdAt = createdAt;
+        this.sectionCount = sectionCount;
+        this.size = size;
+    }
+
+    public static SnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Снимок переходов " + file + " больше 2 ГБ");
+            }
+            if (length < SECTIONS_OFFSET) {
+                throw new IOException("Снимок переходов " + file + " обрывается в заголовке");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Файл " + file + " не является снимком переходов версии " + VERSION);
+            }
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(8)), ZoneOffset.UTC);
+            int sectionCount = buffer.getInt(16);
+            if (sectionCount <= 0 || SECTIONS_OFFSET + (long) sectionCount * SECTION_SIZE > length) {
+                throw new IOException("Снимок переходов " + file + " обрывается в заголовке");
+            }
+
+            long size = 0;
+            for (int section = 0; section < sectionCount; section++) {
+                long indexOffset = buffer.getLong(SECTIONS_OFFSET + section * SECTION_SIZE);
+                int count = buffer.getInt(SECTIONS_OFFSET + section * SECTION_SIZE + 8);
+                if (count < 0 || indexOffset < 0 || indexOffset + (long) count * INDEX_ENTRY_SIZE > length) {
+                    throw new IOException("Индекс раздела " + section + " выходит за конец снимка переходов " + file);
+                }
+                size += count;
+            }
+            return new SnapshotFile(buffer, createdAt, sectionCount, (int) size);
+        }
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Двоичный поиск сравнивает код с байтами файла напрямую; объект создаётся только для найденной ссылки
+    public Optional<RedirectEntry> find(String shortUrl, int section) {
+        if (shortUrl.length() != CODE_LENGTH) {
+            return Optional.empty();
+        }
+        long indexOffset = buffer.getLong(SECTIONS_OFFSET + section * SECTION_SIZE);
+        int low = 0;
+        int high = buffer.getInt(SECTIONS_OFFSET + section * SECTION_SIZE + 8) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = (int) (indexOffset + (long) middle * INDEX_ENTRY_SIZE);
+            int comparison = compare(position, shortUrl);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return Optional.of(read(buffer.getInt(position + 8), shortUrl));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static Writer writer(Path file, LocalDateTime createdAt, int sectionCount) throws IOException {
+        return new Writer(file, createdAt, sectionCount);
+    }
+
+    private int compare(int position, String shortUrl) {
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int difference = (buffer.get(position + i) & 0xFF) - shortUrl.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private RedirectEntry read(int position, String shortUrl) {
+        UUID creatorId = new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+        int useCount = buffer.getInt(position + 16);
+        int useLimit = buffer.getInt(position + 20);
+        LocalDateTime expiresAt = LocalDateTime.ofEpochSecond(buffer.getLong(position + 24),
+                buffer.getInt(position + 32), ZoneOffset.UTC);
+        byte[] longUrl = new byte[buffer.getShort(position + 36) & 0xFFFF];
+        buffer.get(position + ENTRY_FIXED_SIZE, longUrl);
+        return new RedirectEntry(shortUrl, new String(longUrl, StandardCharsets.UTF_8), creatorId,
+                useCount, useLimit, expiresAt);
+    }
+
+    // Ссылки добавляются по разделам в порядке их номеров, внутри раздела - по возрастанию кода. Индексы разделов
+    // копятся во временном файле и дописываются после данных, заголовок заполняется последним, поэтому
+    // в памяти не держится ничего, кроме буферов записи
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path indexFile;
+        private final LocalDateTime createdAt;
+        private final long[] indexOffsets;
+        private final int[] counts;
+        private final DataOutputStream data;
+        private final DataOutputStream index;
+        private long position;
+        private int section;
+        private String previous;
+        private boolean finished;
+
+        private Writer(Path file, LocalDateTime createdAt, int sectionCount) throws IOException {
+            this.file = file;
+            this.indexFile = file.resolveSibling(file.getFileName() + ".index");
+            this.createdAt = createdAt;
+            this.indexOffsets = new long[sectionCount];
+            this.counts = new int[sectionCount];
+            this.data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), 1 << 16));
+            this.position = SECTIONS_OFFSET + (long) sectionCount * SECTION_SIZE;
+            data.write(new byte[(int) position]); // Место под заголовок
+        }
+
+        public void add(int section, RedirectEntry entry) throws IOException {
+            String shortUrl = entry.getShortUrl();
+            if (section < this.section || section >= counts.length) {
+                throw new IllegalArgumentException("Разделы снимка записываются по порядку, получен раздел " + section);
+            }
+            if (section > this.section) {
+                this.section = section;
+                previous = null;
+            }
+            if (shortUrl.length() != CODE_LENGTH || !shortUrl.chars().allMatch(c -> c < 0x80)) {
+                throw new IllegalArgumentException("Код '" + shortUrl + "' не помещается в снимок переходов");
+            }
+            // Двоичный поиск сравнивает байты: порядок сортировки БД должен с ним совпадать
+            if (previous != null && previous.compareTo(shortUrl) >= 0) {
+                throw new IllegalArgumentException("Коды снимка идут не по возрастанию: '" + shortUrl
+                        + "' после '" + previous + "'");
+            }
+            byte[] longUrl = entry.getLongUrl().getBytes(StandardCharsets.UTF_8);
+            if (position + ENTRY_FIXED_SIZE + longUrl.length > Integer.MAX_VALUE) {
+                throw new IOException("Снимок переходов больше 2 ГБ");
+            }
+
+            index.writeBytes(shortUrl);
+            index.writeShort(0);
+            index.writeInt((int) position);
+
+            data.writeLong(entry.getCreatorId().getMostSignificantBits());
+            data.writeLong(entry.getCreatorId().getLeastSignificantBits());
+            data.writeInt(entry.getUseCount());
+            data.writeInt(entry.getUseLimit());
+            data.writeLong(entry.getExpiresAt().toEpochSecond(ZoneOffset.UTC));
+            data.writeInt(entry.getExpiresAt().getNano());
+            data.writeShort(longUrl.length);
+            data.write(longUrl);
+            position += ENTRY_FIXED_SIZE + longUrl.length;
+
+            counts[section]++;
+            previous = shortUrl;
+        }
+
+        // Записывает индексы и заголовок и сбрасывает файл на диск; возвращает число ссылок в снимке
+        public long finish() throws IOException {
+            index.close();
+            long total = 0;
+            for (int section = 0; section < counts.length; section++) {
+                indexOffsets[section] = position + total * INDEX_ENTRY_SIZE;
+                total += counts[section];
+            }
+            if (position + total * INDEX_ENTRY_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Снимок переходов больше 2 ГБ");
+            }
+            Files.copy(indexFile, data);
+            data.close();
+
+            ByteBuffer header = ByteBuffer.allocate(SECTIONS_OFFSET + counts.length * SECTION_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(createdAt.toInstant(ZoneOffset.UTC).toEpochMilli())
+                    .putInt(counts.length);
+            for (int section = 0; section < counts.length; section++) {
+                header.putLong(indexOffsets[section]).putInt(counts[section]);
+            }
+            header.flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            finished = true;
+            return total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            index.close();
+            data.close();
+            Files.deleteIfExists(indexFile);
+            if (!finished) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -1,27 +1,49 @@
 package ru.mephi.url.validator;
 
 import jakarta.persistence.EntityExistsException;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.dto.ShortURLCreateDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.model.ShortURL;
 import ru.mephi.url.model.User;
 import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class ShortURLValidator {
     private final ShortURLRepository urlRepository;
+    private final Shards shards;
+    private final Validator beanValidator;
+    private final ShortURLConfig config;
 
-    public void validateAccess(ShortURL url) {
-        checkExpiration(url);
-        checkUseLimit(url);
+    // Проверки перехода без исключений: отказ возвращается как результат
+    public AccessResult checkAccess(RedirectEntry entry) {
+        if (entry.isExpired(LocalDateTime.now())) {
+            return AccessResult.expired(entry.getShortUrl());
+        }
+        if (entry.isLimitReached()) {
+            return AccessResult.limitReached(entry.getShortUrl());
+        }
+        return AccessResult.ok(entry);
     }
 
     public void validateUpdate(ShortURL url, ShortURLUpdateDto requestDto) {
@@ -41,15 +63,14 @@ public class ShortURLValidator {
     }
 
     public void checkExpiration(ShortURL url) {
-        LocalDateTime expirationTime = url.getCreatedAt().plusHours(url.getTtlHours());
-        if (LocalDateTime.now().isAfter(expirationTime)) {
-            throw new ValidationException("Время жизни ссылки '" + url.getShortUrl() + "' истекло");
+        if (LocalDateTime.now().isAfter(url.getExpiresAt())) {
+            throw expired(url.getShortUrl());
         }
     }
 
     public void checkUseLimit(ShortURL url) {
         if (url.getUseCount() >= url.getUseLimit()) {
-            throw new ValidationException("Лимит переходов по ссылке '" + url.getShortUrl() + "' исчерпан");
+            throw limitReached(url.getShortUrl());
         }
     }
 
@@ -70,12 +91,66 @@ public class ShortURLValidator {
         }
     }
 
+    // Ссылки пользователя могут лежать в любом шарде, поэтому проверка опрашивает их по очереди
     public void checkUniqueLongUrlForUser(User user, String longUrl) {
-        if (urlRepository.existsByLongUrlForUser(user, longUrl)) {
-            throw new EntityExistsException(
-                    "У пользователя с ID " + user.getId() + " уже есть активная короткая ссылка, " +
-                            "перенаправляющая на " + longUrl
+        long hash = ShortURL.hashLongUrl(longUrl);
+        if (IntStream.range(0, shards.count()).anyMatch(shard ->
+                shards.on(shard, () -> urlRepository.existsByLongUrlForUser(user, hash, longUrl)))) {
+            throw new EntityExistsException(duplicateLongUrlMessage(user, longUrl));
+        }
+    }
+
+    public void checkBatchSize(int size) {
+        if (size == 0 || size > config.getBatch().getMaxSize()) {
+            throw new ValidationException(
+                    "Пакет должен содержать от 1 до " + config.getBatch().getMaxSize() + " ссылок"
             );
         }
     }
+
+    public void checkPageSize(int size) {
+        if (size < 1 || size > config.getListing().getMaxPageSize()) {
+            throw new ValidationException(
+                    "Размер страницы должен быть от 1 до " + config.getListing().getMaxPageSize() + " ссылок"
+            );
+        }
+    }
+
+    // Первичная валидация элемента пакета вместо @Valid: ошибка в одном элементе не должна отклонять весь пакет
+    public Map<String, String> validateBatchItem(ShortURLCreateDto requestDto) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (requestDto == null) {
+            errors.put("longUrl", "Длинная ссылка обязательна для заполнения");
+            return errors;
+        }
+        for (ConstraintViolation<ShortURLCreateDto> violation : beanValidator.validate(requestDto)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    // Длинные ссылки из набора, которые у пользователя уже сокращены, - одним запросом на весь пакет
+    public Set<String> findTakenLongUrls(User user, Set<String> longUrls) {
+        if (longUrls.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<Long> hashes = longUrls.stream().map(ShortURL::hashLongUrl).collect(Collectors.toSet());
+        Set<String> taken = new HashSet<>();
+        shards.onEach(() -> urlRepository.findLongUrlsByHashes(user, hashes)).forEach(taken::addAll);
+        taken.retainAll(longUrls); // Совпадение хэша без совпадения ссылки - коллизия
+        return taken;
+    }
+
+    public String duplicateLongUrlMessage(User user, String longUrl) {
+        return "У пользователя с ID " + user.getId() + " уже есть активная короткая ссылка, " +
+                "перенаправляющая на " + longUrl;
+    }
+
+    private ValidationException expired(String shortUrl) {
+        return new ValidationException(AccessResult.expiredMessage(shortUrl));
+    }
+
+    private ValidationException limitReached(String shortUrl) {
+        return new ValidationException(AccessResult.limitReachedMessage(shortUrl));
+    }
 }
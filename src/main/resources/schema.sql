@@ -3,15 +3,65 @@ CREATE TABLE IF NOT EXISTS users (
 );
 
 CREATE TABLE IF NOT EXISTS short_urls (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     short_url VARCHAR(6) NOT NULL UNIQUE,
     long_url VARCHAR(2048) NOT NULL,
+    long_url_hash BIGINT NOT NULL,
     creator_id UUID NOT NULL,
     use_count INTEGER NOT NULL,
     use_limit INTEGER NOT NULL,
     created_at TIMESTAMP NOT NULL,
     ttl_hours INTEGER NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
     deleted BOOLEAN NOT NULL,
+    updated_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL,
 
     FOREIGN KEY (creator_id) REFERENCES users (id)
-);
\ No newline at end of file
+);
+
+-- Обновление БД, созданных до появления материализованных столбцов: добавление и заполнение существующих строк
+ALTER TABLE short_urls ADD COLUMN IF NOT EXISTS long_url_hash BIGINT;
+ALTER TABLE short_urls ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP;
+-- Существующие строки считаются изменёнными в момент обновления: снимков переходов до этого не было
+ALTER TABLE short_urls ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL;
+UPDATE short_urls SET long_url_hash = CAST(SUBSTRING(HASH('SHA-256', long_url), 1, 8) AS BIGINT) WHERE long_url_hash IS NULL;
+UPDATE short_urls SET expires_at = DATEADD('HOUR', ttl_hours, created_at) WHERE expires_at IS NULL;
+ALTER TABLE short_urls ALTER COLUMN long_url_hash SET NOT NULL;
+ALTER TABLE short_urls ALTER COLUMN expires_at SET NOT NULL;
+
+-- Идентификаторы ссылок выдаются из последовательности блоками по 50 (allocationSize в ShortURL). В БД, созданных
+-- до её появления, она начинается за последним выданным идентификатором, а столбец id перестаёт быть IDENTITY
+CREATE SEQUENCE IF NOT EXISTS short_urls_id_seq START WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM short_urls) INCREMENT BY 50;
+ALTER TABLE short_urls ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE short_urls ALTER COLUMN id SET DEFAULT NEXT VALUE FOR short_urls_id_seq;
+
+CREATE INDEX IF NOT EXISTS idx_short_urls_deleted_expires_at ON short_urls (deleted, expires_at);
+-- Хэш идёт первым: для условия long_url_hash IN (...) H2 использует из (creator_id, long_url_hash) только
+-- creator_id и перебирает все ссылки пользователя, что при пакетном создании и импорте растёт вместе с ним
+DROP INDEX IF EXISTS idx_short_urls_creator_long_url_hash;
+CREATE INDEX IF NOT EXISTS idx_short_urls_long_url_hash_creator ON short_urls (long_url_hash, creator_id);
+-- Постраничная выгрузка ссылок пользователя по ключу (creator_id, id)
+CREATE INDEX IF NOT EXISTS idx_short_urls_creator_id_id ON short_urls (creator_id, id);
+-- Список активных ссылок пользователя, новые первыми, по ключу (created_at, id). Столбцы по убыванию: обратный
+-- порядок H2 из обычного индекса не берёт и сортировал бы все ссылки пользователя ради каждой страницы
+CREATE INDEX IF NOT EXISTS idx_short_urls_creator_created_at ON short_urls (creator_id, deleted, created_at DESC, id DESC);
+-- Ссылки, изменённые после снимка переходов, порциями по ключу (updated_at, id)
+DROP INDEX IF EXISTS idx_short_urls_updated_at;
+CREATE INDEX IF NOT EXISTS idx_short_urls_updated_at_id ON short_urls (updated_at, id);
+
+-- Коды ссылок, удалённых пользователем: строки в short_urls уже нет, а снимок переходов должен узнать об удалении
+CREATE TABLE IF NOT EXISTS removed_codes (
+    code VARCHAR(6) PRIMARY KEY,
+    removed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_removed_codes_removed_at ON removed_codes (removed_at);
+
+CREATE TABLE IF NOT EXISTS reserved_codes (
+    code VARCHAR(6) PRIMARY KEY,
+    reserved_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_reserved_codes_reserved_at ON reserved_codes (reserved_at);
+
+CREATE SEQUENCE IF NOT EXISTS short_code_block_seq START WITH 0 MINVALUE 0;
\ No newline at end of file
@@ -0,0 +1,153 @@
+package ru.mephi.url.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.*;
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.model.User;
+import ru.mephi.url.store.RedirectIndex;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Память на ссылку при 10 млн действующих ссылок на всём пути перехода. У движка memory это только индекс RedirectIndex:
+// кэш перенаправлений перед ним не используется. У движков jpa и log записи для перехода держит кэш перенаправлений -
+// Caffeine с объектами RedirectEntry (redirectCache). Для сравнения - словари с ключами String и объектами RedirectEntry
+// или ShortURL (сущность с упакованными полями). У каждого пользователя LINKS_PER_USER ссылок, UUID владельца
+// в записи свой, как после чтения из БД.
+// Время - заполнение структуры, занятая ей куча после сборки мусора - во вспомогательном результате bytesPerLink
+// (JMH суммирует его по итерациям измерения, поэтому итерация одна).
+// Кэшу и словарям с 10 млн ссылок нужно несколько гигабайт кучи; меньший объём: -p links=1000000
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class RedirectIndexFootprintBenchmark {
+    private static final int BATCH_SIZE = 10_000;
+    private static final int LINKS_PER_USER = 10;
+
+    @Param("10000000")
+    public int links;
+
+    private LocalDateTime expiresAt;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerLink;
+        private long heapBefore;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            heapBefore = usedHeap();
+        }
+
+        private void measure(Object structure, int links) {
+            bytesPerLink = (double) (usedHeap() - heapBefore) / links;
+            if (structure == null) {
+                throw new IllegalStateException(); // Структура должна дожить до измерения
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expiresAt = LocalDateTime.now().plusHours(72);
+    }
+
+    @Benchmark
+    public Object index(Footprint footprint) {
+        RedirectIndex index = new RedirectIndex(links);
+        List<RedirectEntry> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < links; i++) {
+            batch.add(entry(i));
+            if (batch.size() == BATCH_SIZE) {
+                index.putAll(batch);
+                batch.clear();
+            }
+        }
+        index.putAll(batch);
+        footprint.measure(index, links);
+        return index;
+    }
+
+    @Benchmark
+    public Object redirectCache(Footprint footprint) {
+        Cache<String, RedirectEntry> cache = Caffeine.newBuilder()
+                .maximumSize(links)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        for (int i = 0; i < links; i++) {
+            RedirectEntry entry = entry(i);
+            cache.put(entry.getShortUrl(), entry);
+        }
+        cache.cleanUp();
+        footprint.measure(cache, links);
+        return cache;
+    }
+
+    @Benchmark
+    public Object redirectEntries(Footprint footprint) {
+        ConcurrentHashMap<String, RedirectEntry> entries = new ConcurrentHashMap<>();
+        for (int i = 0; i < links; i++) {
+            RedirectEntry entry = entry(i);
+            entries.put(entry.getShortUrl(), entry);
+        }
+        footprint.measure(entries, links);
+        return entries;
+    }
+
+    @Benchmark
+    public Object shortUrls(Footprint footprint) {
+        ConcurrentHashMap<String, ShortURL> urls = new ConcurrentHashMap<>();
+        User creator = null;
+        for (int i = 0; i < links; i++) {
+            if (i % LINKS_PER_USER == 0) {
+                creator = new User();
+                creator.setId(UUID.randomUUID());
+            }
+            ShortURL url = new ShortURL();
+            url.setId((long) i);
+            url.setShortUrl(Base62.encode(i, 6));
+            url.setLongUrl(longUrl(i));
+            url.setLongUrlHash((long) url.getLongUrl().hashCode());
+            url.setUseCount(i % 1000);
+            url.setUseLimit(1000);
+            url.setCreatedAt(expiresAt.minusHours(72));
+            url.setTtlHours(72);
+            url.setExpiresAt(expiresAt.plusNanos(i));
+            url.setDeleted(false);
+            url.setUpdatedAt(url.getCreatedAt());
+            url.setCreator(creator);
+            urls.put(url.getShortUrl(), url);
+        }
+        footprint.measure(urls, links);
+        return urls;
+    }
+
+    private RedirectEntry entry(int i) {
+        return new RedirectEntry(Base62.encode(i, 6), longUrl(i), new UUID(i / LINKS_PER_USER, 0), i % 1000, 1000,
+                expiresAt.plusNanos(i));
+    }
+
+    private static String longUrl(int i) {
+        return "https://example.com/articles/" + i;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
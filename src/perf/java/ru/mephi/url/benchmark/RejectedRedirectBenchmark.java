@@ -0,0 +1,96 @@
+package ru.mephi.url.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.mephi.url.Application;
+import ru.mephi.url.cache.ShortCodeFilter;
+import ru.mephi.url.model.ShortURL;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Отклонённые переходы через весь стек Spring MVC (MockMvc, без сети): просроченная ссылка, исчерпанный лимит
+// и неизвестный код. Ответы содержат то же тело ошибки, что и при обычной работе. Для сравнения - успешный переход
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectedRedirectBenchmark {
+    private static final String EXPIRED = "expird";
+    private static final String LIMIT_REACHED = "limits";
+    private static final String ACTIVE = "active";
+    private static final String UNKNOWN = "nocode";
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                "--app.expiry.tick=PT1H",
+                "--app.code-filter.enabled=true",
+                "--logging.level.root=WARN");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        UUID userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", userId);
+        LocalDateTime now = LocalDateTime.now();
+        insert(jdbcTemplate, userId, EXPIRED, 0, Integer.MAX_VALUE, now.minusHours(2), 1);
+        insert(jdbcTemplate, userId, LIMIT_REACHED, 10, 10, now, 24);
+        insert(jdbcTemplate, userId, ACTIVE, 0, Integer.MAX_VALUE, now, 24);
+        context.getBean(ShortCodeFilter.class).rebuild(); // Засеянные в обход сервиса коды фильтру не известны
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int expired() throws Exception {
+        return redirect(EXPIRED);
+    }
+
+    @Benchmark
+    public int limitReached() throws Exception {
+        return redirect(LIMIT_REACHED);
+    }
+
+    @Benchmark
+    public int notFound() throws Exception {
+        return redirect(UNKNOWN);
+    }
+
+    @Benchmark
+    public int found() throws Exception {
+        return redirect(ACTIVE);
+    }
+
+    private int redirect(String shortUrl) throws Exception {
+        return mockMvc.perform(get("/{shortUrl}", shortUrl)).andReturn().getResponse().getStatus();
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, UUID userId, String shortUrl,
+                               int useCount, int useLimit, LocalDateTime createdAt, int ttlHours) {
+        String longUrl = "https://example.com/" + shortUrl;
+        jdbcTemplate.update("INSERT INTO short_urls (short_url, long_url, long_url_hash, creator_id, use_count, " +
+                        "use_limit, created_at, ttl_hours, expires_at, deleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, false)",
+                shortUrl, longUrl, ShortURL.hashLongUrl(longUrl), userId, useCount, useLimit,
+                Timestamp.valueOf(createdAt), ttlHours, Timestamp.valueOf(createdAt.plusHours(ttlHours)));
+    }
+}
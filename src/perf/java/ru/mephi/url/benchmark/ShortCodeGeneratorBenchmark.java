@@ -0,0 +1,138 @@
+package ru.mephi.url.benchmark;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mephi.url.Application;
+import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.generator.ShortCodeGenerator;
+import ru.mephi.url.generator.ShortCodePool;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.service.ShortURLService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Создание ссылок через ShortURLService со стратегиями random-pool (ShortCodePool) и sequence
+// (SequenceShortCodeGenerator) на поднятом контексте со встроенной H2 в памяти, где short_urls засеяна на fill%
+// пространства ключей. Пространство уменьшено до 3 символов (62^3 = 238 328 кодов), чтобы заполненность
+// воспроизводилась в памяти. После каждой итерации созданные ссылки и резервы удаляются, а последовательность блоков
+// начинается заново, чтобы каждая итерация шла при той же заполненности и последовательность не исчерпалась
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 20, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortCodeGeneratorBenchmark {
+    private static final int CODE_LENGTH = 3;
+    private static final long CAPACITY = Base62.capacity(CODE_LENGTH);
+    private static final int SEED_BATCH = 10_000;
+    private static final String CREATED_PREFIX = "https://example.com/benchmark/";
+
+    @Param({"random-pool", "sequence"})
+    private String strategy;
+
+    @Param({"10", "50", "90"})
+    private int fill;
+
+    private ConfigurableApplicationContext context;
+    private ShortURLService urlService;
+    private ShortCodeGenerator codeGenerator;
+    private JdbcTemplate jdbcTemplate;
+    private UUID userId;
+    private final AtomicLong createdUrls = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Аргументы командной строки, а не properties(): те имеют низший приоритет и не перекрыли бы файловую БД
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:generator",
+                "--app.base-url=http://localhost:8080",
+                "--app.code-generator.strategy=" + strategy,
+                "--app.code-generator.code-length=" + CODE_LENGTH,
+                "--app.code-generator.secret=" + UUID.randomUUID().getMostSignificantBits(),
+                "--app.expiry.tick=PT1H",
+                "--app.counters.flush-interval=PT1H",
+                "--logging.level.root=WARN");
+        urlService = context.getBean(ShortURLService.class);
+        codeGenerator = context.getBean(ShortCodeGenerator.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", userId);
+        // Пул заполнился при запуске, ещё до засева: его коды освобождаются, когда фоновое пополнение завершилось
+        if (codeGenerator instanceof ShortCodePool codePool) {
+            codePool.refill();
+            codePool.release();
+        }
+        seed();
+    }
+
+    // Резервы кодов, ещё лежащих в пуле, не трогаются: пул мог пополняться в фоне во время итерации
+    @TearDown(Level.Iteration)
+    public void reset() {
+        jdbcTemplate.update("DELETE FROM reserved_codes WHERE code IN " +
+                "(SELECT short_url FROM short_urls WHERE long_url LIKE ?)", CREATED_PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM short_urls WHERE long_url LIKE ?", CREATED_PREFIX + "%");
+        // Коды, оставшиеся от прежнего блока, выдаются первыми, и повторно захваченный блок их уже пропустит
+        jdbcTemplate.execute("ALTER SEQUENCE short_code_block_seq RESTART WITH 0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ShortURLResponseDto createShortUrl() {
+        ShortURLCreateDto dto = new ShortURLCreateDto();
+        dto.setLongUrl(CREATED_PREFIX + createdUrls.incrementAndGet());
+        return urlService.createShortUrl(userId, dto);
+    }
+
+    // Засеянные коды случайны, как у ссылок, созданных пулом
+    private void seed() {
+        UUID ownerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", ownerId);
+
+        Set<String> codes = new HashSet<>();
+        long target = CAPACITY * fill / 100;
+        while (codes.size() < target) {
+            codes.add(RandomStringUtils.randomAlphanumeric(CODE_LENGTH));
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        int ttlHours = 8760;
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (String code : codes) {
+            String longUrl = "https://example.com/seeded/" + code;
+            batch.add(new Object[]{code, longUrl, ShortURL.hashLongUrl(longUrl), ownerId,
+                    Timestamp.valueOf(createdAt), ttlHours, Timestamp.valueOf(createdAt.plusHours(ttlHours))});
+            if (batch.size() == SEED_BATCH) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO short_urls (short_url, long_url, long_url_hash, creator_id, " +
+                "use_count, use_limit, created_at, ttl_hours, expires_at, deleted) " +
+                "VALUES (?, ?, ?, ?, 0, 10, ?, ?, ?, false)", batch);
+        batch.clear();
+    }
+}
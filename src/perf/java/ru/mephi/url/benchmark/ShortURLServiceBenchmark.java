@@ -0,0 +1,160 @@
+package ru.mephi.url.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mephi.url.Application;
+import ru.mephi.url.cache.RedirectCache;
+import ru.mephi.url.cache.ShortCodeFilter;
+import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.generator.ShortCodeGenerator;
+import ru.mephi.url.mapper.ShortURLMapper;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.service.ShortURLService;
+import ru.mephi.url.validator.ShortURLValidator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Горячие методы сервиса на полностью поднятом контексте приложения со встроенной H2 в памяти,
+// заполненной links ссылками (по 10 на пользователя). Лимит переходов засеянных ссылок не достигается за прогон,
+// чтобы измерялся успешный путь перехода. Переходы по кэшу идут по заранее загруженным популярным ссылкам,
+// без кэша - по всем засеянным. Фоновый сброс счётчиков отключён, чтобы не смешивать его с измеряемыми операциями
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortURLServiceBenchmark {
+    private static final int LINKS_PER_USER = 10;
+    private static final int SEED_BATCH = 10_000;
+    private static final int HOT_LINKS = 1000;
+    private static final long SEED_CODE_OFFSET = 1_000_000_000L; // Засеянные коды не пересекаются с выдаваемыми
+
+    @Param({"10000", "100000"})
+    private int links;
+
+    private ConfigurableApplicationContext context;
+    private ShortURLService urlService;
+    private ShortCodeGenerator codeGenerator;
+    private ShortURLMapper urlMapper;
+    private ShortURLValidator urlValidator;
+    private RedirectCache redirectCache;
+
+    private String[] codes;
+    private UUID[] userIds;
+    private ShortURL entity;
+    private RedirectEntry entry;
+    private final AtomicLong createdUrls = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Аргументы командной строки, а не properties(): те имеют низший приоритет и не перекрыли бы файловую БД
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                "--app.base-url=http://localhost:8080",
+                "--app.expiry.tick=PT1H",
+                "--app.counters.flush-interval=PT1H",
+                "--app.counters.max-unflushed-delta=" + Integer.MAX_VALUE,
+                "--logging.level.root=WARN");
+        urlService = context.getBean(ShortURLService.class);
+        codeGenerator = context.getBean(ShortCodeGenerator.class);
+        urlMapper = context.getBean(ShortURLMapper.class);
+        urlValidator = context.getBean(ShortURLValidator.class);
+        redirectCache = context.getBean(RedirectCache.class);
+
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(ShortCodeFilter.class).rebuild(); // Засеянные в обход сервиса коды фильтру не известны
+        for (int i = 0; i < Math.min(HOT_LINKS, links); i++) {
+            redirectCache.get(codes[i]);
+        }
+
+        entity = context.getBean(ShortURLRepository.class).findByShortUrl(codes[0]).orElseThrow();
+        entry = new RedirectEntry(entity.getShortUrl(), entity.getLongUrl(), entity.getCreator().getId(),
+                entity.getUseCount(), entity.getUseLimit(), entity.getExpiresAt());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Переход по ссылке, уже находящейся в кэше
+    @Benchmark
+    public AccessResult redirectCached() {
+        return urlService.redirect(codes[ThreadLocalRandom.current().nextInt(Math.min(HOT_LINKS, links))]);
+    }
+
+    // Переход с промахом кэша: запись каждый раз читается из БД
+    @Benchmark
+    public AccessResult redirectUncached() {
+        String code = codes[ThreadLocalRandom.current().nextInt(links)];
+        redirectCache.invalidate(code);
+        return urlService.redirect(code);
+    }
+
+    @Benchmark
+    public ShortURLResponseDto createShortUrl() {
+        ShortURLCreateDto dto = new ShortURLCreateDto();
+        dto.setLongUrl("https://example.com/benchmark/" + createdUrls.incrementAndGet());
+        return urlService.createShortUrl(userIds[ThreadLocalRandom.current().nextInt(userIds.length)], dto);
+    }
+
+    @Benchmark
+    public String nextCode() {
+        return codeGenerator.nextCode();
+    }
+
+    @Benchmark
+    public ShortURLResponseDto entityToResponseDto() {
+        return urlMapper.entityToResponseDto(entity);
+    }
+
+    @Benchmark
+    public AccessResult checkAccess() {
+        return urlValidator.checkAccess(entry);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        userIds = new UUID[Math.max(1, links / LINKS_PER_USER)];
+        List<Object[]> users = new ArrayList<>(userIds.length);
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.randomUUID();
+            users.add(new Object[]{userIds[i]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id) VALUES (?)", users);
+
+        codes = new String[links];
+        LocalDateTime createdAt = LocalDateTime.now();
+        int ttlHours = 8760;
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < links; i++) {
+            codes[i] = Base62.encode(SEED_CODE_OFFSET + i, 6);
+            String longUrl = "https://example.com/articles/" + i + "?utm_source=benchmark";
+            batch.add(new Object[]{codes[i], longUrl, ShortURL.hashLongUrl(longUrl), userIds[i % userIds.length],
+                    Integer.MAX_VALUE, Timestamp.valueOf(createdAt), ttlHours,
+                    Timestamp.valueOf(createdAt.plusHours(ttlHours))});
+            if (batch.size() == SEED_BATCH || i == links - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO short_urls (short_url, long_url, long_url_hash, creator_id, " +
+                        "use_count, use_limit, created_at, ttl_hours, expires_at, deleted) " +
+                        "VALUES (?, ?, ?, ?, 0, ?, ?, ?, ?, false)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
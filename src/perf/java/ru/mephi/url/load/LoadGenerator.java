@@ -0,0 +1,320 @@
+package ru.mephi.url.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.mephi.url.Application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Нагрузочный тест: поднимает приложение на случайном порту с H2 в памяти, заполняет его ссылками и в несколько потоков
+// отправляет смесь запросов создания, перехода, изменения и удаления. Популярность ссылок распределена по Ципфу:
+// ссылка ранга k выбирается с вероятностью ~ 1 / (k + 1)^zipf. Исчерпавшая лимит или удалённая ссылка заменяется новой
+// на том же ранге, служебные запросы замены в статистику не попадают.
+// Параметры передаются аргументами вида ключ=значение, см. Settings
+public class LoadGenerator {
+    private static final int LINKS_PER_USER = 10;
+    private static final int USE_LIMIT = 1000;
+    private static final int TTL_HOURS = 72;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final URI baseUri;
+    private final Settings settings;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReferenceArray<Link> links;
+    private final ZipfDistribution popularity;
+    private final AtomicLong urlCounter = new AtomicLong();
+
+    public LoadGenerator(URI baseUri, Settings settings) {
+        this.baseUri = baseUri;
+        this.settings = settings;
+        this.links = new AtomicReferenceArray<>(settings.links());
+        this.popularity = new ZipfDistribution(settings.links(), settings.zipf());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:load",
+                "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            new LoadGenerator(URI.create("http://localhost:" + port), settings).run();
+        }
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println("Параметры: " + settings);
+        ExecutorService executor = Executors.newFixedThreadPool(settings.threads());
+        try {
+            seed(executor);
+            System.out.printf("Создано ссылок: %d, прогрев %s%n", settings.links(), settings.warmup());
+            runPhase(executor, settings.warmup());
+
+            System.out.printf("Измерение %s в %d потоков%n", settings.duration(), settings.threads());
+            long start = System.nanoTime();
+            Stats stats = runPhase(executor, settings.duration());
+            report(stats, (System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void seed(ExecutorService executor) throws InterruptedException {
+        int users = (settings.links() + LINKS_PER_USER - 1) / LINKS_PER_USER;
+        List<Callable<Void>> tasks = new ArrayList<>(users);
+        for (int user = 0; user < users; user++) {
+            int first = user * LINKS_PER_USER;
+            tasks.add(() -> {
+                UUID creatorId = null;
+                for (int slot = first; slot < Math.min(first + LINKS_PER_USER, settings.links()); slot++) {
+                    Link link = create(creatorId);
+                    creatorId = link.creatorId();
+                    links.set(slot, link);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Не удалось заполнить сервис ссылками", ex.getCause());
+            }
+        }
+    }
+
+    private Stats runPhase(ExecutorService executor, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Callable<Stats>> workers = new ArrayList<>(settings.threads());
+        for (int i = 0; i < settings.threads(); i++) {
+            workers.add(() -> {
+                Stats stats = new Stats();
+                while (System.nanoTime() < deadline) {
+                    execute(settings.nextOperation(), stats);
+                }
+                return stats;
+            });
+        }
+
+        Stats total = new Stats();
+        for (Future<Stats> result : executor.invokeAll(workers)) {
+            try {
+                total.add(result.get());
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Поток нагрузки завершился с ошибкой", ex.getCause());
+            }
+        }
+        return total;
+    }
+
+    private void execute(Operation operation, Stats stats) {
+        switch (operation) {
+            case SHORTEN -> {
+                Link owner = links.get(ThreadLocalRandom.current().nextInt(settings.links()));
+                send(operation, createRequest(owner.creatorId()), stats);
+            }
+            case REDIRECT -> {
+                int slot = popularity.sample();
+                Link link = links.get(slot);
+                int status = send(operation, HttpRequest.newBuilder(uri(link)).GET().build(), stats);
+                if (status == 400) { // Лимит переходов исчерпан
+                    send(deleteRequest(link));
+                    replace(slot, link);
+                }
+            }
+            case UPDATE -> {
+                Link link = links.get(popularity.sample());
+                String body = "{\"useLimit\":" + USE_LIMIT + ",\"ttlHours\":" + TTL_HOURS + "}";
+                send(operation, HttpRequest.newBuilder(uri(link))
+                        .header("UUID", link.creatorId().toString())
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), stats);
+            }
+            case DELETE -> {
+                int slot = popularity.sample();
+                Link link = links.get(slot);
+                send(operation, deleteRequest(link), stats);
+                replace(slot, link);
+            }
+        }
+    }
+
+    // Ссылку на ранге заменяет только один поток, созданные проигравшими ссылки просто не участвуют в нагрузке
+    private void replace(int slot, Link link) {
+        links.compareAndSet(slot, link, create(link.creatorId()));
+    }
+
+    private Link create(UUID creatorId) {
+        HttpResponse<String> response = send(createRequest(creatorId));
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Ссылка не создана: " + response.statusCode() + " " + response.body());
+        }
+        try {
+            JsonNode body = objectMapper.readTree(response.body());
+            String shortUrl = body.get("shortUrl").asText();
+            return new Link(shortUrl.substring(shortUrl.lastIndexOf('/') + 1),
+                    UUID.fromString(body.get("creatorId").asText()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private HttpRequest createRequest(UUID creatorId) {
+        String body = "{\"longUrl\":\"https://example.com/articles/" + urlCounter.incrementAndGet() + "\"," +
+                "\"useLimit\":" + USE_LIMIT + ",\"ttlHours\":" + TTL_HOURS + "}";
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve("/shorten"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (creatorId != null) {
+            request.header("UUID", creatorId.toString());
+        }
+        return request.build();
+    }
+
+    private HttpRequest deleteRequest(Link link) {
+        return HttpRequest.newBuilder(uri(link)).header("UUID", link.creatorId().toString()).DELETE().build();
+    }
+
+    private URI uri(Link link) {
+        return baseUri.resolve("/" + link.code());
+    }
+
+    private int send(Operation operation, HttpRequest request, Stats stats) {
+        long start = System.nanoTime();
+        int status = send(request).statusCode();
+        stats.record(operation, (System.nanoTime() - start) / 1000, status);
+        return status;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void report(Stats stats, double seconds) {
+        System.out.printf("%-10s %10s %12s %10s %10s %10s %10s  %s%n",
+                "Операция", "Запросов", "Запросов/с", "p50, мс", "p99, мс", "p999, мс", "max, мс", "Коды ответа");
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = stats.latencies.get(operation);
+            total += histogram.getTotalCount();
+            System.out.printf("%-10s %10d %12.1f %10.3f %10.3f %10.3f %10.3f  %s%n",
+                    operation,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    stats.statuses.get(operation));
+        }
+        System.out.printf("Всего: %d запросов, %.1f запросов/с%n", total, total / seconds);
+    }
+
+    private enum Operation {
+        SHORTEN, REDIRECT, UPDATE, DELETE
+    }
+
+    private record Link(String code, UUID creatorId) {
+    }
+
+    // Статистика одного потока; потоки объединяются после завершения фазы
+    private static class Stats {
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, SortedMap<Integer, Long>> statuses = new EnumMap<>(Operation.class);
+
+        private Stats() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Histogram(HIGHEST_LATENCY_MICROS, 3));
+                statuses.put(operation, new TreeMap<>());
+            }
+        }
+
+        private void record(Operation operation, long micros, int status) {
+            latencies.get(operation).recordValue(Math.min(Math.max(micros, 1), HIGHEST_LATENCY_MICROS));
+            statuses.get(operation).merge(status, 1L, Long::sum);
+        }
+
+        private void add(Stats other) {
+            for (Operation operation : Operation.values()) {
+                latencies.get(operation).add(other.latencies.get(operation));
+                other.statuses.get(operation).forEach((status, count) ->
+                        statuses.get(operation).merge(status, count, Long::sum));
+            }
+        }
+    }
+
+    // threads=16 links=10000 zipf=1.0 warmup=PT10S duration=PT30S mix=shorten:5,redirect:85,update:5,delete:5.
+    // Аргументы могут быть переданы и одной строкой через пробел
+    record Settings(int threads, int links, double zipf, Duration warmup, Duration duration,
+                    Map<Operation, Integer> mix) {
+
+        static Settings parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                for (String token : arg.trim().split("\\s+")) {
+                    if (token.isEmpty()) {
+                        continue;
+                    }
+                    int separator = token.indexOf('=');
+                    if (separator < 0) {
+                        throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + token);
+                    }
+                    values.put(token.substring(0, separator), token.substring(separator + 1));
+                }
+            }
+
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String part : values.getOrDefault("mix", "shorten:5,redirect:85,update:5,delete:5").split(",")) {
+                String[] weight = part.split(":");
+                mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+            }
+            if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("Сумма весов операций должна быть положительной: " + mix);
+            }
+
+            return new Settings(
+                    Integer.parseInt(values.getOrDefault("threads", "16")),
+                    Integer.parseInt(values.getOrDefault("links", "10000")),
+                    Double.parseDouble(values.getOrDefault("zipf", "1.0")),
+                    Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                    Duration.parse(values.getOrDefault("duration", "PT30S")),
+                    mix);
+        }
+
+        Operation nextOperation() {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int point = ThreadLocalRandom.current().nextInt(total);
+            for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+                point -= weight.getValue();
+                if (point < 0) {
+                    return weight.getKey();
+                }
+            }
+            throw new IllegalStateException("Сумма весов операций изменилась");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.mephi.url.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Распределение Ципфа на рангах 0..n-1: вероятность ранга k пропорциональна 1 / (k + 1)^exponent.
+// Выборка - двоичный поиск по заранее посчитанной функции распределения
+public class ZipfDistribution {
+    private final double[] cdf;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Количество рангов должно быть положительным: " + n);
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int sample() {
+        int index = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+        return Math.min((index >= 0) ? index : -index - 1, cdf.length - 1);
+    }
+}
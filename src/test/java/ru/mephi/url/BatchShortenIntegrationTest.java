@@ -0,0 +1,100 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
+import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.generator.ShortCodePool;
+import ru.mephi.url.metrics.QueryCountingDataSource;
+import ru.mephi.url.repository.ShortURLRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Без @Transactional: INSERT выполняются только при коммите транзакции сервиса
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class BatchShortenIntegrationTest {
+    private static final int LINKS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private ShortCodePool codePool;
+
+    @Test
+    @DisplayName("Пакет из 100 ссылок создаётся горсткой SQL-операторов, ошибочные элементы получают свой результат")
+    void createShortUrls_BatchedInsertsAndPerItemResults() throws Exception {
+        String existingJson = mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://batch.example/existing\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        UUID userId = objectMapper.readValue(existingJson, ShortURLResponseDto.class).getCreatorId();
+
+        List<ShortURLCreateDto> requestDtos = new ArrayList<>();
+        for (int i = 0; i < LINKS; i++) {
+            requestDtos.add(createDto("https://batch.example/" + i));
+        }
+        requestDtos.add(createDto("not a url"));
+        requestDtos.add(createDto("https://batch.example/0"));
+        requestDtos.add(createDto("https://batch.example/existing"));
+
+        codePool.refill(); // Пополнение пула внутри запроса добавило бы свои операторы
+        QueryCountingDataSource.reset();
+        String responseJson = mockMvc.perform(post("/shorten/batch")
+                        .header("UUID", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(LINKS + 3))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].url.longUrl").value("https://batch.example/0"))
+                .andExpect(jsonPath("$[99].status").value(201))
+                .andExpect(jsonPath("$[100].status").value(400))
+                .andExpect(jsonPath("$[100].errors.longUrl").value("Указан некорректный формат URL"))
+                .andExpect(jsonPath("$[101].status").value(400))
+                .andExpect(jsonPath("$[101].error").value(
+                        "У пользователя с ID " + userId + " уже есть активная короткая ссылка, " +
+                                "перенаправляющая на https://batch.example/0"))
+                .andExpect(jsonPath("$[102].status").value(400))
+                .andReturn().getResponse().getContentAsString();
+
+        // Проверка дубликатов, пара обращений к последовательности id и пакетный INSERT; пользователь уже известен
+        long statements = QueryCountingDataSource.getCount();
+        assertTrue(statements <= 10, "SQL-операторов на пакет: " + statements);
+
+        ShortURLBatchItemDto[] results = objectMapper.readValue(responseJson, ShortURLBatchItemDto[].class);
+        for (int i = 0; i < LINKS; i++) {
+            String shortUrl = results[i].getUrl().getShortUrl();
+            assertTrue(urlRepository.findByShortUrl(shortUrl.substring(shortUrl.lastIndexOf('/') + 1)).isPresent());
+        }
+    }
+
+    private static ShortURLCreateDto createDto(String longUrl) {
+        ShortURLCreateDto dto = new ShortURLCreateDto();
+        dto.setLongUrl(longUrl);
+        return dto;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Без @Transactional: выгрузка читает ссылки в потоке асинхронной обработки, вне транзакции теста
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.export.chunk-size=3")
+@AutoConfigureMockMvc
+class ExportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Выгрузка отдаёт все ссылки пользователя, включая просроченные, по порядку создания через несколько порций")
+    void exportLinks_StreamsAllUserLinksAcrossChunks() throws Exception {
+        UUID owner = createUser();
+        createLinks(owner, 7, "https://export.example/");
+        createLinks(createUser(), 2, "https://export.example/other/"); // Ссылки другого пользователя в выгрузку не попадают
+        String expired = createLinks(owner, 1, "https://export.example/expired/").get(0);
+        jdbcTemplate.update("UPDATE short_urls SET deleted = true WHERE short_url = ?", expired); // Как после очистки
+        String removed = createLinks(owner, 1, "https://export.example/removed/").get(0);
+        mockMvc.perform(delete("/{shortUrl}", removed).header("UUID", owner))
+                .andExpect(status().isNoContent());
+
+        MvcResult started = mockMvc.perform(get("/users/{uuid}/links/export", owner))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(9, lines.length);
+        assertEquals("https://export.example/owner", objectMapper.readTree(lines[0]).get("longUrl").asText());
+        for (int i = 0; i < 7; i++) {
+            JsonNode link = objectMapper.readTree(lines[i + 1]);
+            assertEquals("https://export.example/" + i, link.get("longUrl").asText());
+            assertFalse(link.get("deleted").asBoolean());
+        }
+        JsonNode last = objectMapper.readTree(lines[8]);
+        assertEquals(expired, last.get("shortUrl").asText());
+        assertTrue(last.get("deleted").asBoolean());
+    }
+
+    @Test
+    @DisplayName("Выгрузка для несуществующего пользователя - 404 до начала потока")
+    void exportLinks_UnknownUser_ReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/users/{uuid}/links/export", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    private UUID createUser() throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://export.example/owner\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(objectMapper.readTree(responseJson).get("creatorId").asText());
+    }
+
+    // Коды созданных пакетом ссылок в порядке создания
+    private List<String> createLinks(UUID owner, int count, String prefix) throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add("{\"longUrl\":\"" + prefix + i + "\"}");
+        }
+        String responseJson = mockMvc.perform(post("/shorten/batch")
+                        .header("UUID", owner)
+                        .contentType("application/json")
+                        .content("[" + String.join(",", items) + "]"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> codes = new ArrayList<>();
+        for (JsonNode item : objectMapper.readTree(responseJson)) {
+            String shortUrl = item.get("url").get("shortUrl").asText();
+            codes.add(shortUrl.substring(shortUrl.lastIndexOf('/') + 1));
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,98 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.dto.ImportReportDto;
+import ru.mephi.url.repository.ShortURLRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Без @Transactional: каждая порция импорта фиксируется отдельной транзакцией
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.bulk-import.chunk-size=10")
+@AutoConfigureMockMvc
+class ImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Test
+    @DisplayName("Импорт NDJSON порциями: корректные строки создаются, отклонённые попадают в файл с причиной")
+    void importNdjson_CreatesValidRowsAndWritesRejectedFile() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            body.append("{\"longUrl\":\"https://import.example/").append(i).append("\",\"useLimit\":5}\n");
+        }
+        body.append("{broken\n");
+        body.append("{\"longUrl\":\"not a url\"}\n");
+        body.append("{\"longUrl\":\"https://import.example/3\"}\n"); // Повтор строки из первой, уже зафиксированной порции
+
+        ImportReportDto report = importBody(body.toString(), "application/x-ndjson");
+
+        assertEquals(28, report.getRows());
+        assertEquals(25, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertTrue(urlRepository.count() >= 25);
+
+        List<String> rejected = Files.readAllLines(Path.of(report.getRejectedFile()));
+        assertEquals(3, rejected.size());
+        assertTrue(rejected.get(0).contains("\"line\":26"));
+        assertTrue(rejected.get(0).contains("Строка не является корректным JSON-объектом ссылки"));
+        assertTrue(rejected.get(1).contains("\"longUrl\":\"Указан некорректный формат URL\""));
+        assertTrue(rejected.get(2).contains("уже есть активная короткая ссылка"));
+    }
+
+    @Test
+    @DisplayName("Импорт CSV без отклонённых строк не создаёт файл, неподдерживаемый формат - 415")
+    void importCsv_AllValid() throws Exception {
+        ImportReportDto report = importBody("longUrl,ttlHours\nhttps://csv.example/a,12\n\"https://csv.example/b,c\",\n",
+                "text/csv");
+
+        assertEquals(2, report.getRows());
+        assertEquals(2, report.getImported());
+        assertNull(report.getRejectedFile());
+
+        mockMvc.perform(post("/import").contentType("application/json").content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    private ImportReportDto importBody(String body, String contentType) throws Exception {
+        String responseJson = mockMvc.perform(post("/import")
+                        .header("UUID", createUser())
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseJson, ImportReportDto.class);
+    }
+
+    private UUID createUser() throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://import.example/owner\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(objectMapper.readTree(responseJson).get("creatorId").asText());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Отказ в переходе по несуществующей ссылке учитывается с причиной not_found")
+    void redirect_NotFound_CountsRejectByReason() throws Exception {
+        mockMvc.perform(get("/nocode")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("shortener_redirect_rejected_total{reason=\"not_found\"} 1.0")))
+                .andExpect(content().string(containsString("shortener_redirect_seconds_count{")));
+    }
+
+    @Test
+    @DisplayName("Для каждого HTTP-запроса фиксируется количество обращений к БД")
+    void createShortUrl_RecordsDbCallsPerRequest() throws Exception {
+        mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://micrometer.io\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "shortener_db_calls_statements_count{method=\"POST\",uri=\"/shorten\"} 1")))
+                .andExpect(content().string(containsString("shortener_create_seconds_count{")));
+    }
+
+    @Test
+    @DisplayName("Обращения к БД в потоке асинхронной выгрузки учитываются в запросе, который её начал")
+    void exportLinks_RecordsDbCallsOfAsyncProcessing() throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://micrometer.io/export\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String owner = objectMapper.readTree(responseJson).get("creatorId").asText();
+
+        MvcResult started = mockMvc.perform(get("/users/{uuid}/links/export", owner))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "shortener_db_calls_statements_count{method=\"GET\",uri=\"/users/{uuid}/links/export\"} 1")))
+                .andReturn().getResponse().getContentAsString();
+        Matcher sum = Pattern.compile(
+                "shortener_db_calls_statements_sum\\{method=\"GET\",uri=\"/users/\\{uuid}/links/export\"} (\\S+)")
+                .matcher(metrics);
+        assertTrue(sum.find());
+        // Проверка пользователя в потоке запроса и чтение ссылок в потоке выгрузки
+        assertTrue(Double.parseDouble(sum.group(1)) >= 2, sum.group(0));
+    }
+}
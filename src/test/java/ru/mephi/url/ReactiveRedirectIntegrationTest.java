@@ -0,0 +1,140 @@
+package ru.mephi.url;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.model.User;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Те же сценарии перенаправления, что и в ShortURLIntegrationTest, но на реактивном стеке
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "app.reactive.r2dbc-url=r2dbc:h2:mem:///db")
+@ActiveProfiles({"test", "reactive"})
+@AutoConfigureWebTestClient
+class ReactiveRedirectIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        urlRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Сценарий: Создание -> Переход -> Удаление")
+    void fullCycle_Success() {
+        ShortURLCreateDto createDto = new ShortURLCreateDto();
+        createDto.setLongUrl("https://spring.io");
+        createDto.setUseLimit(5);
+
+        ShortURLResponseDto responseDto = webTestClient.post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createDto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(ShortURLResponseDto.class)
+                .returnResult().getResponseBody();
+
+        String shortCode = responseDto.getShortUrl().substring(responseDto.getShortUrl().lastIndexOf("/") + 1);
+        UUID creatorId = responseDto.getCreatorId();
+
+        webTestClient.get().uri("/{shortUrl}", shortCode)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", "https://spring.io");
+
+        assertEquals(1, urlRepository.findByShortUrl(shortCode).orElseThrow().getUseCount());
+
+        webTestClient.delete().uri("/{shortUrl}", shortCode)
+                .header("UUID", creatorId.toString())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        assertFalse(urlRepository.findByShortUrl(shortCode).isPresent());
+    }
+
+    @Test
+    @DisplayName("Сценарий: Переход по несуществующей ссылке")
+    void redirect_UnknownLink_ReturnsNotFound() {
+        webTestClient.get().uri("/nolink")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.error").value(containsString("не найдена"));
+    }
+
+    @Test
+    @DisplayName("Сценарий: Попытка перехода по просроченной ссылке")
+    void redirect_ExpiredLink_ReturnsBadRequest() {
+        saveUrl("oldone", "https://expired.com", 0, 10, LocalDateTime.now().minusHours(24), 1);
+
+        webTestClient.get().uri("/oldone")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").value(containsString("истекло"));
+    }
+
+    @Test
+    @DisplayName("Сценарий: Превышение лимита переходов")
+    void limitReached_ReturnsBadRequest() {
+        saveUrl("limits", "https://test.com", 1, 2, LocalDateTime.now(), 24);
+
+        webTestClient.get().uri("/limits").exchange().expectStatus().isFound();
+
+        webTestClient.get().uri("/limits")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").value(containsString("исчерпан"));
+    }
+
+    @Test
+    @DisplayName("Сценарий: Удаление без заголовка UUID")
+    void delete_WithoutUuid_ReturnsUnauthorized() {
+        webTestClient.delete().uri("/abc123")
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody().jsonPath("$.error").value(containsString("удаления"));
+    }
+
+    private void saveUrl(String shortUrl, String longUrl, int useCount, int useLimit, LocalDateTime createdAt, int ttlHours) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user = userRepository.save(user);
+
+        ShortURL url = new ShortURL();
+        url.setShortUrl(shortUrl);
+        url.setLongUrl(longUrl);
+        url.setLongUrlHash(ShortURL.hashLongUrl(longUrl));
+        url.setCreator(user);
+        url.setUseCount(useCount);
+        url.setUseLimit(useLimit);
+        url.setCreatedAt(createdAt);
+        url.setTtlHours(ttlHours);
+        url.setExpiresAt(createdAt.plusHours(ttlHours));
+        url.setDeleted(false);
+        urlRepository.save(url);
+    }
+}
@@ -0,0 +1,188 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.RemovedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectSnapshot;
+import ru.mephi.url.store.RedirectStore;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Чтобы отличить ответ снимка от ответа БД, строки меняются в БД напрямую: без сдвига updated_at снимок
+// продолжает отдавать прежний адрес, со сдвигом - узнаёт об изменении при чтении изменений. Запас change-overlap
+// выключен, иначе ссылки, созданные перед записью снимка, считались бы изменёнными после него.
+// Изменения читаются порциями по две ссылки
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "app.snapshot.enabled=true",
+        "app.snapshot.directory=target/snapshot/${random.uuid}",
+        "app.snapshot.change-overlap=PT0S",
+        "app.cleanup.chunk-size=2"
+})
+@AutoConfigureMockMvc
+class RedirectSnapshotIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RedirectStore redirectStore;
+
+    @Autowired
+    private RedirectSnapshot redirectSnapshot;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private RemovedCodeRepository removedCodeRepository;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private ShortURLConfig config;
+
+    @Test
+    @DisplayName("Записанный снимок отдаёт ссылки без обращения к БД, изменения в БД видны после чтения изменений")
+    void snapshot_ServesLinksUntilChangeIsRead() throws Exception {
+        String code = code(createLink("https://snapshot.example/before"));
+        redirectSnapshot.write();
+
+        jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/silent' WHERE short_url = ?", code);
+        assertEquals("https://snapshot.example/before", redirectStore.findRedirectEntry(code).orElseThrow().getLongUrl());
+
+        jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/after', updated_at = ? " +
+                "WHERE short_url = ?", Timestamp.valueOf(LocalDateTime.now()), code);
+        redirectSnapshot.refresh();
+        assertEquals("https://snapshot.example/after", redirectStore.findRedirectEntry(code).orElseThrow().getLongUrl());
+    }
+
+    @Test
+    @DisplayName("Переходы не снимают ссылку со снимка: адрес отдаётся из снимка, счётчик переходов - из БД")
+    void clicks_KeepSnapshotEntryWithCurrentUseCount() throws Exception {
+        String code = code(createLink("https://snapshot.example/clicked"));
+        redirectSnapshot.write();
+
+        jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/silent' WHERE short_url = ?", code);
+        urlRepository.incrementUseCounts(Map.of(code, 3));
+        redirectStore.clicked(Map.of(code, 3));
+        redirectSnapshot.refresh();
+
+        var entry = redirectStore.findRedirectEntry(code).orElseThrow();
+        assertEquals("https://snapshot.example/clicked", entry.getLongUrl());
+        assertEquals(3, entry.getUseCount());
+    }
+
+    @Test
+    @DisplayName("Изменения читаются порциями без пропусков, в том числе ссылки с одинаковым updated_at")
+    void refresh_ReadsChangesAcrossChunks() throws Exception {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            codes.add(code(createLink("https://snapshot.example/chunk/" + i)));
+        }
+        redirectSnapshot.write();
+
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (String code : codes) {
+            jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/chunked', updated_at = ? " +
+                    "WHERE short_url = ?", updatedAt, code);
+        }
+        redirectSnapshot.refresh();
+
+        for (String code : codes) {
+            assertEquals("https://snapshot.example/chunked",
+                    redirectStore.findRedirectEntry(code).orElseThrow().getLongUrl());
+        }
+    }
+
+    @Test
+    @DisplayName("Изменение и удаление через этот экземпляр видны сразу, удаление запоминается в removed_codes")
+    void localChanges_VisibleImmediately() throws Exception {
+        JsonNode updated = createLink("https://snapshot.example/update");
+        JsonNode deleted = createLink("https://snapshot.example/delete");
+        redirectSnapshot.write();
+
+        mockMvc.perform(put("/{shortUrl}", code(updated))
+                        .header("UUID", updated.get("creatorId").asText())
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://snapshot.example/updated\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/{shortUrl}", code(deleted)).header("UUID", deleted.get("creatorId").asText()))
+                .andExpect(status().isNoContent());
+
+        assertEquals("https://snapshot.example/updated",
+                redirectStore.findRedirectEntry(code(updated)).orElseThrow().getLongUrl());
+        assertTrue(redirectStore.findRedirectEntry(code(deleted)).isEmpty());
+        assertTrue(removedCodeRepository.existsById(code(deleted)));
+    }
+
+    @Test
+    @DisplayName("После перезапуска снимок открывается, а ссылки, изменённые или удалённые после него, читаются из БД")
+    void restart_OverlaysChangesSinceSnapshot() throws Exception {
+        String unchanged = code(createLink("https://snapshot.example/unchanged"));
+        String changed = code(createLink("https://snapshot.example/changed"));
+        JsonNode deleted = createLink("https://snapshot.example/deleted");
+        redirectSnapshot.write();
+
+        mockMvc.perform(delete("/{shortUrl}", code(deleted)).header("UUID", deleted.get("creatorId").asText()))
+                .andExpect(status().isNoContent());
+        jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/silent' WHERE short_url = ?",
+                unchanged);
+        jdbcTemplate.update("UPDATE short_urls SET long_url = 'https://snapshot.example/changed2', updated_at = ? " +
+                "WHERE short_url = ?", Timestamp.valueOf(LocalDateTime.now()), changed);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RedirectSnapshot restarted = new RedirectSnapshot(urlRepository, removedCodeRepository, shards, config,
+                meterRegistry);
+        restarted.open();
+
+        assertEquals("https://snapshot.example/unchanged", restarted.find(unchanged).orElseThrow().getLongUrl());
+        assertTrue(restarted.find(changed).isEmpty());
+        assertTrue(restarted.find(code(deleted)).isEmpty());
+        assertEquals(1, meterRegistry.counter("shortener.redirect.snapshot.hits").count());
+    }
+
+    private JsonNode createLink(String longUrl) throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"" + longUrl + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(responseJson);
+    }
+
+    private static String code(JsonNode created) {
+        String shortUrl = created.get("shortUrl").asText();
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Реплику изображает вторая H2 в памяти со схемой из schema.sql, но без репликации: строка, записанная только в одну
+// из БД, показывает, куда ушёл запрос
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary",
+        "app.replica.enabled=true",
+        "app.replica.urls=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "app.replica.max-lag=PT1H"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingIntegrationTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void clearReplica() {
+        replica.update("DELETE FROM short_urls");
+        replica.update("DELETE FROM users");
+    }
+
+    @Test
+    @DisplayName("Переход читает ссылку с реплики: ссылка, которая есть только в основной БД, не найдена")
+    void redirect_ReadsFromReplica() throws Exception {
+        UUID owner = UUID.randomUUID();
+        insertLink(replica, owner, 1, "rep001", "https://replica.example");
+        insertLink(jdbcTemplate, owner, 1, "pri001", "https://primary.example");
+
+        mockMvc.perform(get("/rep001"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://replica.example"));
+        mockMvc.perform(get("/pri001"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Созданная ссылка записывается в основную БД и в пределах max-lag читается из неё")
+    void createdLink_ReadsFromPrimaryWithinMaxLag() throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://fresh.example\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String shortUrl = objectMapper.readTree(responseJson).get("shortUrl").asText();
+        String code = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+
+        assertEquals(1, countLinks(jdbcTemplate, code));
+        assertEquals(0, countLinks(replica, code));
+        mockMvc.perform(get("/{shortUrl}", code))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://fresh.example"));
+    }
+
+    @Test
+    @DisplayName("Страница ссылок пользователя читается с реплики")
+    void listLinks_ReadsFromReplica() throws Exception {
+        UUID owner = UUID.randomUUID();
+        insertLink(replica, owner, 2, "rep002", "https://replica.example/list");
+        insertLink(jdbcTemplate, owner, 2, "pri002", "https://primary.example/list");
+
+        mockMvc.perform(get("/links").header("UUID", owner))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].longUrl").value("https://replica.example/list"));
+    }
+
+    private static void insertLink(JdbcTemplate db, UUID owner, long id, String shortUrl, String longUrl) {
+        LocalDateTime now = LocalDateTime.now();
+        db.update("MERGE INTO users (id) KEY (id) VALUES (?)", owner);
+        db.update("INSERT INTO short_urls (id, short_url, long_url, long_url_hash, creator_id, use_count, use_limit, " +
+                        "created_at, ttl_hours, expires_at, deleted) VALUES (?, ?, ?, ?, ?, 0, 10, ?, 1, ?, false)",
+                -id, shortUrl, longUrl, (long) longUrl.hashCode(), owner,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plusHours(1)));
+    }
+
+    private static int countLinks(JdbcTemplate db, String shortUrl) {
+        return db.queryForObject("SELECT COUNT(*) FROM short_urls WHERE short_url = ?", Integer.class, shortUrl);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.mephi.url;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.generator.FeistelPermutation;
+import ru.mephi.url.generator.SequenceShortCodeGenerator;
+import ru.mephi.url.repository.ReservedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SequenceShortCodeGeneratorIntegrationTest {
+    private static final long BLOCK_SIZE = 10;
+    private static final int ROUNDS = 4;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private ReservedCodeRepository codeRepository;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private ShortURLConfig config;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID owner;
+    private String reserved;
+
+    @AfterEach
+    void tearDown() {
+        if (owner != null) {
+            jdbcTemplate.update("DELETE FROM short_urls WHERE creator_id = ?", owner);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", owner);
+        }
+        if (reserved != null) {
+            jdbcTemplate.update("DELETE FROM reserved_codes WHERE code = ?", reserved);
+        }
+    }
+
+    @Test
+    @DisplayName("Коды блока, уже занятые ссылкой или резервом пула, генератор последовательности не выдаёт")
+    void nextCodes_SkipsCodesTakenInDatabase() {
+        ShortURLConfig sequenceConfig = new ShortURLConfig();
+        sequenceConfig.getCodeGenerator().setCodeLength(6);
+        sequenceConfig.getCodeGenerator().setBlockSize(BLOCK_SIZE);
+        sequenceConfig.getCodeGenerator().setSecret(config.getCodeGenerator().getSecret());
+        sequenceConfig.getCodeGenerator().setFeistelRounds(ROUNDS);
+        SequenceShortCodeGenerator codeGenerator = new SequenceShortCodeGenerator(urlRepository, codeRepository,
+                shards, sequenceConfig, new SimpleMeterRegistry());
+
+        // Следующий номер последовательности достанется генератору: занимаются первые коды его блока
+        long start = (urlRepository.nextCodeBlock() + 1) * BLOCK_SIZE;
+        String linked = codeOf(start);
+        String linkedNext = codeOf(start + 1);
+        reserved = codeOf(start + 2);
+        owner = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", owner);
+        insertLink(-1L, linked);
+        insertLink(-2L, linkedNext);
+        jdbcTemplate.update("INSERT INTO reserved_codes (code, reserved_at) VALUES (?, ?)",
+                reserved, Timestamp.valueOf(LocalDateTime.now()));
+
+        List<String> codes = codeGenerator.nextCodes((int) BLOCK_SIZE);
+
+        assertEquals(BLOCK_SIZE, new HashSet<>(codes).size());
+        assertFalse(codes.contains(linked));
+        assertFalse(codes.contains(linkedNext));
+        assertFalse(codes.contains(reserved));
+    }
+
+    private String codeOf(long number) {
+        FeistelPermutation permutation = new FeistelPermutation(Base62.capacity(6), config.getCodeGenerator().getSecret(), ROUNDS);
+        return Base62.encode(permutation.permute(number), 6);
+    }
+
+    private void insertLink(long id, String code) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO short_urls (id, short_url, long_url, long_url_hash, creator_id, use_count, " +
+                        "use_limit, created_at, ttl_hours, expires_at, deleted) " +
+                        "VALUES (?, ?, ?, ?, ?, 0, 10, ?, 1, ?, false)",
+                id, code, "https://sequence.example/" + code, (long) code.hashCode(), owner,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plusHours(1)));
+    }
+}
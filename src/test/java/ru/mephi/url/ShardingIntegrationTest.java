@@ -0,0 +1,202 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.service.CleanupService;
+import ru.mephi.url.shard.Shards;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Шарды - три H2 в памяти, домашняя БД с пользователями - четвёртая. Строки проверяются напрямую в каждом шарде
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:home",
+        "spring.jpa.open-in-view=false",
+        "app.sharding.enabled=true",
+        "app.sharding.urls=" + ShardingIntegrationTest.SHARD_URLS
+})
+@AutoConfigureMockMvc
+class ShardingIntegrationTest {
+    static final String SHARD_URLS = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1," +
+            "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CleanupService cleanupService;
+
+    private final List<JdbcTemplate> shards = List.of(SHARD_URLS.split(",")).stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    @Test
+    @DisplayName("Ссылка хранится только в шарде своего кода, переход, изменение и удаление идут в этот шард")
+    void links_StoredOnShardOfTheirCode() throws Exception {
+        UUID owner = createUser();
+        List<String> codes = createLinks(owner, 12, "https://shard.example/");
+
+        for (String code : codes) {
+            int home = Shards.shardOf(code, shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                assertEquals((shard == home) ? 1 : 0, countLinks(shards.get(shard), code));
+            }
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM short_urls", Integer.class));
+        assertEquals(3, codes.stream().map(code -> Shards.shardOf(code, shards.size())).distinct().count());
+
+        String code = codes.get(0);
+        JdbcTemplate shard = shards.get(Shards.shardOf(code, shards.size()));
+        mockMvc.perform(get("/{shortUrl}", code))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://shard.example/0"));
+        mockMvc.perform(put("/{shortUrl}", code)
+                        .header("UUID", owner)
+                        .contentType("application/json")
+                        .content("{\"useLimit\":42}"))
+                .andExpect(status().isOk());
+        assertEquals(42, shard.queryForObject("SELECT use_limit FROM short_urls WHERE short_url = ?",
+                Integer.class, code));
+        mockMvc.perform(delete("/{shortUrl}", code).header("UUID", owner))
+                .andExpect(status().isNoContent());
+        assertEquals(0, countLinks(shard, code));
+    }
+
+    @Test
+    @DisplayName("Повторная ссылка на тот же адрес отклоняется, даже если первая лежит в другом шарде")
+    void duplicateLongUrl_DetectedAcrossShards() throws Exception {
+        UUID owner = createUser();
+        createLinks(owner, 6, "https://duplicate.example/");
+
+        for (int i = 0; i < 6; i++) {
+            mockMvc.perform(post("/shorten")
+                            .header("UUID", owner)
+                            .contentType("application/json")
+                            .content("{\"longUrl\":\"https://duplicate.example/" + i + "\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    @DisplayName("Страницы списка ссылок собираются из всех шардов в общем порядке без пропусков и повторов")
+    void listLinks_MergesShardsInOrder() throws Exception {
+        UUID owner = createUser();
+        createLinks(owner, 7, "https://list.example/");
+
+        List<Map<String, Object>> stored = new ArrayList<>();
+        for (JdbcTemplate shard : shards) {
+            stored.addAll(shard.queryForList("SELECT short_url, created_at, id FROM short_urls WHERE creator_id = ?",
+                    owner));
+        }
+        List<String> expected = stored.stream()
+                .sorted(Comparator.<Map<String, Object>, Comparable<Object>>comparing(row -> comparable(row.get("CREATED_AT")))
+                        .thenComparing(row -> ((Number) row.get("ID")).longValue())
+                        .reversed())
+                .map(row -> (String) row.get("SHORT_URL"))
+                .toList();
+
+        List<String> codes = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/links").header("UUID", owner).param("limit", "3");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            for (JsonNode item : page.get("items")) {
+                codes.add(code(item.get("shortUrl").asText()));
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(8, codes.size());
+        assertEquals(expected, codes);
+    }
+
+    @Test
+    @DisplayName("Очистка помечает удалёнными просроченные ссылки во всех шардах")
+    void cleanup_ExpiresLinksOnAllShards() throws Exception {
+        UUID owner = createUser();
+        createLinks(owner, 9, "https://cleanup.example/");
+        for (JdbcTemplate shard : shards) {
+            shard.update("UPDATE short_urls SET expires_at = DATEADD('HOUR', -1, CURRENT_TIMESTAMP) WHERE creator_id = ?",
+                    owner);
+        }
+
+        cleanupService.cleanupExpiredUrls();
+
+        for (JdbcTemplate shard : shards) {
+            assertEquals(0, shard.queryForObject("SELECT COUNT(*) FROM short_urls WHERE creator_id = ? AND NOT deleted",
+                    Integer.class, owner));
+        }
+    }
+
+    private UUID createUser() throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://shard.example/owner/" + UUID.randomUUID() + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(objectMapper.readTree(responseJson).get("creatorId").asText());
+    }
+
+    private List<String> createLinks(UUID owner, int count, String prefix) throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add("{\"longUrl\":\"" + prefix + i + "\"}");
+        }
+        String responseJson = mockMvc.perform(post("/shorten/batch")
+                        .header("UUID", owner)
+                        .contentType("application/json")
+                        .content("[" + String.join(",", items) + "]"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> codes = new ArrayList<>();
+        for (JsonNode item : objectMapper.readTree(responseJson)) {
+            assertEquals(201, item.get("status").asInt());
+            codes.add(code(item.get("url").get("shortUrl").asText()));
+        }
+        return codes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+
+    private static String code(String shortUrl) {
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+
+    private static int countLinks(JdbcTemplate db, String shortUrl) {
+        return db.queryForObject("SELECT COUNT(*) FROM short_urls WHERE short_url = ?", Integer.class, shortUrl);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.metrics.QueryCountingDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.code-filter.enabled=true")
+@AutoConfigureMockMvc
+class ShortCodeFilterIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Неизвестный код получает 404 без обращения к БД, созданный после запуска - перенаправляется")
+    void redirect_UnknownCodeRejectedWithoutDatabase_CreatedCodeRedirected() throws Exception {
+        QueryCountingDataSource.reset();
+        mockMvc.perform(get("/nocode"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Короткая ссылка 'nocode' не найдена"));
+        assertEquals(0, QueryCountingDataSource.getCount());
+
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://bloom.example\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String shortUrl = objectMapper.readValue(responseJson, ShortURLResponseDto.class).getShortUrl();
+
+        mockMvc.perform(get("/{shortUrl}", shortUrl.substring(shortUrl.lastIndexOf('/') + 1)))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://bloom.example"));
+    }
+}
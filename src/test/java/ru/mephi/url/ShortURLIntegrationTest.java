@@ -1,6 +1,8 @@
 package ru.mephi.url;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.mephi.url.counter.WriteBehindClickCounter;
 import ru.mephi.url.dto.ShortURLCreateDto;
 import ru.mephi.url.dto.ShortURLResponseDto;
 import ru.mephi.url.model.ShortURL;
@@ -18,6 +21,8 @@ import ru.mephi.url.repository.ShortURLRepository;
 import ru.mephi.url.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.containsString;
@@ -43,6 +48,12 @@ class ShortURLIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private WriteBehindClickCounter clickCounter;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     @DisplayName("Сценарий: Создание -> Переход -> Удаление")
     void fullCycle_Success() throws Exception {
@@ -67,6 +78,8 @@ class ShortURLIntegrationTest {
                 .andExpect(status().isFound())
                 .andExpect(header().string("Location", "https://spring.io"));
 
+        clickCounter.flush();
+        entityManager.clear();
         ShortURL updatedUrl = urlRepository.findByShortUrl(shortCode).get();
         assertEquals(1, updatedUrl.getUseCount());
 
@@ -82,14 +95,16 @@ class ShortURLIntegrationTest {
     void redirect_ExpiredLink_ReturnsBadRequest() throws Exception {
         User user = new User();
         user.setId(UUID.randomUUID());
-        userRepository.save(user);
+        user = userRepository.save(user);
 
         ShortURL expiredUrl = new ShortURL();
         expiredUrl.setShortUrl("oldone");
         expiredUrl.setLongUrl("https://expired.com");
+        expiredUrl.setLongUrlHash(ShortURL.hashLongUrl(expiredUrl.getLongUrl()));
         expiredUrl.setCreator(user);
         expiredUrl.setCreatedAt(LocalDateTime.now().minusHours(24));
         expiredUrl.setTtlHours(1);
+        expiredUrl.setExpiresAt(expiredUrl.getCreatedAt().plusHours(1));
         expiredUrl.setUseCount(0);
         expiredUrl.setUseLimit(10);
         expiredUrl.setDeleted(false);
@@ -105,16 +120,18 @@ class ShortURLIntegrationTest {
     void limitReached_ReturnsBadRequest() throws Exception {
         User user = new User();
         user.setId(UUID.randomUUID());
-        userRepository.save(user);
+        user = userRepository.save(user);
 
         ShortURL limitUrl = new ShortURL();
         limitUrl.setShortUrl("limits");
         limitUrl.setLongUrl("https://test.com");
+        limitUrl.setLongUrlHash(ShortURL.hashLongUrl(limitUrl.getLongUrl()));
         limitUrl.setCreator(user);
         limitUrl.setUseCount(1);
         limitUrl.setUseLimit(2);
         limitUrl.setTtlHours(24);
         limitUrl.setCreatedAt(LocalDateTime.now());
+        limitUrl.setExpiresAt(limitUrl.getCreatedAt().plusHours(24));
         limitUrl.setDeleted(false);
         urlRepository.save(limitUrl);
 
@@ -124,4 +141,66 @@ class ShortURLIntegrationTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value(containsString("исчерпан")));
     }
+
+    @Test
+    @DisplayName("Сценарий: Постраничный список ссылок пользователя по курсору, новые первыми, без удалённых")
+    void listLinks_PagesByCursor() throws Exception {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user = userRepository.save(user);
+
+        LocalDateTime now = LocalDateTime.now();
+        saveLink(user, "list01", now.minusHours(3), false);
+        saveLink(user, "list02", now.minusHours(2), false);
+        saveLink(user, "list03", now.minusHours(1), false); // Одинаковое время создания - порядок по id
+        saveLink(user, "list04", now.minusHours(1), false);
+        saveLink(user, "list05", now, false);
+        saveLink(user, "listdl", now, true);
+
+        mockMvc.perform(get("/list02")).andExpect(status().isFound()); // Переход ещё не записан в БД
+
+        List<String> codes = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/links").header("UUID", user.getId()).param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String responseJson = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(responseJson);
+            for (JsonNode item : page.get("items")) {
+                String shortUrl = item.get("shortUrl").asText();
+                codes.add(shortUrl.substring(shortUrl.lastIndexOf('/') + 1));
+                if (shortUrl.endsWith("list02")) {
+                    assertEquals(1, item.get("useCount").asInt());
+                }
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of("list05", "list04", "list03", "list02", "list01"), codes);
+        assertEquals(3, pages);
+
+        mockMvc.perform(get("/links").header("UUID", user.getId()).param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void saveLink(User user, String shortUrl, LocalDateTime createdAt, boolean deleted) {
+        ShortURL url = new ShortURL();
+        url.setShortUrl(shortUrl);
+        url.setLongUrl("https://list.example/" + shortUrl);
+        url.setLongUrlHash(ShortURL.hashLongUrl(url.getLongUrl()));
+        url.setCreator(user);
+        url.setUseCount(0);
+        url.setUseLimit(10);
+        url.setTtlHours(24);
+        url.setCreatedAt(createdAt);
+        url.setExpiresAt(createdAt.plusHours(24));
+        url.setDeleted(deleted);
+        urlRepository.save(url);
+    }
 }
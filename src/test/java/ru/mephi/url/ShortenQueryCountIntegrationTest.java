@@ -0,0 +1,81 @@
+package ru.mephi.url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.dto.ShortURLResponseDto;
+import ru.mephi.url.generator.ShortCodePool;
+import ru.mephi.url.metrics.QueryCountingDataSource;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Без @Transactional: INSERT выполняются при коммите транзакции сервиса. Отдельный контекст (свойство ниже), чтобы
+// блок идентификаторов из последовательности не был почти израсходован другими тестами и не добавил свой оператор
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.users.known-ids-cache-size=1000")
+@AutoConfigureMockMvc
+class ShortenQueryCountIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShortCodePool codePool;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Заодно получают блок идентификаторов: первый блок последовательности, начатой с 1, содержит единственный id
+        userId = shorten(null, "https://count.example/first").getCreatorId();
+        shorten(userId, "https://count.example/warmup");
+        codePool.refill(); // Пополнение пула внутри запроса добавило бы свои операторы
+    }
+
+    @Test
+    @DisplayName("Ссылка нового пользователя создаётся двумя INSERT: без проверки id и без поиска дубликатов")
+    void createShortUrl_NewUser_TwoStatements() throws Exception {
+        QueryCountingDataSource.reset();
+        shorten(null, "https://count.example/anonymous");
+
+        assertEquals(2, QueryCountingDataSource.getCount());
+    }
+
+    @Test
+    @DisplayName("Ссылка известного пользователя - проверка дубликата и INSERT, без чтения пользователя")
+    void createShortUrl_KnownUser_TwoStatements() throws Exception {
+        QueryCountingDataSource.reset();
+        shorten(userId, "https://count.example/second");
+
+        assertEquals(2, QueryCountingDataSource.getCount());
+    }
+
+    private ShortURLResponseDto shorten(UUID uuid, String longUrl) throws Exception {
+        var request = post("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"longUrl\":\"" + longUrl + "\"}");
+        if (uuid != null) {
+            request.header("UUID", uuid);
+        }
+        String responseJson = mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseJson, ShortURLResponseDto.class);
+    }
+}
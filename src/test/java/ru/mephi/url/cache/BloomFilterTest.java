@@ -0,0 +1,54 @@
+package ru.mephi.url.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mephi.url.generator.Base62;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Добавленные коды всегда находятся")
+    void mightContain_AddedCodes_NoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(Base62.encode(i * 7919L, 6));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(Base62.encode(i * 7919L, 6)));
+        }
+        assertEquals(10_000, filter.getInsertions());
+    }
+
+    @Test
+    @DisplayName("Доля ложноположительных ответов на заполненном фильтре близка к расчётной")
+    void mightContain_UnknownCodes_FalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(Base62.encode(i, 6));
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(Base62.encode(1_000_000_000L + i, 6))) {
+                falsePositives++;
+            }
+        }
+
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "FPR " + rate);
+        assertEquals(0.01, filter.getExpectedFpp(), 0.002);
+    }
+
+    @Test
+    @DisplayName("Пустой фильтр отклоняет любой код")
+    void mightContain_Empty_ReturnsFalse() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain("abc123"));
+        assertEquals(0, filter.getExpectedFpp());
+    }
+}
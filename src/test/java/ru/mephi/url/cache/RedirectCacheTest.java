@@ -0,0 +1,137 @@
+package ru.mephi.url.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.counter.ClickCounter;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.store.RedirectStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedirectCacheTest {
+
+    @Mock
+    private RedirectStore redirectStore;
+
+    @Mock
+    private ClickCounter clickCounter;
+
+    @Mock
+    private ShortCodeFilter codeFilter;
+
+    private RedirectCache redirectCache;
+
+    @BeforeEach
+    void setUp() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCache().setMaxSize(100);
+        config.getCache().setExpireAfterWrite(Duration.ofMinutes(10));
+
+        lenient().when(clickCounter.load(anyString(), any())).thenAnswer(invocation -> {
+            Function<String, Optional<RedirectEntry>> loader = invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
+
+        lenient().when(codeFilter.mightContain(anyString())).thenReturn(true);
+
+        redirectCache = new RedirectCache(redirectStore, clickCounter, codeFilter, config);
+    }
+
+    @Test
+    @DisplayName("Повторное обращение к коду обслуживается из кэша без запроса в БД")
+    void get_SecondCall_ServedFromCache() {
+        when(redirectStore.findRedirectEntry("abc123")).thenReturn(Optional.of(entry("abc123")));
+
+        assertTrue(redirectCache.get("abc123").isPresent());
+        assertTrue(redirectCache.get("abc123").isPresent());
+
+        verify(redirectStore, times(1)).findRedirectEntry("abc123");
+    }
+
+    @Test
+    @DisplayName("Инвалидация приводит к повторной загрузке из БД")
+    void invalidate_ForcesReload() {
+        when(redirectStore.findRedirectEntry("abc123")).thenReturn(Optional.of(entry("abc123")));
+
+        redirectCache.get("abc123");
+        redirectCache.invalidate("abc123");
+        redirectCache.get("abc123");
+
+        verify(redirectStore, times(2)).findRedirectEntry("abc123");
+    }
+
+    @Test
+    @DisplayName("Отсутствующий код не кэшируется")
+    void get_NotFound_NotCached() {
+        when(redirectStore.findRedirectEntry("missin")).thenReturn(Optional.empty());
+
+        assertTrue(redirectCache.get("missin").isEmpty());
+        assertTrue(redirectCache.get("missin").isEmpty());
+
+        verify(redirectStore, times(2)).findRedirectEntry("missin");
+    }
+
+    @Test
+    @DisplayName("Код, которого точно нет по фильтру, отклоняется без запроса в БД")
+    void get_RejectedByFilter_NoDatabaseLookup() {
+        when(codeFilter.mightContain("random")).thenReturn(false);
+
+        assertTrue(redirectCache.get("random").isEmpty());
+
+        verify(redirectStore, never()).findRedirectEntry(anyString());
+    }
+
+    @Test
+    @DisplayName("Параллельные промахи по одному коду объединяются в одну загрузку")
+    void get_ConcurrentMisses_LoadedOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(redirectStore.findRedirectEntry("hot123")).thenAnswer(invocation -> {
+            loading.await();
+            return Optional.of(entry("hot123"));
+        });
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Optional<RedirectEntry>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> redirectCache.get("hot123")));
+            }
+            Thread.sleep(100);
+            loading.countDown();
+
+            for (Future<Optional<RedirectEntry>> result : results) {
+                assertTrue(result.get().isPresent());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(redirectStore, times(1)).findRedirectEntry("hot123");
+    }
+
+    private RedirectEntry entry(String shortUrl) {
+        return new RedirectEntry(shortUrl, "https://example.com", UUID.randomUUID(), 0, 10, LocalDateTime.now().plusHours(24));
+    }
+}
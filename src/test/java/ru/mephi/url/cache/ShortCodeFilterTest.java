@@ -0,0 +1,115 @@
+package ru.mephi.url.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortCodeFilterTest {
+
+    @Mock
+    private ShortURLRepository urlRepository;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Пока фильтр не построен, любой код считается возможным")
+    void mightContain_BeforeBuild_ReturnsTrue() {
+        ShortCodeFilter codeFilter = codeFilter(true, 100);
+
+        assertTrue(codeFilter.mightContain("random"));
+    }
+
+    @Test
+    @DisplayName("После построения по БД неизвестный код отклоняется, а созданный позже - находится")
+    void build_LoadsCodesInChunks_AndAddsNewOnes() {
+        when(urlRepository.count()).thenReturn(3L);
+        when(urlRepository.findShortUrlsAfter(eq(""), any(Limit.class))).thenReturn(List.of("aaa111", "bbb222"));
+        when(urlRepository.findShortUrlsAfter(eq("bbb222"), any(Limit.class))).thenReturn(List.of("ccc333"));
+        ShortCodeFilter codeFilter = codeFilter(true, 100);
+
+        codeFilter.build();
+        codeFilter.add("ddd444");
+
+        assertTrue(codeFilter.mightContain("aaa111"));
+        assertTrue(codeFilter.mightContain("ccc333"));
+        assertTrue(codeFilter.mightContain("ddd444"));
+        assertFalse(codeFilter.mightContain("zzz999"));
+        assertEquals(1, meterRegistry.get("shortener.code.filter.negatives").counter().count());
+        assertEquals(4, meterRegistry.get("shortener.code.filter.codes").gauge().value());
+        assertTrue(meterRegistry.get("shortener.code.filter.fpp").gauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Переполнение ёмкости запускает перестроение фильтра большего размера")
+    void add_OverCapacity_SchedulesRebuild() {
+        when(urlRepository.findShortUrlsAfter(anyString(), any(Limit.class))).thenReturn(List.of());
+        ShortCodeFilter codeFilter = codeFilter(true, 2);
+        codeFilter.build();
+
+        codeFilter.add("aaa111");
+        codeFilter.add("bbb222");
+        verifyNoInteractions(taskScheduler);
+
+        codeFilter.add("ccc333");
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Отключённый фильтр пропускает все коды и не обращается к БД")
+    void build_Disabled_PassesEverything() {
+        ShortCodeFilter codeFilter = codeFilter(false, 100);
+
+        codeFilter.build();
+
+        assertTrue(codeFilter.mightContain("random"));
+        verifyNoInteractions(urlRepository);
+    }
+
+    @Test
+    @DisplayName("Включённый фильтр вместе с репликами или шардированием не даёт запустить приложение")
+    void constructor_EnabledWithReplicasOrSharding_Throws() {
+        ShortURLConfig replicaConfig = new ShortURLConfig();
+        replicaConfig.getCodeFilter().setEnabled(true);
+        replicaConfig.getReplica().setEnabled(true);
+        ShortURLConfig shardingConfig = new ShortURLConfig();
+        shardingConfig.getCodeFilter().setEnabled(true);
+        shardingConfig.getSharding().setEnabled(true);
+
+        for (ShortURLConfig config : List.of(replicaConfig, shardingConfig)) {
+            assertThrows(IllegalStateException.class, () -> new ShortCodeFilter(urlRepository, taskScheduler,
+                    new Shards(mock(PlatformTransactionManager.class), new ShortURLConfig()), config, meterRegistry));
+        }
+    }
+
+    private ShortCodeFilter codeFilter(boolean enabled, long expectedCodes) {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCodeFilter().setEnabled(enabled);
+        config.getCodeFilter().setExpectedCodes(expectedCodes);
+        config.getCodeFilter().setFalsePositiveRate(0.01);
+        config.getCleanup().setChunkSize(2);
+        return new ShortCodeFilter(urlRepository, taskScheduler, new Shards(mock(PlatformTransactionManager.class), config),
+                config, meterRegistry);
+    }
+}
@@ -9,14 +9,22 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
 import ru.mephi.url.dto.ShortURLCreateDto;
+import ru.mephi.url.dto.ShortURLPageDto;
 import ru.mephi.url.dto.ShortURLResponseDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.service.ShortURLService;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -63,19 +71,69 @@ class ShortURLControllerTest {
                 .andExpect(jsonPath("$.longUrl").value("https://google.com"));
     }
 
+    @Test
+    @DisplayName("POST /shorten/batch - Результат по каждому элементу пакета (200 OK)")
+    void createShortUrls_Success() throws Exception {
+        ShortURLCreateDto requestDto = new ShortURLCreateDto();
+        requestDto.setLongUrl("https://google.com");
+
+        ShortURLResponseDto responseDto = new ShortURLResponseDto();
+        responseDto.setShortUrl("http://localhost/abc123");
+        ShortURLBatchItemDto created = new ShortURLBatchItemDto();
+        created.setStatus(201);
+        created.setUrl(responseDto);
+        ShortURLBatchItemDto rejected = new ShortURLBatchItemDto();
+        rejected.setStatus(400);
+        rejected.setErrors(Map.of("longUrl", "Длинная ссылка обязательна для заполнения"));
+
+        when(urlService.createShortUrls(eq(userId), anyList())).thenReturn(List.of(created, rejected));
+
+        mockMvc.perform(post("/shorten/batch")
+                        .header("UUID", userId.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(requestDto, new ShortURLCreateDto()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].url.shortUrl").value("http://localhost/abc123"))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].errors.longUrl").value("Длинная ссылка обязательна для заполнения"))
+                .andExpect(jsonPath("$[1].url").doesNotExist());
+    }
+
     @Test
     @DisplayName("GET /{shortUrl} - Успешное перенаправление (302 Found)")
     void redirectToLongUrl_Success() throws Exception {
         String shortCode = "abc123";
         String targetUrl = "https://ya.ru";
 
-        when(urlService.getLongUrl(shortCode)).thenReturn(targetUrl);
+        RedirectEntry entry = new RedirectEntry(shortCode, targetUrl, UUID.randomUUID(),
+                0, 10, LocalDateTime.now().plusHours(1));
+        when(urlService.redirect(shortCode)).thenReturn(AccessResult.ok(entry));
 
         mockMvc.perform(get("/{shortUrl}", shortCode))
                 .andExpect(status().isFound())
                 .andExpect(header().string("Location", targetUrl));
     }
 
+    @Test
+    @DisplayName("GET /{shortUrl} - Отказы сервиса превращаются в 404 и 400 с телом ошибки")
+    void redirectToLongUrl_Rejected() throws Exception {
+        when(urlService.redirect("missin")).thenReturn(AccessResult.notFound("missin"));
+        when(urlService.redirect("expird")).thenReturn(AccessResult.expired("expird"));
+        when(urlService.redirect("limits")).thenReturn(AccessResult.limitReached("limits"));
+
+        mockMvc.perform(get("/{shortUrl}", "missin"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Короткая ссылка 'missin' не найдена"))
+                .andExpect(jsonPath("$.timestamp").exists());
+        mockMvc.perform(get("/{shortUrl}", "expird"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Время жизни ссылки 'expird' истекло"));
+        mockMvc.perform(get("/{shortUrl}", "limits"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Лимит переходов по ссылке 'limits' исчерпан"));
+    }
+
     @Test
     @DisplayName("PUT /{shortUrl} - Обновление ссылки владельцем (200 OK)")
     void updateShortUrl_Success() throws Exception {
@@ -121,6 +179,31 @@ class ShortURLControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("GET /links - Страница ссылок пользователя с курсором следующей страницы (200 OK)")
+    void listShortUrls_Success() throws Exception {
+        ShortURLResponseDto responseDto = new ShortURLResponseDto();
+        responseDto.setShortUrl("http://localhost/abc123");
+        ShortURLPageDto pageDto = new ShortURLPageDto();
+        pageDto.setItems(List.of(responseDto));
+        pageDto.setNextCursor("next");
+
+        when(urlService.listShortUrls(userId, "prev", 1)).thenReturn(pageDto);
+
+        mockMvc.perform(get("/links")
+                        .header("UUID", userId.toString())
+                        .param("cursor", "prev")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].shortUrl").value("http://localhost/abc123"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        mockMvc.perform(get("/links"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value(
+                        "Для просмотра коротких ссылок в запросе обязательно должен быть заголовок UUID"));
+    }
+
     @Test
     @DisplayName("PUT /{shortUrl} - Ошибка при отсутствии обязательного заголовка UUID (401 Unauthorized)")
     void updateShortUrl_MissingHeader() throws Exception {
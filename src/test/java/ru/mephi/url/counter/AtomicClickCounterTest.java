@@ -0,0 +1,74 @@
+package ru.mephi.url.counter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AtomicClickCounterTest {
+
+    @Mock
+    private ShortURLRepository urlRepository;
+
+    @Mock
+    private RedirectStore redirectStore;
+
+    @Spy
+    private Shards shards = new Shards(mock(PlatformTransactionManager.class), new ShortURLConfig());
+
+    @InjectMocks
+    private AtomicClickCounter clickCounter;
+
+    @Test
+    @DisplayName("Переход разрешён, если условный UPDATE изменил строку")
+    void registerClick_RowUpdated_Accepted() {
+        RedirectEntry entry = entry(3, 10);
+        when(urlRepository.incrementUseCountIfAllowed(eq("abc123"), any(LocalDateTime.class))).thenReturn(1);
+
+        assertTrue(clickCounter.registerClick(entry));
+        assertEquals(4, entry.getUseCount());
+    }
+
+    @Test
+    @DisplayName("Переход отклонён, если условный UPDATE не изменил строку (лимит исчерпан на другом узле)")
+    void registerClick_NoRowUpdated_RejectedAndEntryMarked() {
+        RedirectEntry entry = entry(3, 10);
+        when(urlRepository.incrementUseCountIfAllowed(eq("abc123"), any(LocalDateTime.class))).thenReturn(0);
+
+        assertFalse(clickCounter.registerClick(entry));
+        assertTrue(entry.isLimitReached());
+    }
+
+    @Test
+    @DisplayName("Переход, учтённый хранилищем, сохраняется тем же условным UPDATE и отклоняется, если строка не изменилась")
+    void registerCountedClick_DecidedByConditionalUpdate() {
+        when(urlRepository.incrementUseCountIfAllowed(eq("abc123"), any(LocalDateTime.class))).thenReturn(1, 0);
+
+        assertTrue(clickCounter.registerCountedClick("abc123"));
+        assertFalse(clickCounter.registerCountedClick("abc123"));
+    }
+
+    private RedirectEntry entry(int useCount, int useLimit) {
+        return new RedirectEntry("abc123", "https://example.com", UUID.randomUUID(),
+                useCount, useLimit, LocalDateTime.now().plusHours(24));
+    }
+}
@@ -0,0 +1,153 @@
+package ru.mephi.url.counter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.replica.RecentWrites;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindClickCounterTest {
+
+    @Mock
+    private ShortURLRepository urlRepository;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private RedirectStore redirectStore;
+
+    private WriteBehindClickCounter clickCounter;
+
+    @BeforeEach
+    void setUp() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCounters().setMaxUnflushedDelta(100);
+
+        clickCounter = new WriteBehindClickCounter(urlRepository, taskScheduler,
+                new RecentWrites(mock(PlatformTransactionManager.class), config),
+                new Shards(mock(PlatformTransactionManager.class), config), redirectStore, config);
+    }
+
+    @Test
+    @DisplayName("Переходы копятся в памяти и сбрасываются в БД одним пакетом")
+    void flush_WritesAccumulatedDeltasInOneBatch() {
+        RedirectEntry first = entry("first1", 0, 10);
+        RedirectEntry second = entry("secnd2", 0, 10);
+
+        clickCounter.registerClick(first);
+        clickCounter.registerClick(first);
+        clickCounter.registerClick(second);
+        verifyNoInteractions(urlRepository);
+
+        clickCounter.flush();
+
+        verify(urlRepository).incrementUseCounts(Map.of("first1", 2, "secnd2", 1));
+        assertEquals(0, clickCounter.getPending("first1"));
+    }
+
+    @Test
+    @DisplayName("Лимит переходов соблюдается по локальному состоянию")
+    void registerClick_LimitReached_ReturnsFalse() {
+        RedirectEntry entry = entry("limits", 1, 2);
+
+        assertTrue(clickCounter.registerClick(entry));
+        assertFalse(clickCounter.registerClick(entry));
+        assertEquals(1, clickCounter.getPending("limits"));
+    }
+
+    @Test
+    @DisplayName("Загруженная из БД запись учитывает ещё не сброшенные переходы")
+    void load_AddsPendingClicks() {
+        clickCounter.registerClick(entry("abc123", 0, 10));
+        clickCounter.registerClick(entry("abc123", 0, 10));
+
+        Optional<RedirectEntry> loaded = clickCounter.load("abc123", code -> Optional.of(entry(code, 3, 10)));
+
+        assertEquals(5, loaded.orElseThrow().getUseCount());
+    }
+
+    @Test
+    @DisplayName("При ошибке записи переходы возвращаются в очередь на сброс")
+    void flush_Failure_RestoresDeltas() {
+        doThrow(new RuntimeException("DB is down")).when(urlRepository).incrementUseCounts(anyMap());
+        clickCounter.registerClick(entry("abc123", 0, 10));
+
+        clickCounter.flush();
+
+        assertEquals(1, clickCounter.getPending("abc123"));
+    }
+
+    @Test
+    @DisplayName("Превышение порога несброшенных переходов запускает внеочередной сброс")
+    void registerClick_MaxUnflushedDelta_RequestsFlush() {
+        RedirectEntry entry = entry("abc123", 0, 1000);
+        for (int i = 0; i < 150; i++) {
+            clickCounter.registerClick(entry);
+        }
+
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Параллельные переходы не превышают лимит и не теряются при сбросах")
+    void registerClick_Concurrent_ExactLimitAndNoLostClicks() throws Exception {
+        int limit = 5_000;
+        RedirectEntry entry = entry("hot123", 0, limit);
+        AtomicInteger accepted = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < limit * 2; i++) {
+            executor.submit(() -> {
+                if (clickCounter.registerClick(entry)) {
+                    accepted.incrementAndGet();
+                }
+            });
+            if (i % 1000 == 0) {
+                executor.submit(() -> clickCounter.flush());
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        clickCounter.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Integer>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(urlRepository, atLeastOnce()).incrementUseCounts(captor.capture());
+        int flushed = captor.getAllValues().stream().mapToInt(deltas -> deltas.getOrDefault("hot123", 0)).sum();
+
+        assertEquals(limit, accepted.get());
+        assertEquals(limit, flushed);
+    }
+
+    private RedirectEntry entry(String shortUrl, int useCount, int useLimit) {
+        return new RedirectEntry(shortUrl, "https://example.com", UUID.randomUUID(),
+                useCount, useLimit, LocalDateTime.now().plusHours(24));
+    }
+}
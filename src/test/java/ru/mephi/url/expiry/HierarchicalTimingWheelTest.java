@@ -0,0 +1,87 @@
+package ru.mephi.url.expiry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    @DisplayName("Таймер срабатывает на тике своего срока, а не раньше")
+    void advance_ExpiresAtDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 3, 0);
+        wheel.schedule("abc123", 5 * TICK);
+
+        assertTrue(wheel.advance(4 * TICK).isEmpty());
+        assertEquals(List.of("abc123"), wheel.advance(5 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Таймеры верхних уровней опускаются вниз и срабатывают точно в срок")
+    void advance_CascadesFromUpperLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK, 3, 0);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long key = 0; key < 2000; key++) {
+            long deadlineTick = 1 + random.nextInt(64 * 64 * 64 - 1);
+            deadlines.put(key, deadlineTick);
+            wheel.schedule(key, deadlineTick * TICK);
+        }
+
+        for (long tick = 1; tick <= 64 * 64 * 64; tick++) {
+            for (Long key : wheel.advance(tick * TICK)) {
+                assertEquals(deadlines.get(key), tick, "Таймер " + key);
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Срок дальше диапазона колеса не теряется и срабатывает вовремя")
+    void advance_DeadlineBeyondRange_ExpiresOnTime() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 2, 0);
+        long deadlineTick = 64 * 64 * 3 + 17;
+        wheel.schedule("far", deadlineTick * TICK);
+
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1; tick <= deadlineTick + 64; tick++) {
+            if (!wheel.advance(tick * TICK).isEmpty()) {
+                fired.add(tick);
+            }
+        }
+        assertEquals(List.of(deadlineTick), fired);
+    }
+
+    @Test
+    @DisplayName("Перенос и отмена таймера")
+    void scheduleAndCancel_ReplaceExistingTimer() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 3, 0);
+        wheel.schedule("moved", 10 * TICK);
+        wheel.schedule("moved", 300 * TICK);
+        wheel.schedule("cancelled", 20 * TICK);
+        assertTrue(wheel.cancel("cancelled"));
+
+        assertTrue(wheel.advance(299 * TICK).isEmpty());
+        assertEquals(List.of("moved"), wheel.advance(300 * TICK));
+        assertFalse(wheel.cancel("moved"));
+    }
+
+    @Test
+    @DisplayName("Срок в прошлом истекает на ближайшем тике")
+    void schedule_PastDeadline_ExpiresOnNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 3, 100 * TICK);
+        wheel.schedule("late", 0);
+
+        assertEquals(List.of("late"), wheel.advance(101 * TICK));
+    }
+}
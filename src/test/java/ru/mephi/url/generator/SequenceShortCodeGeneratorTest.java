@@ -0,0 +1,117 @@
+package ru.mephi.url.generator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ReservedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SequenceShortCodeGeneratorTest {
+
+    @Mock
+    private ShortURLRepository urlRepository;
+
+    @Mock
+    private ReservedCodeRepository codeRepository;
+
+    private SequenceShortCodeGenerator codeGenerator;
+
+    @BeforeEach
+    void setUp() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCodeGenerator().setCodeLength(6);
+        config.getCodeGenerator().setBlockSize(100);
+        config.getCodeGenerator().setSecret(42L);
+        config.getCodeGenerator().setFeistelRounds(4);
+
+        codeGenerator = new SequenceShortCodeGenerator(urlRepository, codeRepository,
+                new Shards(mock(PlatformTransactionManager.class), config), config, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Номер блока запрашивается из БД один раз на каждые blockSize кодов")
+    void nextCode_ClaimsBlockOncePerBlockSize() {
+        when(urlRepository.nextCodeBlock()).thenReturn(0L, 7L, 3L);
+
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 250; i++) {
+            issued.add(codeGenerator.nextCode());
+        }
+
+        assertEquals(250, issued.size());
+        assertTrue(issued.stream().allMatch(code -> code.matches("[a-zA-Z0-9]{6}")));
+        verify(urlRepository, times(3)).nextCodeBlock();
+    }
+
+    @Test
+    @DisplayName("Коды блока, уже занятые ссылками или резервами, пропускаются: сверка - одним запросом на блок")
+    void nextCodes_SkipsTakenCodesOfBlock() {
+        String taken = Base62.encode(new FeistelPermutation(Base62.capacity(6), 42L, 4).permute(0), 6);
+        when(urlRepository.nextCodeBlock()).thenReturn(0L, 1L);
+        when(codeRepository.findTakenCodes(anyCollection()))
+                .thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0)).contains(taken)
+                        ? List.of(taken)
+                        : List.of());
+
+        List<String> codes = codeGenerator.nextCodes(100);
+
+        assertEquals(100, new HashSet<>(codes).size());
+        assertFalse(codes.contains(taken));
+        verify(urlRepository, times(2)).nextCodeBlock();
+        verify(codeRepository, times(2)).findTakenCodes(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Без ключа перестановки генератор не создаётся")
+    void constructor_RequiresSecret() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCodeGenerator().setCodeLength(6);
+        config.getCodeGenerator().setBlockSize(100);
+        config.getCodeGenerator().setFeistelRounds(4);
+
+        assertThrows(IllegalStateException.class, () -> new SequenceShortCodeGenerator(urlRepository, codeRepository,
+                new Shards(mock(PlatformTransactionManager.class), config), config, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    @DisplayName("Перестановка Фейстеля взаимно однозначна на всём диапазоне")
+    void feistelPermutation_IsBijective() {
+        long domainSize = Base62.capacity(3);
+        FeistelPermutation permutation = new FeistelPermutation(domainSize, 42L, 4);
+
+        Set<Long> images = new HashSet<>();
+        for (long value = 0; value < domainSize; value++) {
+            long image = permutation.permute(value);
+            assertTrue(image >= 0 && image < domainSize);
+            images.add(image);
+        }
+
+        assertEquals(domainSize, images.size());
+    }
+
+    @Test
+    @DisplayName("Base62: кодирование фиксированной длины обратимо")
+    void base62_RoundTrip() {
+        assertEquals("000000", Base62.encode(0, 6));
+        assertEquals("zzzzzz", Base62.encode(Base62.capacity(6) - 1, 6));
+        assertEquals(123456789L, Base62.decode(Base62.encode(123456789L, 6)));
+        assertThrows(IllegalArgumentException.class, () -> Base62.encode(Base62.capacity(6), 6));
+    }
+}
@@ -0,0 +1,146 @@
+package ru.mephi.url.generator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.repository.ReservedCodeRepository;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortCodePoolTest {
+
+    @Mock
+    private ReservedCodeRepository codeRepository;
+
+    @Mock
+    private ShortURLRepository urlRepository;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ShortCodePool codePool;
+
+    @BeforeEach
+    void setUp() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCodeGenerator().setCodeLength(6);
+        config.getCodePool().setCapacity(10);
+        config.getCodePool().setLowWaterMark(5);
+        config.getCodePool().setReservationTtl(Duration.ofHours(6));
+        config.getCleanup().setChunkSize(100);
+
+        codePool = new ShortCodePool(codeRepository, urlRepository,
+                new Shards(mock(PlatformTransactionManager.class), config), taskScheduler, config, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Пул заполняется до ёмкости одним пакетом резервирования")
+    void refill_FillsToCapacity() {
+        codePool.refill();
+
+        assertEquals(10, codePool.getDepth());
+        assertEquals(10, meterRegistry.get("shortener.code.pool.depth").gauge().value());
+        verify(codeRepository, times(1)).findTakenCodes(anyCollection());
+        verify(codeRepository, times(1)).reserveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Занятые коды отбрасываются и заменяются новыми")
+    void refill_SkipsTakenCodes() {
+        when(codeRepository.findTakenCodes(anyCollection()))
+                .thenAnswer(invocation -> List.of(((Collection<String>) invocation.getArgument(0)).iterator().next()))
+                .thenReturn(List.of());
+
+        codePool.refill();
+
+        assertEquals(10, codePool.getDepth());
+        assertEquals(1, meterRegistry.get("shortener.code.pool.collisions").counter().count());
+        assertEquals(1, meterRegistry.get("shortener.code.pool.retries").counter().count());
+        verify(codeRepository, times(2)).reserveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Пакет, который частично зарезервировал другой узел, заменяется новым")
+    void refill_DuplicateReservation_Retries() {
+        doThrow(new DuplicateKeyException("reserved_codes")).doNothing()
+                .when(codeRepository).reserveAll(anyCollection());
+
+        codePool.refill();
+
+        assertEquals(10, codePool.getDepth());
+        verify(codeRepository, times(2)).reserveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Выдача кодов: уникальные коды и фоновое пополнение ниже нижней границы")
+    void nextCode_ReturnsUniqueCodes_AndSchedulesRefill() {
+        codePool.refill();
+
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            issued.add(codePool.nextCode());
+        }
+
+        assertEquals(6, issued.size());
+        assertTrue(issued.stream().allMatch(code -> code.matches("[a-zA-Z0-9]{6}")));
+        verify(taskScheduler, atLeastOnce()).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Пустой пул пополняется синхронно при запросе кода")
+    void nextCode_EmptyPool_RefillsSynchronously() {
+        assertNotNull(codePool.nextCode());
+        assertEquals(9, codePool.getDepth());
+    }
+
+    @Test
+    @DisplayName("Очистка продлевает резервы кодов из пула и удаляет резервы, которые никто не продлевал")
+    void purgeReservations_TouchesPooledCodesAndExpiresStale() {
+        codePool.refill();
+        LocalDateTime before = LocalDateTime.now().minusHours(6);
+
+        codePool.purgeReservations();
+
+        verify(codeRepository).touchAll(argThat(codes -> codes.size() == 10), any(LocalDateTime.class));
+        verify(codeRepository).deleteUsedReservations();
+        verify(codeRepository).deleteReservedBefore(argThat(expiredBefore ->
+                !expiredBefore.isBefore(before) && expiredBefore.isBefore(LocalDateTime.now().minusHours(5))));
+    }
+
+    @Test
+    @DisplayName("При остановке невыданные коды освобождаются")
+    void release_FreesPooledCodes() {
+        codePool.refill();
+
+        codePool.release();
+
+        assertEquals(0, codePool.getDepth());
+        verify(codeRepository).deleteAllByIdInBatch(argThat(codes -> ((Collection<String>) codes).size() == 10));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.mephi.url.importer;
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRowReaderTest {
+
+    @Test
+    @DisplayName("Столбцы берутся по заголовку, значения в кавычках могут содержать запятые и кавычки")
+    void next_ParsesColumnsByHeaderAndQuotedValues() throws IOException {
+        CsvRowReader reader = reader("ttlHours,longUrl,useLimit\n"
+                + "24,\"https://example.com/?q=a,b&t=\"\"x\"\"\",5\n"
+                + "\n"
+                + ",https://example.com/plain,\n");
+
+        ImportRow first = reader.next();
+        assertEquals(2, first.getLine());
+        assertEquals("https://example.com/?q=a,b&t=\"x\"", first.getRequestDto().getLongUrl());
+        assertEquals(5, first.getRequestDto().getUseLimit());
+        assertEquals(24, first.getRequestDto().getTtlHours());
+
+        ImportRow second = reader.next();
+        assertEquals(4, second.getLine());
+        assertEquals("https://example.com/plain", second.getRequestDto().getLongUrl());
+        assertNull(second.getRequestDto().getUseLimit());
+        assertNull(second.getRequestDto().getTtlHours());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Строка с нечисловым лимитом или незакрытой кавычкой отклоняется с причиной, чтение продолжается")
+    void next_MalformedRows() throws IOException {
+        CsvRowReader reader = reader("""
+                longUrl,useLimit
+                https://example.com,many
+                "https://example.com,1
+                https://example.com/ok,1
+                """);
+
+        ImportRow notNumber = reader.next();
+        assertTrue(notNumber.isMalformed());
+        assertEquals("Значение useLimit должно быть целым числом", notNumber.getError());
+        assertEquals("https://example.com,many", notNumber.getRaw());
+        assertEquals("Незакрытая кавычка в строке CSV", reader.next().getError());
+        assertFalse(reader.next().isMalformed());
+    }
+
+    @Test
+    @DisplayName("Без столбца longUrl импорт не начинается")
+    void constructor_MissingLongUrlColumn_ThrowsException() {
+        assertThrows(ValidationException.class, () -> reader("url,useLimit\n"));
+        assertEquals(List.of("a", "", "b\"c"), CsvRowReader.split("a,,\"b\"\"c\""));
+    }
+
+    private static CsvRowReader reader(String csv) throws IOException {
+        return new CsvRowReader(new BufferedReader(new StringReader(csv)));
+    }
+}
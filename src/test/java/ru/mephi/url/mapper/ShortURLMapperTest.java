@@ -90,6 +90,8 @@ class ShortURLMapperTest {
                 () -> assertEquals("https://target.com", url.getLongUrl()),
                 () -> assertEquals(500, url.getUseLimit()),
                 () -> assertEquals(72, url.getTtlHours()),
+                () -> assertEquals(url.getCreatedAt().plusHours(72), url.getExpiresAt()),
+                () -> assertEquals(ShortURL.hashLongUrl("https://target.com"), url.getLongUrlHash()),
                 () -> assertEquals(user, url.getCreator()),
                 () -> assertEquals(0, url.getUseCount()),
                 () -> assertFalse(url.getDeleted())
@@ -115,6 +117,7 @@ class ShortURLMapperTest {
         ShortURL entity = new ShortURL();
         entity.setLongUrl("https://old.com");
         entity.setUseLimit(10);
+        entity.setCreatedAt(LocalDateTime.now());
         entity.setTtlHours(5);
 
         ShortURLUpdateDto dto = new ShortURLUpdateDto();
@@ -126,8 +129,10 @@ class ShortURLMapperTest {
 
         assertAll(
                 () -> assertEquals("https://new.com", entity.getLongUrl()),
+                () -> assertEquals(ShortURL.hashLongUrl("https://new.com"), entity.getLongUrlHash()),
                 () -> assertEquals(20, entity.getUseLimit()),
-                () -> assertEquals(10, entity.getTtlHours())
+                () -> assertEquals(10, entity.getTtlHours()),
+                () -> assertEquals(entity.getCreatedAt().plusHours(10), entity.getExpiresAt())
         );
     }
 
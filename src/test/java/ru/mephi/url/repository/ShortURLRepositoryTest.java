@@ -0,0 +1,144 @@
+package ru.mephi.url.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ShortURLRepositoryTest {
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        urlRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Условный инкремент под нагрузкой из многих потоков не превышает лимит")
+    void incrementUseCountIfAllowed_ConcurrentClicks_NeverExceedsLimit() throws Exception {
+        int useLimit = 200;
+        saveUrl("hammer", useLimit, LocalDateTime.now(), 24);
+
+        int threads = 32;
+        int attemptsPerThread = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            Callable<Integer> clicks = () -> {
+                int accepted = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    accepted += urlRepository.incrementUseCountIfAllowed("hammer", LocalDateTime.now());
+                }
+                return accepted;
+            };
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(clicks));
+            }
+
+            int accepted = 0;
+            for (Future<Integer> result : results) {
+                accepted += result.get();
+            }
+            assertEquals(useLimit, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(useLimit, urlRepository.findByShortUrl("hammer").orElseThrow().getUseCount());
+    }
+
+    @Test
+    @DisplayName("Условный инкремент отклоняет просроченную ссылку")
+    void incrementUseCountIfAllowed_Expired_ReturnsZero() {
+        saveUrl("oldone", 10, LocalDateTime.now().minusHours(2), 1);
+
+        assertEquals(0, urlRepository.incrementUseCountIfAllowed("oldone", LocalDateTime.now()));
+        assertEquals(0, urlRepository.findByShortUrl("oldone").orElseThrow().getUseCount());
+    }
+
+    @Test
+    @DisplayName("Хэш длинной ссылки, вычисленный при обновлении схемы в SQL, совпадает с вычисленным в Java")
+    void longUrlHash_SqlBackfill_MatchesJava() {
+        saveUrl("hashed", 10, LocalDateTime.now(), 24);
+
+        Long sqlHash = jdbcTemplate.queryForObject(
+                "SELECT CAST(SUBSTRING(HASH('SHA-256', long_url), 1, 8) AS BIGINT) FROM short_urls WHERE short_url = 'hashed'",
+                Long.class);
+
+        assertEquals(ShortURL.hashLongUrl("https://example.com"), sqlHash);
+    }
+
+    @Test
+    @DisplayName("Поиск просроченных ссылок, дубликатов, выгрузка и список ссылок пользователя используют индексы, а не полный просмотр таблицы")
+    void expiryAndDuplicateQueries_UseIndexes() {
+        String expiredPlan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM short_urls WHERE deleted = false AND expires_at < LOCALTIMESTAMP", String.class);
+        String duplicatePlan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM short_urls WHERE creator_id = RANDOM_UUID() AND long_url_hash = 1", String.class);
+        String batchDuplicatePlan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM short_urls WHERE creator_id = RANDOM_UUID() AND long_url_hash IN (1, 2)", String.class);
+
+        String exportPlan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM short_urls WHERE creator_id = RANDOM_UUID() AND id > 0 ORDER BY creator_id, id", String.class);
+
+        String listPlan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM short_urls WHERE creator_id = RANDOM_UUID() AND deleted = false " +
+                        "AND created_at <= LOCALTIMESTAMP AND (created_at < LOCALTIMESTAMP OR id < 100) " +
+                        "ORDER BY creator_id, deleted, created_at DESC, id DESC", String.class);
+
+        assertTrue(expiredPlan.contains("IDX_SHORT_URLS_DELETED_EXPIRES_AT"), expiredPlan);
+        assertTrue(duplicatePlan.contains("IDX_SHORT_URLS_LONG_URL_HASH_CREATOR"), duplicatePlan);
+        assertTrue(batchDuplicatePlan.contains("IDX_SHORT_URLS_LONG_URL_HASH_CREATOR"), batchDuplicatePlan);
+        assertTrue(exportPlan.contains("IDX_SHORT_URLS_CREATOR_ID_ID"), exportPlan);
+        assertTrue(exportPlan.contains("index sorted"), exportPlan); // Порция берётся из индекса без сортировки
+        assertTrue(listPlan.contains("IDX_SHORT_URLS_CREATOR_CREATED_AT"), listPlan);
+        assertTrue(listPlan.contains("index sorted"), listPlan);
+    }
+
+    private void saveUrl(String shortUrl, int useLimit, LocalDateTime createdAt, int ttlHours) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user = userRepository.save(user);
+
+        ShortURL url = new ShortURL();
+        url.setShortUrl(shortUrl);
+        url.setLongUrl("https://example.com");
+        url.setLongUrlHash(ShortURL.hashLongUrl(url.getLongUrl()));
+        url.setCreator(user);
+        url.setUseCount(0);
+        url.setUseLimit(useLimit);
+        url.setCreatedAt(createdAt);
+        url.setTtlHours(ttlHours);
+        url.setExpiresAt(createdAt.plusHours(ttlHours));
+        url.setDeleted(false);
+        urlRepository.save(url);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.mephi.url.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mephi.url.cache.RedirectCache;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.model.ExpiredURL;
+import ru.mephi.url.model.ShortURL;
+import ru.mephi.url.model.User;
+import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.repository.UserRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.cleanup.chunk-size=10")
+class CleanupServiceTest {
+
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Autowired
+    private ShortURLRepository urlRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RedirectCache redirectCache;
+
+    @Autowired
+    private RedirectStore redirectStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        urlRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Все просроченные ссылки удаляются порциями, активные не затрагиваются")
+    void cleanupExpiredUrls_DeletesAllExpiredInChunks() {
+        User user = saveUser();
+        for (int i = 0; i < 25; i++) {
+            saveUrl(user, "old" + String.format("%03d", i), LocalDateTime.now().minusHours(2).plusSeconds(i % 3));
+        }
+        for (int i = 0; i < 5; i++) {
+            saveUrl(user, "new" + String.format("%03d", i), LocalDateTime.now().plusHours(1));
+        }
+
+        cleanupService.cleanupExpiredUrls();
+
+        assertEquals(25, countDeleted());
+    }
+
+    @Test
+    @DisplayName("При исчерпании времени на запуск очистка останавливается после текущей порции")
+    void cleanupExpiredUrls_TimeBudgetExceeded_StopsAfterChunk() {
+        User user = saveUser();
+        for (int i = 0; i < 25; i++) {
+            saveUrl(user, "old" + String.format("%03d", i), LocalDateTime.now().minusHours(2));
+        }
+
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCleanup().setChunkSize(10);
+        config.getCleanup().setTimeBudget(Duration.ZERO);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CleanupService(urlRepository, redirectCache, redirectStore, transactionTemplate, shards, config, meterRegistry).cleanupExpiredUrls();
+
+        assertEquals(10, countDeleted());
+        assertEquals(10, meterRegistry.get("shortener.cleanup.rows").tag("trigger", "scheduled").counter().count());
+        assertEquals(1, meterRegistry.get("shortener.cleanup.duration").tag("trigger", "scheduled").timer().count());
+    }
+
+    @Test
+    @DisplayName("Ссылки, истёкшие по колесу таймеров, удаляются только после проверки срока по БД")
+    void expireUrls_DeletesOnlyExpiredInDb() {
+        User user = saveUser();
+        saveUrl(user, "old001", LocalDateTime.now().minusSeconds(1));
+        saveUrl(user, "ext001", LocalDateTime.now().plusHours(1)); // Срок успели продлить
+
+        cleanupService.expireUrls(List.of("old001", "ext001", "gone01"));
+
+        assertTrue(urlRepository.findByShortUrl("old001").orElseThrow().getDeleted());
+        assertFalse(urlRepository.findByShortUrl("ext001").orElseThrow().getDeleted());
+    }
+
+    @Test
+    @DisplayName("Ссылка, срок которой продлили между чтением порции и удалением, не удаляется и не считается удалённой")
+    void cleanupExpiredUrls_TtlExtendedAfterRead_NotDeleted() {
+        User user = saveUser();
+        saveUrl(user, "old001", LocalDateTime.now().minusHours(2));
+        saveUrl(user, "ext001", LocalDateTime.now().minusHours(1));
+
+        // Продление коммитится из другого потока, то есть в другой транзакции, уже после чтения порции
+        ShortURLRepository repository = mock(ShortURLRepository.class, delegatesTo(urlRepository));
+        doAnswer(invocation -> {
+            List<ExpiredURL> chunk = urlRepository.findExpiredChunk(invocation.getArgument(0),
+                    invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3));
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "UPDATE short_urls SET expires_at = ? WHERE short_url = 'ext001'",
+                    LocalDateTime.now().plusHours(1))).join();
+            return chunk;
+        }).when(repository).findExpiredChunk(any(), any(), anyLong(), any(Limit.class));
+
+        ShortURLConfig config = new ShortURLConfig();
+        config.getCleanup().setChunkSize(10);
+        config.getCleanup().setTimeBudget(Duration.ofMinutes(1));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CleanupService(repository, redirectCache, redirectStore, transactionTemplate, shards, config, meterRegistry).cleanupExpiredUrls();
+
+        assertTrue(urlRepository.findByShortUrl("old001").orElseThrow().getDeleted());
+        assertFalse(urlRepository.findByShortUrl("ext001").orElseThrow().getDeleted());
+        assertEquals(1, meterRegistry.get("shortener.cleanup.rows").tag("trigger", "scheduled").counter().count());
+    }
+
+    private long countDeleted() {
+        return urlRepository.findAll().stream().filter(ShortURL::getDeleted).count();
+    }
+
+    private User saveUser() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        return userRepository.save(user);
+    }
+
+    private void saveUrl(User user, String shortUrl, LocalDateTime expiresAt) {
+        ShortURL url = new ShortURL();
+        url.setShortUrl(shortUrl);
+        url.setLongUrl("https://example.com/" + shortUrl);
+        url.setLongUrlHash(ShortURL.hashLongUrl(url.getLongUrl()));
+        url.setCreator(user);
+        url.setUseCount(0);
+        url.setUseLimit(10);
+        url.setCreatedAt(expiresAt.minusHours(1));
+        url.setTtlHours(1);
+        url.setExpiresAt(expiresAt);
+        url.setDeleted(false);
+        urlRepository.save(url);
+    }
+}
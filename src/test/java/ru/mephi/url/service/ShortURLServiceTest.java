@@ -1,26 +1,46 @@
 package ru.mephi.url.service;
 
-import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.cache.RedirectCache;
+import ru.mephi.url.cache.ShortCodeFilter;
+import ru.mephi.url.config.ShortURLConfig;
+import ru.mephi.url.counter.ClickCounter;
+import ru.mephi.url.dto.ShortURLBatchItemDto;
 import ru.mephi.url.dto.ShortURLCreateDto;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.expiry.ExpiryScheduler;
+import ru.mephi.url.generator.ShortCodeGenerator;
 import ru.mephi.url.mapper.ShortURLMapper;
+import ru.mephi.url.metrics.RedirectMetrics;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.model.ShortURL;
 import ru.mephi.url.model.User;
+import ru.mephi.url.replica.RecentWrites;
 import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
+import ru.mephi.url.store.RedirectSnapshot;
+import ru.mephi.url.store.RedirectStore;
 import ru.mephi.url.validator.ShortURLValidator;
 
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -39,6 +59,36 @@ class ShortURLServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private RedirectCache redirectCache;
+
+    @Mock
+    private ClickCounter clickCounter;
+
+    @Mock
+    private ShortCodeGenerator codeGenerator;
+
+    @Mock
+    private ExpiryScheduler expiryScheduler;
+
+    @Mock
+    private RedirectMetrics redirectMetrics;
+
+    @Mock
+    private ShortCodeFilter codeFilter;
+
+    @Mock
+    private RecentWrites recentWrites;
+
+    @Mock
+    private RedirectStore redirectStore;
+
+    @Mock
+    private RedirectSnapshot redirectSnapshot;
+
+    @Spy
+    private Shards shards = new Shards(mock(PlatformTransactionManager.class), new ShortURLConfig());
+
     @InjectMocks
     private ShortURLService shortURLService;
 
@@ -52,56 +102,148 @@ class ShortURLServiceTest {
         user.setId(UUID.randomUUID());
 
         when(userService.createUser()).thenReturn(user);
-        when(urlRepository.existsByShortUrl(anyString())).thenReturn(false);
+        when(codeGenerator.nextCode()).thenReturn("abc123");
         when(urlMapper.requestDtoToEntity(any(), any(), any())).thenReturn(new ShortURL());
         shortURLService.createShortUrl(null, dto);
 
         verify(userService).createUser();
+        verify(urlValidator, never()).checkUniqueLongUrlForUser(any(), any()); // У нового пользователя дубликатов нет
         verify(urlRepository).save(any(ShortURL.class));
+        verify(expiryScheduler).schedule(eq("abc123"), any());
+        verify(codeFilter).add("abc123");
     }
 
     @Test
-    @DisplayName("Обработка коллизии при генерации короткого кода")
-    void createShortUrl_WithCodeCollision() {
+    @DisplayName("Код для новой ссылки выдаётся генератором без проверки уникальности в БД")
+    void createShortUrl_TakesCodeFromGenerator() {
         ShortURLCreateDto requestDto = new ShortURLCreateDto();
 
         User user = new User();
         user.setId(UUID.randomUUID());
 
         when(userService.createUser()).thenReturn(user);
-        when(urlRepository.existsByShortUrl(anyString())).thenReturn(true).thenReturn(false);
+        when(codeGenerator.nextCode()).thenReturn("pooled");
         when(urlMapper.requestDtoToEntity(any(), any(), any())).thenReturn(new ShortURL());
         shortURLService.createShortUrl(null, requestDto);
 
-        verify(urlRepository, atLeast(2)).existsByShortUrl(anyString());
+        verify(urlMapper).requestDtoToEntity(requestDto, user, "pooled");
+        verify(codeGenerator).nextCode();
     }
 
     @Test
-    @DisplayName("Получение длинной ссылки и инкремент счетчика")
-    void getLongUrl_ShouldIncrementCount_WhenExists() {
+    @DisplayName("Пакетное создание: коды выдаются разом, ссылки сохраняются одним saveAll, ошибки - по элементам")
+    void createShortUrls_SavesValidItemsAndReportsErrors() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        ShortURLCreateDto first = new ShortURLCreateDto();
+        first.setLongUrl("https://a.com");
+        ShortURLCreateDto invalid = new ShortURLCreateDto();
+        ShortURLCreateDto repeated = new ShortURLCreateDto();
+        repeated.setLongUrl("https://a.com");
+        ShortURLCreateDto second = new ShortURLCreateDto();
+        second.setLongUrl("https://b.com");
+
+        when(userService.getUserReference(user.getId())).thenReturn(user);
+        when(urlValidator.validateBatchItem(any())).thenReturn(Map.of());
+        when(urlValidator.validateBatchItem(invalid)).thenReturn(Map.of("longUrl", "Длинная ссылка обязательна для заполнения"));
+        when(urlValidator.findTakenLongUrls(user, Set.of("https://a.com", "https://b.com"))).thenReturn(new HashSet<>());
+        when(codeGenerator.nextCodes(2)).thenReturn(List.of("aaaaaa", "bbbbbb"));
+        when(urlMapper.requestDtoToEntity(any(), eq(user), anyString())).thenAnswer(invocation -> {
+            ShortURL url = new ShortURL();
+            url.setShortUrl(invocation.getArgument(2));
+            return url;
+        });
+
+        List<ShortURLBatchItemDto> results = shortURLService.createShortUrls(user.getId(),
+                List.of(first, invalid, repeated, second));
+
+        assertEquals(List.of(201, 400, 400, 201), results.stream().map(ShortURLBatchItemDto::getStatus).toList());
+        verify(urlMapper).requestDtoToEntity(first, user, "aaaaaa");
+        verify(urlMapper).requestDtoToEntity(second, user, "bbbbbb");
+        verify(urlRepository).saveAll(anyList());
+        verify(codeFilter).add("aaaaaa");
+        verify(codeFilter).add("bbbbbb");
+        verify(urlValidator, never()).checkUniqueLongUrlForUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("Получение длинной ссылки и регистрация перехода")
+    void redirect_ShouldRegisterClick_WhenExists() {
         String shortUrl = "abc123";
-        ShortURL url = new ShortURL();
-        url.setShortUrl(shortUrl);
-        url.setLongUrl("https://ya.ru");
-        url.setUseCount(5);
-        url.setUseLimit(10);
+        RedirectEntry entry = new RedirectEntry(shortUrl, "https://ya.ru", UUID.randomUUID(),
+                5, 10, LocalDateTime.now().plusHours(24));
+
+        when(redirectCache.get(shortUrl)).thenReturn(Optional.of(entry));
+        when(urlValidator.checkAccess(entry)).thenReturn(AccessResult.ok(entry));
+        when(clickCounter.registerClick(entry)).thenReturn(true);
+        AccessResult result = shortURLService.redirect(shortUrl);
+
+        assertEquals(AccessResult.Status.OK, result.getStatus());
+        assertEquals("https://ya.ru", result.getLongUrl());
+        verify(urlValidator).checkAccess(entry);
+        verify(clickCounter).registerClick(entry);
+        verify(urlRepository, never()).findByShortUrl(anyString());
+        verify(urlRepository, never()).save(any());
+    }
 
-        when(urlRepository.findByShortUrl(shortUrl)).thenReturn(Optional.of(url));
-        String longUrl = shortURLService.getLongUrl(shortUrl);
+    @Test
+    @DisplayName("Отказ без исключения при переходе по несуществующей ссылке")
+    void redirect_ShouldReturnNotFound_WhenMissing() {
+        String shortUrl = "missin";
+
+        when(redirectCache.get(shortUrl)).thenReturn(Optional.empty());
+        AccessResult result = shortURLService.redirect(shortUrl);
 
-        assertEquals("https://ya.ru", longUrl);
-        assertEquals(6, url.getUseCount());
-        verify(urlValidator).validateAccess(url);
+        assertEquals(AccessResult.Status.NOT_FOUND, result.getStatus());
+        assertEquals("Короткая ссылка 'missin' не найдена", result.getError());
+        verify(redirectMetrics).rejected(AccessResult.Status.NOT_FOUND);
     }
 
     @Test
-    @DisplayName("Ошибка при получении несуществующей ссылки")
-    void getLongUrl_ShouldThrowException_WhenNotFound() {
-        String shortUrl = "missin";
+    @DisplayName("Последний переход занят параллельным запросом - отказ по лимиту")
+    void redirect_ShouldReturnLimitReached_WhenClickRejected() {
+        String shortUrl = "abc123";
+        RedirectEntry entry = new RedirectEntry(shortUrl, "https://ya.ru", UUID.randomUUID(),
+                9, 10, LocalDateTime.now().plusHours(24));
+
+        when(redirectCache.get(shortUrl)).thenReturn(Optional.of(entry));
+        when(urlValidator.checkAccess(entry)).thenReturn(AccessResult.ok(entry));
+        when(clickCounter.registerClick(entry)).thenReturn(false);
+        AccessResult result = shortURLService.redirect(shortUrl);
+
+        assertEquals(AccessResult.Status.LIMIT_REACHED, result.getStatus());
+        verify(redirectMetrics).rejected(AccessResult.Status.LIMIT_REACHED);
+    }
+
+    @Test
+    @DisplayName("Переход, учтённый хранилищем, проходит мимо кэша и только сохраняется счётчиком переходов")
+    void redirect_CountedByStore_SkipsCache() {
+        String shortUrl = "abc123";
+        when(redirectStore.click(shortUrl))
+                .thenReturn(new RedirectStore.Click(AccessResult.ok(shortUrl, "https://ya.ru"), false));
+        when(clickCounter.registerCountedClick(shortUrl)).thenReturn(true);
+
+        AccessResult result = shortURLService.redirect(shortUrl);
+
+        assertEquals(AccessResult.Status.OK, result.getStatus());
+        assertEquals("https://ya.ru", result.getLongUrl());
+        verify(redirectCache, never()).get(anyString());
+        verify(clickCounter, never()).registerClick(any());
+    }
+
+    @Test
+    @DisplayName("Переход, учтённый хранилищем, но отклонённый БД, снимает ссылку с хранилища")
+    void redirect_CountedByStoreRejectedByDatabase_EvictsLink() {
+        String shortUrl = "abc123";
+        when(redirectStore.click(shortUrl))
+                .thenReturn(new RedirectStore.Click(AccessResult.ok(shortUrl, "https://ya.ru"), false));
+        when(clickCounter.registerCountedClick(shortUrl)).thenReturn(false);
 
-        when(urlRepository.findByShortUrl(shortUrl)).thenReturn(Optional.empty());
+        AccessResult result = shortURLService.redirect(shortUrl);
 
-        assertThrows(EntityNotFoundException.class, () -> shortURLService.getLongUrl(shortUrl));
+        assertEquals(AccessResult.Status.LIMIT_REACHED, result.getStatus());
+        verify(redirectStore).evicted(List.of(shortUrl));
+        verify(redirectMetrics).rejected(AccessResult.Status.LIMIT_REACHED);
     }
 
     @Test
@@ -121,10 +263,12 @@ class ShortURLServiceTest {
         when(urlRepository.findByShortUrl(shortUrl)).thenReturn(Optional.of(url));
         shortURLService.updateShortUrl(shortUrl, userId, requestDto);
 
+        verify(clickCounter).flush(shortUrl);
         verify(urlValidator).checkOwnership(url, userId);
         verify(urlValidator).validateUpdate(url, requestDto);
         verify(urlMapper).updateEntityFromRequestDto(url, requestDto);
         verify(urlRepository).save(url);
+        verify(redirectCache).invalidate(shortUrl);
     }
 
     @Test
@@ -144,5 +288,7 @@ class ShortURLServiceTest {
 
         verify(urlValidator).checkOwnership(url, userId);
         verify(urlRepository).delete(url);
+        verify(redirectSnapshot).removed(shortUrl);
+        verify(redirectCache).invalidate(shortUrl);
     }
 }
@@ -1,12 +1,13 @@
 package ru.mephi.url.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.mephi.url.config.ShortURLConfig;
 import ru.mephi.url.model.User;
 import ru.mephi.url.repository.UserRepository;
 
@@ -23,9 +24,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    void setUp() {
+        ShortURLConfig config = new ShortURLConfig();
+        config.getUsers().setKnownIdsCacheSize(100);
+        userService = new UserService(userRepository, config);
+    }
+
     @Test
     @DisplayName("Получение пользователя: Успешный возврат при наличии в БД")
     void getUserById_Success() {
@@ -54,24 +61,32 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("Создание пользователя: Успешная генерация и сохранение")
+    @DisplayName("Создание пользователя: Один INSERT нового пользователя без предварительной проверки id")
     void createUser_Success() {
-        when(userRepository.existsById(any(UUID.class))).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         User result = userService.createUser();
 
         assertNotNull(result);
         assertNotNull(result.getId());
+        assertTrue(result.isNew()); // save() выполнит persist, а не merge с SELECT
         verify(userRepository).save(any(User.class));
+        verify(userRepository, never()).existsById(any(UUID.class));
     }
 
     @Test
-    @DisplayName("Создание пользователя: Обработка коллизии UUID")
-    void createUser_WithCollision_ShouldRetry() {
-        when(userRepository.existsById(any(UUID.class))).thenReturn(true).thenReturn(false);
-        User result = userService.createUser();
+    @DisplayName("Ссылка на пользователя: БД проверяется только при первом обращении к id")
+    void getUserReference_ChecksDatabaseOnce() {
+        UUID userId = UUID.randomUUID();
+        User user = new User();
+        user.setId(userId);
 
-        assertNotNull(result);
-        verify(userRepository, times(2)).existsById(any(UUID.class));
-        verify(userRepository, times(1)).save(any(User.class));
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+        userService.getUserReference(userId);
+        userService.getUserReference(userId);
+
+        verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(2)).getReferenceById(userId);
+        assertThrows(EntityNotFoundException.class, () -> userService.getUserReference(UUID.randomUUID()));
     }
 }
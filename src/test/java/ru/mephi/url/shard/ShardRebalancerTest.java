@@ -0,0 +1,101 @@
+package ru.mephi.url.shard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShardRebalancerTest {
+    private static final List<String> URLS = List.of("jdbc:h2:mem:rebalance0;DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:rebalance1;DB_CLOSE_DELAY=-1", "jdbc:h2:mem:rebalance2;DB_CLOSE_DELAY=-1");
+    private static final int LINKS = 50;
+
+    private final List<JdbcTemplate> shards = URLS.stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    private final UUID owner = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        for (JdbcTemplate shard : shards) {
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")),
+                    shard.getDataSource());
+            shard.update("DELETE FROM short_urls");
+            shard.update("DELETE FROM users");
+        }
+        // Исходное размещение - по двум шардам
+        for (int i = 0; i < LINKS; i++) {
+            String code = String.format("rb%04d", i);
+            insertLink(shards.get(Shards.shardOf(code, 2)), i + 1, code);
+        }
+    }
+
+    @Test
+    @DisplayName("При добавлении шарда каждая ссылка оказывается в шарде своего кода, повторный запуск ничего не переносит")
+    void run_AddShard_MovesLinksToTheirNewShards() throws Exception {
+        long moved = new ShardRebalancer(URLS.subList(0, 2), URLS, "sa", "", 7).run();
+
+        assertPlacement(URLS.size());
+        assertEquals(moved, countLinks(shards.get(2)) + movedBetween(0, 1) + movedBetween(1, 0));
+        assertEquals(1, shards.get(2).queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, owner));
+        assertEquals(0, new ShardRebalancer(URLS, URLS, "sa", "", 7).run());
+    }
+
+    @Test
+    @DisplayName("При удалении шарда его ссылки переносятся в оставшийся")
+    void run_RemoveShard_DrainsIt() throws Exception {
+        new ShardRebalancer(URLS.subList(0, 2), URLS.subList(0, 1), "sa", "", 7).run();
+
+        assertEquals(LINKS, countLinks(shards.get(0)));
+        assertEquals(0, countLinks(shards.get(1)));
+    }
+
+    private void assertPlacement(int shardCount) {
+        int total = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (String code : shards.get(shard).queryForList("SELECT short_url FROM short_urls", String.class)) {
+                assertEquals(shard, Shards.shardOf(code, shardCount), code);
+                total++;
+            }
+        }
+        assertEquals(LINKS, total);
+    }
+
+    // Число ссылок, которые лежали в шарде from и должны были перейти в шард to
+    private static long movedBetween(int from, int to) {
+        long count = 0;
+        for (int i = 0; i < LINKS; i++) {
+            String code = String.format("rb%04d", i);
+            if (Shards.shardOf(code, 2) == from && Shards.shardOf(code, 3) == to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void insertLink(JdbcTemplate db, long id, String shortUrl) {
+        LocalDateTime now = LocalDateTime.now();
+        String longUrl = "https://rebalance.example/" + shortUrl;
+        db.update("MERGE INTO users (id) KEY (id) VALUES (?)", owner);
+        db.update("INSERT INTO short_urls (id, short_url, long_url, long_url_hash, creator_id, use_count, use_limit, " +
+                        "created_at, ttl_hours, expires_at, deleted) VALUES (?, ?, ?, ?, ?, 0, 10, ?, 1, ?, false)",
+                id, shortUrl, longUrl, (long) longUrl.hashCode(), owner,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plusHours(1)));
+    }
+
+    private static int countLinks(JdbcTemplate db) {
+        return db.queryForObject("SELECT COUNT(*) FROM short_urls", Integer.class);
+    }
+}
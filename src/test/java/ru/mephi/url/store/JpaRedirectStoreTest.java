@@ -0,0 +1,4 @@
+package ru.mephi.url.store;
+
+class JpaRedirectStoreTest extends RedirectStoreContractTest {
+}
@@ -0,0 +1,33 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestPropertySource(properties = {
+        "app.redirect-store.engine=log",
+        "app.redirect-store.directory=target/redirect-store/${random.uuid}"
+})
+class LogRedirectStoreTest extends RedirectStoreContractTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Ссылка, прочитанная из БД при промахе, дальше отдаётся из журнала")
+    void missedLink_ServedFromLogAfterwards() {
+        String code = insertLink(LocalDateTime.now().plusHours(1));
+        double before = meterRegistry.counter("shortener.redirect.log.misses").count();
+
+        redirectStore.findRedirectEntry(code);
+        redirectStore.findRedirectEntry(code);
+
+        assertEquals(before + 1, meterRegistry.counter("shortener.redirect.log.misses").count());
+    }
+}
@@ -0,0 +1,73 @@
+package ru.mephi.url.store;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import ru.mephi.url.counter.WriteBehindClickCounter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = "app.redirect-store.engine=memory")
+class MemoryRedirectStoreTest extends RedirectStoreContractTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WriteBehindClickCounter clickCounter;
+
+    @Test
+    @DisplayName("Ссылка, прочитанная из БД при промахе, дальше отдаётся из индекса в памяти")
+    void missedLink_ServedFromIndexAfterwards() {
+        String code = insertLink(LocalDateTime.now().plusHours(1));
+        double before = meterRegistry.counter("shortener.redirect.memory.misses").count();
+
+        redirectStore.findRedirectEntry(code);
+        redirectStore.findRedirectEntry(code);
+
+        assertEquals(before + 1, meterRegistry.counter("shortener.redirect.memory.misses").count());
+    }
+
+    @Test
+    @DisplayName("Переходы по ссылке из индекса считаются в нём до лимита без чтения из БД, сброс сохраняет их в БД один раз")
+    void redirects_CountedInIndexUpToLimit() throws Exception {
+        String code = code(createLink("https://store.example/limit", 2));
+        double before = meterRegistry.counter("shortener.redirect.memory.misses").count();
+
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isBadRequest());
+        clickCounter.flush();
+
+        assertEquals(before, meterRegistry.counter("shortener.redirect.memory.misses").count());
+        assertEquals(2, useCount(code));
+        assertEquals(2, redirectStore.findRedirectEntry(code).orElseThrow().getUseCount());
+    }
+
+    @Test
+    @DisplayName("Ссылка, снятая с индекса, возвращается в него с переходами, ещё не сохранёнными в БД")
+    void missedLink_LoadedWithUnflushedClicks() throws Exception {
+        String code = code(createLink("https://store.example/pending", 10));
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+
+        redirectStore.evicted(List.of(code));
+        assertEquals(2, redirectStore.findRedirectEntry(code).orElseThrow().getUseCount());
+
+        mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+        clickCounter.flush();
+        assertEquals(3, useCount(code));
+        assertEquals(3, redirectStore.findRedirectEntry(code).orElseThrow().getUseCount());
+    }
+
+    private int useCount(String code) {
+        return jdbcTemplate.queryForObject("SELECT use_count FROM short_urls WHERE short_url = ?", Integer.class, code);
+    }
+}
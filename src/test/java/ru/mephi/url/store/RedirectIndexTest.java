@@ -0,0 +1,276 @@
+package ru.mephi.url.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.mephi.url.generator.Base62;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectIndexTest {
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2030, 1, 2, 3, 4, 5, 600_000_789);
+
+    @Test
+    @DisplayName("Запись читается со всеми полями (срок жизни - с точностью до секунды, округлённым вверх), " +
+            "коды не из шести символов Base62 в индекс не попадают")
+    void lookup_ReturnsStoredEntries() {
+        RedirectIndex index = new RedirectIndex(100);
+        index.putAll(List.of(
+                new RedirectEntry("Zz09aA", "https://пример.рф/путь", OWNER, 3, 7, EXPIRES_AT),
+                new RedirectEntry("short", "https://short.example", OWNER, 0, 1, EXPIRES_AT),
+                new RedirectEntry("ab-cde", "https://dash.example", OWNER, 0, 1, EXPIRES_AT)));
+
+        RedirectEntry entry = index.lookup("Zz09aA").entry();
+        assertNotNull(entry);
+        assertEquals("Zz09aA", entry.getShortUrl());
+        assertEquals("https://пример.рф/путь", entry.getLongUrl());
+        assertEquals(OWNER, entry.getCreatorId());
+        assertEquals(3, entry.getUseCount());
+        assertEquals(7, entry.getUseLimit());
+        assertEquals(EXPIRES_AT.withNano(0).plusSeconds(1), entry.getExpiresAt());
+        assertNull(index.lookup("short").entry());
+        assertNull(index.lookup("ab-cde").entry());
+        assertNull(index.lookup("Zz09aB").entry());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Переход проверяет срок и лимит по массивам индекса и увеличивает счётчик, пока лимит не исчерпан")
+    void click_CountsUntilLimitOrExpiry() {
+        RedirectIndex index = new RedirectIndex(100);
+        LocalDateTime expiresAt = EXPIRES_AT.withNano(0);
+        index.putAll(List.of(
+                new RedirectEntry("code01", "https://one.example", OWNER, 0, 2, expiresAt),
+                new RedirectEntry("code02", "https://two.example", OWNER, 0, 2, expiresAt.minusSeconds(1))));
+
+        RedirectStore.Click first = index.click("code01", expiresAt);
+        assertTrue(first.result().isOk());
+        assertEquals("https://one.example", first.result().getLongUrl());
+        assertFalse(first.last());
+        assertTrue(index.click("code01", expiresAt).last());
+        assertEquals(AccessResult.Status.LIMIT_REACHED, index.click("code01", expiresAt).result().getStatus());
+        assertEquals(2, index.lookup("code01").entry().getUseCount());
+
+        assertEquals(AccessResult.Status.EXPIRED, index.click("code02", expiresAt).result().getStatus());
+        assertTrue(index.click("code02", expiresAt.minusSeconds(1)).result().isOk());
+        assertEquals(AccessResult.Status.EXPIRED,
+                index.click("code02", expiresAt.minusSeconds(1).plusNanos(1)).result().getStatus());
+
+        assertNull(index.click("code03", expiresAt));
+        index.removeAll(List.of("code01"));
+        assertNull(index.click("code01", expiresAt));
+    }
+
+    @Test
+    @DisplayName("Параллельные переходы занимают ровно лимит и не теряются при изменениях других ссылок")
+    void click_Concurrent_ExactLimit() throws Exception {
+        RedirectIndex index = new RedirectIndex(100_000);
+        index.putAll(List.of(new RedirectEntry("hot123", "https://hot.example", OWNER, 0, 10_000, EXPIRES_AT)));
+        LocalDateTime now = EXPIRES_AT.minusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> clickers = new ArrayList<>();
+            for (int clicker = 0; clicker < 3; clicker++) {
+                clickers.add(executor.submit(() -> {
+                    int accepted = 0;
+                    for (int attempt = 0; attempt < 5000; attempt++) {
+                        if (index.click("hot123", now).result().isOk()) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    index.putAll(List.of(entry(Base62.encode(i, 6), 0)));
+                    index.removeAll(List.of(Base62.encode(i, 6)));
+                }
+            });
+            int accepted = 0;
+            for (Future<Integer> clicker : clickers) {
+                accepted += clicker.get();
+            }
+            writer.get();
+
+            assertEquals(10_000, accepted);
+            assertEquals(10_000, index.lookup("hot123").entry().getUseCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Владельцы хранятся словарём: после удаления их ссылок и перестроения таблицы записи сохраняют владельцев")
+    void owners_KeptAcrossRemovalsAndRebuilds() {
+        RedirectIndex index = new RedirectIndex(100_000);
+        int links = 20_000;
+        List<UUID> owners = IntStream.range(0, links / 10).mapToObj(i -> UUID.randomUUID()).toList();
+        List<RedirectEntry> entries = IntStream.range(0, links)
+                .mapToObj(i -> new RedirectEntry(Base62.encode(i, 6), "https://owner.example/" + i,
+                        owners.get(i / 10), 0, 10, EXPIRES_AT))
+                .toList();
+        index.putAll(entries);
+
+        // У трёх владельцев из четырёх не остаётся ссылок, надгробия отсутствующих кодов вынуждают перестроение
+        index.removeAll(entries.stream().filter(entry -> index(entry) / 10 % 4 != 0)
+                .map(RedirectEntry::getShortUrl).toList());
+        index.removeAll(IntStream.range(links, 4 * links).mapToObj(i -> Base62.encode(i, 6)).toList());
+        for (int i = 0; i < links; i += 10) {
+            RedirectEntry entry = index.lookup(Base62.encode(i, 6)).entry();
+            if (i / 10 % 4 == 0) {
+                assertEquals(owners.get(i / 10), entry.getCreatorId());
+            } else {
+                assertNull(entry);
+            }
+        }
+
+        index.putAll(entries);
+        for (int i = 0; i < links; i++) {
+            assertEquals(owners.get(i / 10), index.lookup(Base62.encode(i, 6)).entry().getCreatorId());
+        }
+    }
+
+    @Test
+    @DisplayName("Любое изменение кода, в том числе надгробие отсутствующего, меняет версию и отклоняет запись по старой")
+    void putAllIfUnchanged_RejectsChangedCodes() {
+        RedirectIndex index = new RedirectIndex(100);
+        long absent = index.versionOf("code01");
+        long stored = index.versionOf("code02");
+        index.putAll(List.of(entry("code02", 0)));
+
+        Map<String, Long> removed = index.removeAll(List.of("code01"));
+        assertNotEquals(absent, removed.get("code01"));
+        assertEquals(0, index.putAllIfUnchanged(List.of(entry("code01", 0)), Map.of("code01", absent)));
+        assertEquals(1, index.putAllIfUnchanged(List.of(entry("code01", 0)), removed));
+
+        long beforeClicks = index.versionOf("code02");
+        assertNotEquals(stored, beforeClicks);
+        index.addUseCounts(Map.of("code02", 2, "absent", 1));
+        assertEquals(2, index.lookup("code02").entry().getUseCount());
+        assertNull(index.lookup("absent").entry());
+        assertEquals(0, index.putAllIfUnchanged(List.of(entry("code02", 0)), Map.of("code02", beforeClicks)));
+        assertEquals(2, index.lookup("code02").entry().getUseCount());
+    }
+
+    @Test
+    @DisplayName("После роста таблицы, перестроения без надгробий и уплотнения адресов записи не теряются")
+    void manyChanges_KeepLatestEntries() {
+        RedirectIndex index = new RedirectIndex(100_000);
+        int links = 20_000;
+        for (int round = 0; round < 4; round++) {
+            List<RedirectEntry> entries = new ArrayList<>();
+            for (int i = 0; i < links; i++) {
+                entries.add(entry(Base62.encode(i, 6), round));
+            }
+            index.putAll(entries);
+            List<String> removed = new ArrayList<>();
+            for (int i = round % 2; i < links; i += 2) {
+                removed.add(Base62.encode(i, 6));
+            }
+            index.removeAll(removed);
+        }
+        List<String> absent = new ArrayList<>();
+        for (int i = links; i < 3 * links; i++) {
+            absent.add(Base62.encode(i, 6));
+        }
+        index.removeAll(absent);
+
+        assertEquals(links / 2, index.size());
+        for (int i = 0; i < links; i++) {
+            RedirectEntry entry = index.lookup(Base62.encode(i, 6)).entry();
+            if (i % 2 == 0) {
+                assertNotNull(entry);
+                assertEquals(url(Base62.encode(i, 6), 3), entry.getLongUrl());
+                assertEquals(3, entry.getUseCount());
+            } else {
+                assertNull(entry);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Ссылки сверх max-links не сохраняются, пока в индексе не освободится место")
+    void putAll_StopsAtMaxLinks() {
+        RedirectIndex index = new RedirectIndex(2);
+        index.putAll(List.of(entry("code01", 0), entry("code02", 0), entry("code03", 0)));
+        assertEquals(2, index.size());
+        assertNull(index.lookup("code03").entry());
+
+        index.removeAll(List.of("code01"));
+        index.putAll(List.of(entry("code03", 0), entry("code02", 5)));
+        assertEquals(2, index.size());
+        assertNotNull(index.lookup("code03").entry());
+        assertEquals(5, index.lookup("code02").entry().getUseCount());
+    }
+
+    @Test
+    @DisplayName("Чтение параллельно с изменениями не видит записей в промежуточном состоянии")
+    void lookup_ConcurrentWithChanges_SeesWholeEntries() throws Exception {
+        RedirectIndex index = new RedirectIndex(100_000);
+        int links = 1000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; running.get(); round++) {
+                    List<RedirectEntry> entries = new ArrayList<>();
+                    for (int i = 0; i < links; i++) {
+                        entries.add(entry(Base62.encode((long) round * links + i, 6), round));
+                    }
+                    index.putAll(entries);
+                    index.removeAll(entries.stream().map(RedirectEntry::getShortUrl).toList());
+                    index.putAll(entries);
+                }
+            });
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int reader = 0; reader < 3; reader++) {
+                readers.add(executor.submit(() -> {
+                    int found = 0;
+                    for (int attempt = 0; attempt < 200_000; attempt++) {
+                        String code = Base62.encode(attempt % 50_000, 6);
+                        RedirectEntry entry = index.lookup(code).entry();
+                        if (entry != null) {
+                            assertEquals(url(code, entry.getUseCount()), entry.getLongUrl());
+                            found++;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            for (Future<Integer> reader : readers) {
+                reader.get();
+            }
+            running.set(false);
+            writer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int index(RedirectEntry entry) {
+        return (int) Base62.decode(entry.getShortUrl());
+    }
+
+    private static RedirectEntry entry(String shortUrl, int useCount) {
+        return new RedirectEntry(shortUrl, url(shortUrl, useCount), OWNER, useCount, 1000, EXPIRES_AT);
+    }
+
+    // Адрес зависит от счётчика и растёт с ним, чтобы изменения переписывали адреса и копили мусор на страницах
+    private static String url(String shortUrl, int useCount) {
+        return "https://index.example/" + shortUrl + "/" + useCount + "/" + "x".repeat(20 * (useCount % 4));
+    }
+}
@@ -0,0 +1,168 @@
+package ru.mephi.url.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectLogTest {
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2030, 1, 2, 3, 4, 5, 600_000_000);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("После повторного открытия журнал восстанавливает последние записи, надгробия и счётчики")
+    void open_ReplaysLog() throws IOException {
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            redirectLog.putAll(List.of(entry("code01", 0), entry("code02", 0), entry("code03", 0)));
+            redirectLog.addUseCounts(Map.of("code01", 3, "absent", 1));
+            redirectLog.removeAll(List.of("code02"));
+            redirectLog.putAll(List.of(entry("code03", 7)));
+        }
+
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            RedirectEntry first = redirectLog.lookup("code01").entry();
+            assertEquals("https://log.example/code01", first.getLongUrl());
+            assertEquals(OWNER, first.getCreatorId());
+            assertEquals(3, first.getUseCount());
+            assertEquals(10, first.getUseLimit());
+            assertEquals(EXPIRES_AT, first.getExpiresAt());
+            assertNull(redirectLog.lookup("code02").entry());
+            assertEquals(7, redirectLog.lookup("code03").entry().getUseCount());
+            assertNull(redirectLog.lookup("absent").entry());
+            assertEquals(2, redirectLog.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Оборванная при сбое последняя запись отрезается, предыдущие сохраняются")
+    void open_TornTail_Truncated() throws IOException {
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            redirectLog.putAll(List.of(entry("code01", 1), entry("code02", 2)));
+        }
+        Path file = directory.resolve(RedirectLog.FILE_NAME);
+        long intact = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 5);
+        }
+
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            assertEquals(1, redirectLog.lookup("code01").entry().getUseCount());
+            assertNull(redirectLog.lookup("code02").entry());
+
+            redirectLog.putAll(List.of(entry("code03", 3))); // Новые записи пишутся с места обрыва
+        }
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            assertEquals(3, redirectLog.lookup("code03").entry().getUseCount());
+            assertEquals(2, redirectLog.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Запись с неверной контрольной суммой отрезается вместе со всем, что после неё")
+    void open_CorruptedRecord_TruncatedFromIt() throws IOException {
+        long second;
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            redirectLog.putAll(List.of(entry("code01", 1)));
+            second = redirectLog.fileSize();
+            redirectLog.putAll(List.of(entry("code02", 2), entry("code03", 3)));
+        }
+        Path file = directory.resolve(RedirectLog.FILE_NAME);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) second + 20] ^= 0x7F;
+        Files.write(file, bytes);
+
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            assertNotNull(redirectLog.lookup("code01").entry());
+            assertNull(redirectLog.lookup("code02").entry());
+            assertNull(redirectLog.lookup("code03").entry());
+            assertEquals(second, Files.size(file));
+        }
+    }
+
+    @Test
+    @DisplayName("Уплотнение оставляет только живые записи и не теряет записи, сделанные во время него")
+    void compact_KeepsLiveRecordsOnly() throws Exception {
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            for (int i = 0; i < 100; i++) {
+                redirectLog.putAll(List.of(entry(code(i), 0)));
+            }
+            for (int round = 1; round <= 5; round++) {
+                for (int i = 0; i < 100; i++) {
+                    redirectLog.addUseCounts(Map.of(code(i), 1));
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < 100; i += 2) {
+                removed.add(code(i));
+            }
+            redirectLog.removeAll(removed);
+            long before = redirectLog.fileSize();
+            assertTrue(redirectLog.garbageRatio() > 0.9);
+
+            ExecutorService writer = Executors.newSingleThreadExecutor();
+            Future<?> writes = writer.submit(() -> {
+                for (int i = 100; i < 200; i++) {
+                    redirectLog.putAll(List.of(entry(code(i), i)));
+                }
+            });
+            redirectLog.compact();
+            writes.get();
+            writer.shutdown();
+
+            assertTrue(redirectLog.fileSize() < before);
+            assertEquals(150, redirectLog.size());
+        }
+
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            assertEquals(150, redirectLog.size());
+            assertNull(redirectLog.lookup(code(0)).entry());
+            assertEquals(5, redirectLog.lookup(code(1)).entry().getUseCount());
+            assertEquals(199, redirectLog.lookup(code(199)).entry().getUseCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Условная запись отклоняется, если код изменился или журнал уплотнён после чтения версии")
+    void putAllIfUnchanged_StaleVersion_Rejected() throws IOException {
+        try (RedirectLog redirectLog = RedirectLog.open(directory)) {
+            long absent = redirectLog.lookup("code01").version();
+            redirectLog.removeAll(List.of("code01"));
+            assertEquals(0, redirectLog.putAllIfUnchanged(List.of(entry("code01", 1)), Map.of("code01", absent)));
+
+            long removed = redirectLog.versionOf("code01");
+            redirectLog.compact();
+            assertEquals(0, redirectLog.putAllIfUnchanged(List.of(entry("code01", 1)), Map.of("code01", removed)));
+
+            long current = redirectLog.versionOf("code01");
+            assertEquals(1, redirectLog.putAllIfUnchanged(List.of(entry("code01", 1)), Map.of("code01", current)));
+            assertEquals(1, redirectLog.lookup("code01").entry().getUseCount());
+        }
+    }
+
+    private static String code(int i) {
+        return String.format("c%05d", i);
+    }
+
+    private static RedirectEntry entry(String shortUrl, int useCount) {
+        return new RedirectEntry(shortUrl, "https://log.example/" + shortUrl, OWNER, useCount, 10, EXPIRES_AT);
+    }
+}
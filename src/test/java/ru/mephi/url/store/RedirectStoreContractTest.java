@@ -0,0 +1,181 @@
+package ru.mephi.url.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mephi.url.counter.WriteBehindClickCounter;
+import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.RedirectEntry;
+import ru.mephi.url.service.CleanupService;
+import ru.mephi.url.service.ShortURLService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Один и тот же набор проверок для каждого движка хранилища: ссылки меняются через API и сервисы,
+// а хранилище должно отдавать для перехода то же, что лежит в short_urls
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+abstract class RedirectStoreContractTest {
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected RedirectStore redirectStore;
+
+    @Autowired
+    private WriteBehindClickCounter clickCounter;
+
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Autowired
+    private ShortURLService urlService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Созданная ссылка находится в хранилище")
+    void createdLink_Found() throws Exception {
+        JsonNode created = createLink("https://store.example/created", 10);
+
+        RedirectEntry entry = redirectStore.findRedirectEntry(code(created)).orElseThrow();
+        assertEquals("https://store.example/created", entry.getLongUrl());
+        assertEquals(UUID.fromString(created.get("creatorId").asText()), entry.getCreatorId());
+        assertEquals(0, entry.getUseCount());
+        assertEquals(10, entry.getUseLimit());
+    }
+
+    @Test
+    @DisplayName("Сброшенные в БД переходы видны в счётчике записи")
+    void flushedClicks_Counted() throws Exception {
+        String code = code(createLink("https://store.example/clicks", 10));
+        redirectStore.findRedirectEntry(code);
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/{shortUrl}", code)).andExpect(status().isFound());
+        }
+        clickCounter.flush();
+
+        assertEquals(3, redirectStore.findRedirectEntry(code).orElseThrow().getUseCount());
+    }
+
+    @Test
+    @DisplayName("Изменённая ссылка отдаётся с новыми адресом и лимитом")
+    void updatedLink_Changed() throws Exception {
+        JsonNode created = createLink("https://store.example/before", 10);
+        String code = code(created);
+        redirectStore.findRedirectEntry(code);
+
+        mockMvc.perform(put("/{shortUrl}", code)
+                        .header("UUID", created.get("creatorId").asText())
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"https://store.example/after\",\"useLimit\":5}"))
+                .andExpect(status().isOk());
+
+        RedirectEntry entry = redirectStore.findRedirectEntry(code).orElseThrow();
+        assertEquals("https://store.example/after", entry.getLongUrl());
+        assertEquals(5, entry.getUseLimit());
+    }
+
+    @Test
+    @DisplayName("Удалённая ссылка в хранилище не находится")
+    void deletedLink_NotFound() throws Exception {
+        JsonNode created = createLink("https://store.example/deleted", 10);
+        String code = code(created);
+        redirectStore.findRedirectEntry(code);
+
+        mockMvc.perform(delete("/{shortUrl}", code).header("UUID", created.get("creatorId").asText()))
+                .andExpect(status().isNoContent());
+
+        assertTrue(redirectStore.findRedirectEntry(code).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ссылка, записанная в БД мимо приложения, находится в хранилище")
+    void linkWrittenToDatabase_Found() {
+        String code = insertLink(LocalDateTime.now().plusHours(1));
+
+        assertEquals("https://store.example/" + code, redirectStore.findRedirectEntry(code).orElseThrow().getLongUrl());
+    }
+
+    @Test
+    @DisplayName("Просроченная ссылка и до, и после очистки отдаётся просроченной")
+    void expiredLink_StaysExpiredAfterCleanup() {
+        String code = insertLink(LocalDateTime.now().minusHours(1));
+        assertTrue(redirectStore.findRedirectEntry(code).orElseThrow().isExpired(LocalDateTime.now()));
+
+        cleanupService.cleanupExpiredUrls();
+
+        Optional<RedirectEntry> entry = redirectStore.findRedirectEntry(code);
+        assertTrue(entry.isEmpty() || entry.get().isExpired(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Откаченное изменение ссылки в хранилище не появляется")
+    void rolledBackUpdate_NotVisible() throws Exception {
+        JsonNode created = createLink("https://store.example/rollback", 10);
+        String code = code(created);
+        redirectStore.findRedirectEntry(code);
+
+        ShortURLUpdateDto updateDto = new ShortURLUpdateDto();
+        updateDto.setUseLimit(2);
+        transactionTemplate.executeWithoutResult(status -> {
+            urlService.updateShortUrl(code, UUID.fromString(created.get("creatorId").asText()), updateDto);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, redirectStore.findRedirectEntry(code).orElseThrow().getUseLimit());
+    }
+
+    protected JsonNode createLink(String longUrl, int useLimit) throws Exception {
+        String responseJson = mockMvc.perform(post("/shorten")
+                        .contentType("application/json")
+                        .content("{\"longUrl\":\"" + longUrl + "\",\"useLimit\":" + useLimit + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(responseJson);
+    }
+
+    protected String insertLink(LocalDateTime expiresAt) {
+        UUID owner = UUID.randomUUID();
+        String code = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
+        LocalDateTime createdAt = expiresAt.minusHours(1);
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", owner);
+        jdbcTemplate.update("INSERT INTO short_urls (id, short_url, long_url, long_url_hash, creator_id, use_count, " +
+                        "use_limit, created_at, ttl_hours, expires_at, deleted) " +
+                        "VALUES (?, ?, ?, ?, ?, 0, 10, ?, 1, ?, false)",
+                -ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE), code, "https://store.example/" + code,
+                (long) code.hashCode(), owner, Timestamp.valueOf(createdAt), Timestamp.valueOf(expiresAt));
+        return code;
+    }
+
+    protected static String code(JsonNode created) {
+        String shortUrl = created.get("shortUrl").asText();
+        return shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+    }
+}
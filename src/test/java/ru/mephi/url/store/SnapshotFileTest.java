@@ -0,0 +1,95 @@
+package ru.mephi.url.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mephi.url.model.RedirectEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2030, 1, 1, 12, 0, 0, 123_000_000);
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2030, 1, 2, 3, 4, 5, 600_000_000);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Ссылки находятся двоичным поиском в своём разделе со всеми полями, отсутствующие коды - нет")
+    void find_ReturnsWrittenEntries() throws IOException {
+        Path file = directory.resolve(SnapshotFile.FILE_NAME);
+        UUID owner = UUID.randomUUID();
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(file, CREATED_AT, 2)) {
+            for (int i = 0; i < 100; i += 2) {
+                writer.add(0, new RedirectEntry(code(i), "https://snapshot.example/" + i, owner, i, 1000, EXPIRES_AT));
+            }
+            writer.add(1, new RedirectEntry("AAAAAA", "https://пример.рф/путь", owner, 3, 7, EXPIRES_AT));
+            assertEquals(51, writer.finish());
+        }
+
+        SnapshotFile snapshot = SnapshotFile.open(file);
+        assertEquals(CREATED_AT, snapshot.getCreatedAt());
+        assertEquals(2, snapshot.getSectionCount());
+        assertEquals(51, snapshot.size());
+        for (int i = 0; i < 100; i++) {
+            RedirectEntry entry = snapshot.find(code(i), 0).orElse(null);
+            if (i % 2 == 0) {
+                assertNotNull(entry);
+                assertEquals("https://snapshot.example/" + i, entry.getLongUrl());
+                assertEquals(i, entry.getUseCount());
+            } else {
+                assertNull(entry);
+            }
+        }
+        RedirectEntry unicode = snapshot.find("AAAAAA", 1).orElseThrow();
+        assertEquals("https://пример.рф/путь", unicode.getLongUrl());
+        assertEquals(owner, unicode.getCreatorId());
+        assertEquals(3, unicode.getUseCount());
+        assertEquals(7, unicode.getUseLimit());
+        assertEquals(EXPIRES_AT, unicode.getExpiresAt());
+        assertTrue(snapshot.find("AAAAAA", 0).isEmpty());
+        assertTrue(snapshot.find("short", 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Коды не по возрастанию отклоняются, а недописанный снимок удаляется")
+    void add_UnorderedCodes_Rejected() throws IOException {
+        Path file = directory.resolve(SnapshotFile.FILE_NAME);
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(file, CREATED_AT, 1)) {
+            writer.add(0, new RedirectEntry("bbbbbb", "https://b.example", UUID.randomUUID(), 0, 1, EXPIRES_AT));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(0,
+                    new RedirectEntry("aaaaaa", "https://a.example", UUID.randomUUID(), 0, 1, EXPIRES_AT)));
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @DisplayName("Обрезанный файл или файл другого формата не открывается")
+    void open_DamagedFile_Rejected() throws IOException {
+        Path file = directory.resolve(SnapshotFile.FILE_NAME);
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(file, CREATED_AT, 1)) {
+            writer.add(0, new RedirectEntry("aaaaaa", "https://a.example", UUID.randomUUID(), 0, 1, EXPIRES_AT));
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> SnapshotFile.open(file));
+
+        bytes[0] ^= 0x7F;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> SnapshotFile.open(file));
+    }
+
+    private static String code(int i) {
+        return String.format("c%05d", i);
+    }
+}
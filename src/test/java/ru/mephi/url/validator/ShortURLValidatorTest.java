@@ -7,17 +7,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mephi.url.config.ShortURLConfig;
 import ru.mephi.url.dto.ShortURLUpdateDto;
+import ru.mephi.url.model.AccessResult;
+import ru.mephi.url.model.RedirectEntry;
 import ru.mephi.url.model.ShortURL;
 import ru.mephi.url.model.User;
 import ru.mephi.url.repository.ShortURLRepository;
+import ru.mephi.url.shard.Shards;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +37,9 @@ class ShortURLValidatorTest {
     @Mock
     private ShortURLRepository repository;
 
+    @Spy
+    private Shards shards = new Shards(mock(PlatformTransactionManager.class), new ShortURLConfig());
+
     @InjectMocks
     private ShortURLValidator validator;
 
@@ -78,6 +92,7 @@ class ShortURLValidatorTest {
         ShortURL url = new ShortURL();
         url.setCreatedAt(LocalDateTime.now().minusMinutes(30));
         url.setTtlHours(1);
+        url.setExpiresAt(url.getCreatedAt().plusHours(1));
         assertDoesNotThrow(() -> validator.checkExpiration(url));
     }
 
@@ -87,10 +102,29 @@ class ShortURLValidatorTest {
         ShortURL url = new ShortURL();
         url.setCreatedAt(LocalDateTime.now().minusHours(28));
         url.setTtlHours(24);
+        url.setExpiresAt(url.getCreatedAt().plusHours(24));
         ValidationException ex = assertThrows(ValidationException.class, () -> validator.checkExpiration(url));
         assertTrue(ex.getMessage().contains("истекло"));
     }
 
+    @Test
+    @DisplayName("Результат проверки перехода: истёкший срок проверяется раньше исчерпанного лимита")
+    void checkAccess_ReturnsStatusWithoutException() {
+        LocalDateTime now = LocalDateTime.now();
+        RedirectEntry active = new RedirectEntry("active", "https://ya.ru", UUID.randomUUID(), 1, 10, now.plusHours(1));
+        RedirectEntry limit = new RedirectEntry("limits", "https://ya.ru", UUID.randomUUID(), 10, 10, now.plusHours(1));
+        RedirectEntry expired = new RedirectEntry("expird", "https://ya.ru", UUID.randomUUID(), 10, 10, now.minusHours(1));
+
+        AccessResult result = validator.checkAccess(active);
+        assertEquals(AccessResult.Status.OK, result.getStatus());
+        assertEquals("https://ya.ru", result.getLongUrl());
+        assertNull(result.getError());
+        assertEquals(AccessResult.Status.LIMIT_REACHED, validator.checkAccess(limit).getStatus());
+        assertEquals("Лимит переходов по ссылке 'limits' исчерпан", validator.checkAccess(limit).getError());
+        assertEquals(AccessResult.Status.EXPIRED, validator.checkAccess(expired).getStatus());
+        assertEquals("Время жизни ссылки 'expird' истекло", validator.checkAccess(expired).getError());
+    }
+
     @Test
     @DisplayName("Исключение при попытке установить лимит меньше, чем уже совершено переходов")
     void validateUpdate_NewLimitTooLow_ThrowsException() {
@@ -120,7 +154,7 @@ class ShortURLValidatorTest {
         User user = new User();
         String longUrl = "https://unique.com";
 
-        when(repository.existsByLongUrlForUser(user, longUrl)).thenReturn(true);
+        when(repository.existsByLongUrlForUser(user, ShortURL.hashLongUrl(longUrl), longUrl)).thenReturn(true);
         EntityExistsException ex = assertThrows(EntityExistsException.class,
                 () -> validator.checkUniqueLongUrlForUser(user, longUrl));
         assertTrue(ex.getMessage().contains("уже есть активная короткая ссылка"));
@@ -132,7 +166,18 @@ class ShortURLValidatorTest {
         User user = new User();
         String longUrl = "https://new-url.com";
 
-        when(repository.existsByLongUrlForUser(user, longUrl)).thenReturn(false);
+        when(repository.existsByLongUrlForUser(user, ShortURL.hashLongUrl(longUrl), longUrl)).thenReturn(false);
         assertDoesNotThrow(() -> validator.checkUniqueLongUrlForUser(user, longUrl));
     }
+
+    @Test
+    @DisplayName("Дубликаты пакета - одним запросом, совпадение хэша без совпадения ссылки не считается дубликатом")
+    void findTakenLongUrls_FiltersHashCollisions() {
+        User user = new User();
+        Set<String> longUrls = Set.of("https://a.com", "https://b.com");
+
+        when(repository.findLongUrlsByHashes(eq(user), anyCollection()))
+                .thenReturn(List.of("https://a.com", "https://collision.com"));
+        assertEquals(Set.of("https://a.com"), validator.findTakenLongUrls(user, longUrls));
+    }
 }